@@ -0,0 +1,94 @@
+package efficient_trie.test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.ConcurrentPrefixTrie;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.SuffixTrie;
+import org.linchimin.efficient_trie.TrieNode;
+
+
+
+/**
+ * 
+ * checks that the CharSequence and char[] range queries answer as the String queries, 
+ * and that the String signatures of the queries are kept
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class CharSequenceQueryCheck {
+	
+	public static void main(String[] args) throws Exception {
+		for (String name : new String[] {"getNode", "getNodeWithLongestCommonPart", "getKeyValueNodes", "getkeyValueNode", "getBestKeyValueNode"}) {
+			PrefixTrie.class.getMethod(name, String.class);
+		}
+		PrefixTrie.class.getMethod("getBestKeyValueNodes", String.class, int.class);
+		PrefixTrie.class.getMethod("getBestKeyValueNodes", String.class, int.class, Comparator.class);
+		PrefixTrie.class.getMethod("getKeyValueNodes", String.class, Function.class);
+		
+		Random random = new Random(14);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		for (int round = 0; round < 10; round++) {
+			TreeMap<String, Integer> keys = TrieChecks.randomKeys(random, 1 + random.nextInt(2000), 7);
+			List<String> keyList = new ArrayList<>(keys.keySet());
+			List<Integer> values = new ArrayList<>(keyList.size());
+			int[] scores = new int[keyList.size()];
+			int i = 0;
+			for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+				values.add(i);
+				scores[i++] = entry.getValue();
+			}
+			check(new PrefixTrie<>(keyList, values, scores, alphabet), random);
+			check(new SuffixTrie<>(keyList, values, scores, alphabet), random);
+			check(new ConcurrentPrefixTrie<>(keyList, values, scores, alphabet), random);
+		}
+		System.out.println("CharSequenceQueryCheck ok");
+	}
+	
+	private static void check(PrefixTrie<Integer> trie, Random random) {
+		for (int j = 0; j < 500; j++) {
+			String word = TrieChecks.randomWord(random, 1 + random.nextInt(4));
+			char[] buf = ("xy" + word + "z").toCharArray();
+			CharSequence[] views = {new StringBuilder(word), CharBuffer.wrap(buf, 2, word.length())};
+			for (CharSequence view : views) {
+				TrieChecks.assertEquals("getNode " + word, TrieChecks.describe(trie.getNode(word)), TrieChecks.describe(trie.getNode(view)));
+				TrieChecks.assertEquals("getkeyValueNode " + word, TrieChecks.describe(trie.getkeyValueNode(word)), 
+						TrieChecks.describe(trie.getkeyValueNode(view)));
+				TrieChecks.assertEquals("getKeyValueNodes " + word, TrieChecks.describe(trie.getKeyValueNodes(word)), 
+						TrieChecks.describe(trie.getKeyValueNodes(view)));
+				TrieChecks.assertEquals("getBestKeyValueNode " + word, TrieChecks.describe(trie.getBestKeyValueNode(word)), 
+						TrieChecks.describe(trie.getBestKeyValueNode(view)));
+				TrieChecks.assertEquals("getBestKeyValueNodes " + word, TrieChecks.describe(trie.getBestKeyValueNodes(word, 4)), 
+						TrieChecks.describe(trie.getBestKeyValueNodes(view, 4)));
+			}
+			TrieChecks.assertEquals("getNode[] " + word, TrieChecks.describe(trie.getNode(word)), TrieChecks.describe(trie.getNode(buf, 2, word.length())));
+			TrieChecks.assertEquals("getKeyValueNodes[] " + word, TrieChecks.describe(trie.getKeyValueNodes(word)), 
+					TrieChecks.describe(trie.getKeyValueNodes(buf, 2, word.length())));
+			TrieChecks.assertEquals("getBestKeyValueNodes[] " + word, TrieChecks.describe(trie.getBestKeyValueNodes(word, 4)), 
+					TrieChecks.describe(trie.getBestKeyValueNodes(buf, 2, word.length(), 4)));
+		}
+	}
+	
+	private static void check(SuffixTrie<Integer> trie, Random random) {
+		for (int j = 0; j < 500; j++) {
+			String word = TrieChecks.randomWord(random, 1 + random.nextInt(4));
+			char[] buf = ("xy" + word + "z").toCharArray();
+			TrieChecks.assertEquals("suffix getNode " + word, TrieChecks.describe(trie.getNode(word)), 
+					TrieChecks.describe(trie.getNode(new StringBuilder(word))));
+			TrieChecks.assertEquals("suffix getBestKeyValueNodes " + word, TrieChecks.describe(trie.getBestKeyValueNodes(word, 4)), 
+					TrieChecks.describe(trie.getBestKeyValueNodes(CharBuffer.wrap(buf, 2, word.length()), 4)));
+			TrieChecks.assertEquals("suffix getBestKeyValueNodes[] " + word, TrieChecks.describe(trie.getBestKeyValueNodes(word, 4)), 
+					TrieChecks.describe(trie.getBestKeyValueNodes(buf, 2, word.length(), 4)));
+		}
+	}
+	
+}
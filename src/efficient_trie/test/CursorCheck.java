@@ -0,0 +1,152 @@
+package efficient_trie.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.ConcurrentPrefixTrie;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.TrieCursor;
+import org.linchimin.efficient_trie.TrieNode;
+import org.linchimin.efficient_trie.TrieStorage;
+
+
+
+/**
+ * 
+ * checks that a TrieCursor answers as the queries of its trie on the typed chars, 
+ * while keys are put and removed between keystrokes, for every storage and for a ConcurrentPrefixTrie, 
+ * and that the cursors of a ConcurrentPrefixTrie stay consistent under concurrent writers
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class CursorCheck {
+	
+	public static void main(String[] args) throws InterruptedException {
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		List<String> noKeys = Collections.emptyList();
+		List<Integer> noValues = Collections.emptyList();
+		for (TrieStorage storage : TrieStorage.values()) {
+			PrefixTrie<Integer> trie = new PrefixTrie<>(noKeys, noValues, new int[0], alphabet, storage);
+			check(trie, new Random(25));
+			trie.close();
+		}
+		check(new ConcurrentPrefixTrie<Integer>(alphabet), new Random(25));
+		checkConcurrentWriters(alphabet);
+		System.out.println("CursorCheck ok");
+	}
+	
+	/**
+	 * types, backspaces and resets at random, with puts and removals in between, 
+	 * and compares the cursor with the queries of the trie on the typed chars
+	 */
+	private static void check(PrefixTrie<Integer> trie, Random random) {
+		TrieCursor<Integer> cursor = trie.newCursor();
+		StringBuilder typed = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			int operation = random.nextInt(10);
+			if (operation < 2) {
+				String key = typed.length() > 0 && random.nextBoolean() ? typed.substring(0, 1 + random.nextInt(typed.length())) : "";
+				key += TrieChecks.randomWord(random, random.nextInt(4));
+				if (random.nextInt(3) == 0) {
+					trie.remove(key);
+				} else {
+					trie.put(key, i, random.nextInt(100));
+				}
+			} else if (operation < 6) {
+				char c = TrieChecks.CHARS.charAt(random.nextInt(TrieChecks.CHARS.length()));
+				typed.append(c);
+				TrieChecks.assertEquals("advance " + typed, trie.getNode(typed) != null, cursor.advance(c));
+			} else if (operation < 9) {
+				TrieChecks.assertEquals("backspace " + typed, typed.length() > 0, cursor.backspace());
+				typed.setLength(Math.max(typed.length() - 1, 0));
+			} else if (random.nextInt(5) == 0) {
+				cursor.reset();
+				typed.setLength(0);
+			}
+			compare(trie, cursor, typed.toString());
+		}
+	}
+	
+	private static void compare(PrefixTrie<Integer> trie, TrieCursor<Integer> cursor, String typed) {
+		String what = trie.getStorage() + " " + trie.getClass().getSimpleName() + " " + typed;
+		TrieChecks.assertEquals("length " + what, typed.length(), cursor.length());
+		TrieChecks.assertEquals("getNode " + what, TrieChecks.describe(trie.getNode(typed)), TrieChecks.describe(cursor.getNode()));
+		TrieChecks.assertEquals("getBestKeyValueNode " + what, TrieChecks.describe(trie.getBestKeyValueNode(typed)), 
+				TrieChecks.describe(cursor.getBestKeyValueNode()));
+		TrieChecks.assertEquals("getBestKeyValueNodes " + what, TrieChecks.describe(trie.getBestKeyValueNodes(typed, 4)), 
+				TrieChecks.describe(cursor.getBestKeyValueNodes(4)));
+	}
+	
+	/**
+	 * cursors only return keys prefixed with the typed chars while other threads put and remove keys, 
+	 * and answer as the trie once the writers stop
+	 */
+	private static void checkConcurrentWriters(Alphabet alphabet) throws InterruptedException {
+		ConcurrentPrefixTrie<Integer> trie = new ConcurrentPrefixTrie<>(alphabet);
+		AtomicBoolean isStopped = new AtomicBoolean();
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int w = 0; w < 2; w++) {
+			Random random = new Random(w);
+			threads.add(new Thread(() -> {
+				while (!isStopped.get()) {
+					String key = TrieChecks.randomWord(random, 1 + random.nextInt(5));
+					if (random.nextBoolean()) {
+						trie.remove(key);
+					} else {
+						trie.put(key, 0, random.nextInt(100));
+					}
+				}
+			}));
+		}
+		List<TrieCursor<Integer>> cursors = new ArrayList<>();
+		List<StringBuilder> typeds = new ArrayList<>();
+		for (int r = 0; r < 2; r++) {
+			Random random = new Random(100 + r);
+			TrieCursor<Integer> cursor = trie.newCursor();
+			StringBuilder typed = new StringBuilder();
+			cursors.add(cursor);
+			typeds.add(typed);
+			threads.add(new Thread(() -> {
+				try {
+					while (!isStopped.get()) {
+						if (typed.length() < 5 && random.nextInt(3) > 0) {
+							char c = TrieChecks.CHARS.charAt(random.nextInt(TrieChecks.CHARS.length()));
+							cursor.advance(c);
+							typed.append(c);
+						} else if (cursor.backspace()) {
+							typed.setLength(typed.length() - 1);
+						}
+						String prefix = typed.toString();
+						TrieNode<Integer> node = cursor.getNode();
+						TrieChecks.assertTrue("getNode " + prefix, node == null || node.getKey().equals(prefix));
+						for (TrieNode<Integer> best : cursor.getBestKeyValueNodes(3)) {
+							TrieChecks.assertTrue("getBestKeyValueNodes " + prefix, best.getKey().startsWith(prefix));
+						}
+					}
+				} catch (Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		Thread.sleep(2000);
+		isStopped.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (error.get() != null) {
+			throw new IllegalStateException("IllegalStateException: a cursor failed under concurrent writers.", error.get());
+		}
+		for (int r = 0; r < cursors.size(); r++) {
+			compare(trie, cursors.get(r), typeds.get(r).toString());
+		}
+	}
+	
+}
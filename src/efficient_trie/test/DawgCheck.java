@@ -0,0 +1,94 @@
+package efficient_trie.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.Dawg;
+import org.linchimin.efficient_trie.DawgBuilder;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.TrieNode;
+
+
+
+/**
+ * 
+ * checks that a Dawg answers the key and prefix queries of a PrefixTrie built from the same keys, 
+ * that ordinals are the positions of keys in lexicographic order, and that very long keys are listed
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class DawgCheck {
+	
+	public static void main(String[] args) {
+		Random random = new Random(19);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		for (int round = 0; round < 20; round++) {
+			TreeMap<String, Integer> keys = TrieChecks.randomKeys(random, 1 + random.nextInt(3000), 1 + random.nextInt(12));
+			keys.keySet().removeIf(key -> key.indexOf('z') >= 0);
+			List<String> keyList = new ArrayList<>(keys.keySet());
+			List<Integer> values = new ArrayList<>(keys.values());
+			PrefixTrie<Integer> expected = new PrefixTrie<>(keyList, values, new int[keyList.size()], alphabet);
+			DawgBuilder<Integer> builder = new DawgBuilder<>();
+			for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+				builder.add(entry.getKey(), entry.getValue());
+			}
+			Dawg<Integer> dawg = builder.build();
+			TrieChecks.assertEquals("size", expected.size(), dawg.size());
+			for (int ordinal = 0; ordinal < keyList.size(); ordinal++) {
+				String key = keyList.get(ordinal);
+				TrieChecks.assertEquals("getOrdinal " + key, ordinal, dawg.getOrdinal(key));
+				TrieChecks.assertEquals("getKey " + ordinal, key, dawg.getKey(ordinal));
+				TrieChecks.assertEquals("getValue " + ordinal, keys.get(key), dawg.getValue(ordinal));
+			}
+			for (int i = 0; i < 2000; i++) {
+				String word = TrieChecks.randomWord(random, random.nextInt(6));
+				TrieNode<Integer> node = expected.getkeyValueNode(word);
+				TrieChecks.assertEquals("containsKey " + word, node != null, dawg.containsKey(word));
+				TrieChecks.assertEquals("getValue " + word, node == null ? null : node.getValue(), dawg.getValue(word));
+				TrieChecks.assertEquals("containsPrefix " + word, expected.getNode(word) != null, dawg.containsPrefix(word));
+				List<String> expectedKeys = new ArrayList<>();
+				List<Integer> expectedValues = new ArrayList<>();
+				for (TrieNode<Integer> keyValueNode : expected.getKeyValueNodes(word)) {
+					expectedKeys.add(keyValueNode.getKey());
+				}
+				Collections.sort(expectedKeys);
+				for (String key : expectedKeys) {
+					expectedValues.add(keys.get(key));
+				}
+				TrieChecks.assertEquals("getKeys " + word, expectedKeys, dawg.getKeys(word));
+				TrieChecks.assertEquals("getValues " + word, expectedValues, dawg.getValues(word));
+				int[] range = dawg.getOrdinalRange(word);
+				TrieChecks.assertEquals("getOrdinalRange " + word, expectedKeys.size(), range[1] - range[0]);
+			}
+		}
+		checkLongKeys();
+		System.out.println("DawgCheck ok");
+	}
+	
+	/**
+	 * keys far longer than the call stack allows to recurse on
+	 */
+	private static void checkLongKeys() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200000; i++) {
+			sb.append(TrieChecks.CHARS.charAt(i % 3));
+		}
+		String longKey = sb.toString();
+		DawgBuilder<Integer> builder = new DawgBuilder<>();
+		builder.add(longKey, 1);
+		builder.add(longKey + "b", 2);
+		builder.add(longKey + "c", 3);
+		Dawg<Integer> dawg = builder.build();
+		List<String> expectedKeys = new ArrayList<>();
+		Collections.addAll(expectedKeys, longKey, longKey + "b", longKey + "c");
+		TrieChecks.assertEquals("getKeys of long keys", expectedKeys, dawg.getKeys(""));
+		TrieChecks.assertEquals("getKeys of a long prefix", expectedKeys.subList(1, 2), dawg.getKeys(longKey + "b"));
+	}
+	
+}
@@ -6,8 +6,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.linchimin.efficient_trie.Alphabet;
 import org.linchimin.efficient_trie.PrefixTrie;
 import org.linchimin.efficient_trie.SuffixTrie;
 import org.linchimin.efficient_trie.TrieNode;
@@ -46,18 +48,19 @@ public class EfficientTrieExamples {
 		
 		
 		/**
-		 * 1. The default supported chars are "abcdefghijklmnopqrstuvwxyz0123456789".
+		 * 1. Each trie has its own alphabet; tries constructed without one use the default alphabet, 
+		 * whose chars are "abcdefghijklmnopqrstuvwxyz0123456789" unless changed with TrieNode.setSupportedChars.
 		 * 2. Warning: keys that contain one or more unsupported chars are automatically not added to a trie;
 		 * to check if all keys are added after trie construction, check trie.isAllAdded() to see if all characters are added. 
-		 * 3. Minimize the number of supported chars for speed optimization.
+		 * 3. Minimize the number of supported chars for speed optimization, for example with Alphabet.of(keys).
 		 */
-		TrieNode.setSupportedChars("abcdefghijklmnopqrstuvwxyz");
+		Alphabet alphabet = Alphabet.of("abcdefghijklmnopqrstuvwxyz");
 		
 		String[] keys = {"abcde", "abc", "ab", "abbd", "ee"};
 		Integer[] values = {1,2,3,4,5};
 		int[] scores = {11,14,1,2,3};
-		PrefixTrie<Integer> prefixTrie = new PrefixTrie<Integer>(keys, values, scores);
-		PrefixTrie<Integer> prefixTrie2 = new PrefixTrie<Integer>(keys, values);
+		PrefixTrie<Integer> prefixTrie = new PrefixTrie<Integer>(keys, values, scores, alphabet);
+		PrefixTrie<Integer> prefixTrie2 = new PrefixTrie<Integer>(Arrays.asList(keys), Arrays.asList(values), Alphabet.of(Arrays.asList(keys)));
 		
 		System.out.println("prefixTrie2.size() = " + prefixTrie2.size());
 
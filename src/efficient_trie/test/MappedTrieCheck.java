@@ -0,0 +1,93 @@
+package efficient_trie.test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.MappedTrie;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.TrieNode;
+import org.linchimin.efficient_trie.ValueCodec;
+
+
+
+/**
+ * 
+ * checks that a MappedTrie answers queries as the PrefixTrie it is written from, 
+ * that truncated buffers are rejected, and that write replaces a file atomically
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class MappedTrieCheck {
+	
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(15);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		Path directory = Files.createTempDirectory("mapped-trie-check");
+		Path path = directory.resolve("trie.bin");
+		for (int round = 0; round < 10; round++) {
+			TreeMap<String, Integer> keys = TrieChecks.randomKeys(random, 1 + random.nextInt(2000), 7);
+			List<String> keyList = new ArrayList<>(keys.keySet());
+			List<String> values = new ArrayList<>(keyList.size());
+			int[] scores = new int[keyList.size()];
+			int i = 0;
+			for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+				values.add("v" + i);
+				scores[i++] = entry.getValue();
+			}
+			PrefixTrie<String> expected = new PrefixTrie<>(keyList, values, scores, alphabet);
+			MappedTrie<String> previous = round == 0 ? null : MappedTrie.open(path, ValueCodec.UTF8_STRING);
+			String previousKey = previous == null || previous.size() == 0 ? null : previous.getKey(0);
+			MappedTrie.write(expected.freeze(), path, ValueCodec.UTF8_STRING);
+			if (previousKey != null) {
+				// the old mapping still reads the replaced file
+				TrieChecks.assertEquals("replaced mapping", previousKey, previous.getKey(0));
+			}
+			try (Stream<Path> files = Files.list(directory)) {
+				TrieChecks.assertEquals("files after write", 1L, files.count());
+			}
+			MappedTrie<String> mapped = MappedTrie.open(path, ValueCodec.UTF8_STRING);
+			TrieChecks.assertEquals("size", expected.size(), mapped.size());
+			for (int j = 0; j < 500; j++) {
+				String word = TrieChecks.randomWord(random, 1 + random.nextInt(4));
+				TrieNode<String> node = expected.getkeyValueNode(word);
+				int id = mapped.getId(word);
+				TrieChecks.assertEquals("getId " + word, node == null ? null : node.getValue(), id < 0 ? null : mapped.getValue(id));
+				TrieChecks.assertEquals("getIds " + word, TrieChecks.describe(expected.getKeyValueNodes(word)), describe(mapped, mapped.getIds(word)));
+				TrieChecks.assertEquals("getBestIds " + word, TrieChecks.describe(expected.getBestKeyValueNodes(word, 5)), 
+						describe(mapped, mapped.getBestIds(word, 5)));
+			}
+			
+			byte[] bytes = Files.readAllBytes(path);
+			for (int j = 0; j < 20; j++) {
+				int length = random.nextInt(bytes.length);
+				try {
+					new MappedTrie<String>(ByteBuffer.wrap(bytes, 0, length), ValueCodec.UTF8_STRING);
+					throw new IllegalStateException("IllegalStateException: a buffer truncated to " + length + " of " + bytes.length + " bytes is accepted.");
+				} catch (IllegalArgumentException e) {
+					// expected
+				}
+			}
+		}
+		Files.delete(path);
+		Files.delete(directory);
+		System.out.println("MappedTrieCheck ok");
+	}
+	
+	private static List<String> describe(MappedTrie<String> mapped, int[] ids) {
+		List<String> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(mapped.getKey(id) + "=" + mapped.getValue(id) + "@" + mapped.getScore(id));
+		}
+		return result;
+	}
+	
+}
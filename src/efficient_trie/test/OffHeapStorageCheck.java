@@ -0,0 +1,103 @@
+package efficient_trie.test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.TrieStorage;
+
+
+
+/**
+ * 
+ * checks that tries with TrieStorage.NODE_POOL and TrieStorage.OFF_HEAP answer as a PrefixTrie with TrieStorage.OBJECT_GRAPH 
+ * under puts and removals, that removed nodes are reused instead of growing the off-heap memory, 
+ * and that a closed off-heap trie throws an IllegalStateException
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class OffHeapStorageCheck {
+	
+	public static void main(String[] args) {
+		Random random = new Random(16);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		List<String> noKeys = Collections.emptyList();
+		List<Integer> noValues = Collections.emptyList();
+		List<PrefixTrie<Integer>> tries = new ArrayList<>();
+		for (TrieStorage storage : TrieStorage.values()) {
+			tries.add(new PrefixTrie<>(noKeys, noValues, new int[0], alphabet, storage));
+		}
+		PrefixTrie<Integer> expected = tries.get(0);
+		for (int i = 0; i < 10000; i++) {
+			String key = TrieChecks.randomWord(random, 1 + random.nextInt(6));
+			int operation = random.nextInt(3);
+			int score = random.nextInt(1000);
+			for (PrefixTrie<Integer> trie : tries) {
+				if (operation == 0) {
+					trie.remove(key);
+				} else {
+					trie.put(key, i, score);
+				}
+			}
+			String word = TrieChecks.randomWord(random, 1 + random.nextInt(3));
+			for (PrefixTrie<Integer> trie : tries) {
+				TrieChecks.assertEquals(trie.getStorage() + " size", expected.size(), trie.size());
+				TrieChecks.assertEquals(trie.getStorage() + " getKeyValueNodes " + word, TrieChecks.describe(expected.getKeyValueNodes(word)), 
+						TrieChecks.describe(trie.getKeyValueNodes(word)));
+				TrieChecks.assertEquals(trie.getStorage() + " getBestKeyValueNodes " + word, TrieChecks.describe(expected.getBestKeyValueNodes(word, 3)), 
+						TrieChecks.describe(trie.getBestKeyValueNodes(word, 3)));
+			}
+		}
+		for (PrefixTrie<Integer> trie : tries) {
+			trie.close();
+		}
+		
+		PrefixTrie<Integer> offHeap = new PrefixTrie<>(noKeys, noValues, new int[0], alphabet, TrieStorage.OFF_HEAP);
+		long directMemory = 0;
+		for (int round = 0; round < 20; round++) {
+			List<String> keys = new ArrayList<>();
+			for (int i = 0; i < 20000; i++) {
+				keys.add(TrieChecks.randomWord(random, 12));
+			}
+			for (String key : keys) {
+				offHeap.put(key, round, 1);
+			}
+			for (String key : keys) {
+				offHeap.remove(key);
+			}
+			if (round == 1) {
+				directMemory = directMemory();
+			}
+		}
+		// about 200,000 nodes are put in each round, so 20 rounds without reusing them would take more than 100 MB
+		TrieChecks.assertTrue("no growth of the off-heap memory after round 1: " + directMemory + " to " + directMemory(), 
+				directMemory() == directMemory);
+		offHeap.close();
+		try {
+			offHeap.getKeyValueNodes("ab");
+			throw new IllegalStateException("IllegalStateException: a closed trie is queried.");
+		} catch (IllegalStateException e) {
+			TrieChecks.assertTrue("closed message", e.getMessage().contains("close()"));
+		}
+		System.out.println("OffHeapStorageCheck ok");
+	}
+	
+	/**
+	 * @return the bytes of the direct buffers of the JVM
+	 */
+	private static long directMemory() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return -1;
+	}
+	
+}
@@ -0,0 +1,101 @@
+package efficient_trie.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.IntPrefixTrie;
+import org.linchimin.efficient_trie.LongPrefixTrie;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.TrieNode;
+
+
+
+/**
+ * 
+ * checks that IntPrefixTrie and LongPrefixTrie answer as a PrefixTrie with boxed values, 
+ * including duplicate keys, unsupported keys and the order of tied top-k results
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class PrimitiveTrieCheck {
+	
+	public static void main(String[] args) {
+		Random random = new Random(17);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		for (int round = 0; round < 20; round++) {
+			int numKeys = 1 + random.nextInt(3000);
+			List<String> keys = new ArrayList<>(numKeys);
+			int[] intValues = new int[numKeys];
+			long[] longValues = new long[numKeys];
+			List<Integer> values = new ArrayList<>(numKeys);
+			int[] scores = new int[numKeys];
+			for (int i = 0; i < numKeys; i++) {
+				// duplicates are common with short keys, and few distinct scores make ties
+				keys.add(TrieChecks.randomWord(random, random.nextInt(6)));
+				intValues[i] = random.nextInt();
+				longValues[i] = intValues[i] * 3L + (1L << 40);
+				values.add(intValues[i]);
+				scores[i] = random.nextInt(20);
+			}
+			PrefixTrie<Integer> expected = new PrefixTrie<>(keys, values, scores, alphabet);
+			IntPrefixTrie intTrie = new IntPrefixTrie(keys, intValues, scores, alphabet);
+			LongPrefixTrie longTrie = new LongPrefixTrie(keys, longValues, scores, alphabet);
+			TrieChecks.assertEquals("size", expected.size(), intTrie.size());
+			TrieChecks.assertEquals("isAllAdded", expected.isAllAdded(), intTrie.isAllAdded());
+			for (int j = 0; j < 300; j++) {
+				String word = TrieChecks.randomWord(random, random.nextInt(4));
+				TrieNode<Integer> node = expected.getkeyValueNode(word);
+				TrieChecks.assertEquals("getValue " + word, node == null ? -1 : node.getValue(), intTrie.getValue(word, -1));
+				TrieChecks.assertEquals("getScore " + word, node == null ? 0 : node.getScore(), intTrie.getScore(word));
+				TrieChecks.assertEquals("long getValue " + word, node == null ? -1L : node.getValue() * 3L + (1L << 40), 
+						longTrie.getValue(word, -1L));
+				
+				List<TrieNode<Integer>> all = expected.getKeyValueNodes(word);
+				TrieChecks.assertEquals("getKeys " + word, keysOf(all), Arrays.asList(intTrie.getKeys(word)));
+				TrieChecks.assertEquals("getValues " + word, valuesOf(all), toList(intTrie.getValues(word)));
+				
+				TrieNode<Integer> best = expected.getBestKeyValueNode(word);
+				TrieChecks.assertEquals("getBestValue " + word, best == null ? -1 : best.getValue(), intTrie.getBestValue(word, -1));
+				int k = 1 + random.nextInt(8);
+				List<TrieNode<Integer>> top = expected.getBestKeyValueNodes(word, k);
+				TrieChecks.assertEquals("getBestKeys " + word, keysOf(top), Arrays.asList(intTrie.getBestKeys(word, k)));
+				TrieChecks.assertEquals("getBestValues " + word, valuesOf(top), toList(intTrie.getBestValues(word, k)));
+				long[] longTop = longTrie.getBestValues(word, k);
+				TrieChecks.assertEquals("long getBestValues " + word, top.size(), longTop.length);
+				for (int i = 0; i < longTop.length; i++) {
+					TrieChecks.assertEquals("long getBestValues " + word, top.get(i).getValue() * 3L + (1L << 40), longTop[i]);
+				}
+			}
+		}
+		System.out.println("PrimitiveTrieCheck ok");
+	}
+	
+	private static List<String> keysOf(List<TrieNode<Integer>> nodes) {
+		List<String> keys = new ArrayList<>(nodes.size());
+		for (TrieNode<Integer> node : nodes) {
+			keys.add(node.getKey());
+		}
+		return keys;
+	}
+	
+	private static List<Integer> valuesOf(List<TrieNode<Integer>> nodes) {
+		List<Integer> values = new ArrayList<>(nodes.size());
+		for (TrieNode<Integer> node : nodes) {
+			values.add(node.getValue());
+		}
+		return values;
+	}
+	
+	private static List<Integer> toList(int[] values) {
+		List<Integer> list = new ArrayList<>(values.length);
+		for (int value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+	
+}
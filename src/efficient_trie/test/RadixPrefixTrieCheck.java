@@ -0,0 +1,54 @@
+package efficient_trie.test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.RadixPrefixTrie;
+
+
+
+/**
+ * 
+ * checks that a RadixPrefixTrie answers as a PrefixTrie under puts and removals, 
+ * including queries ending inside an edge and the order of tied top-k results
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class RadixPrefixTrieCheck {
+	
+	public static void main(String[] args) {
+		Random random = new Random(18);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		List<String> noKeys = Collections.emptyList();
+		List<Integer> noValues = Collections.emptyList();
+		for (int round = 0; round < 5; round++) {
+			PrefixTrie<Integer> expected = new PrefixTrie<>(noKeys, noValues, new int[0], alphabet);
+			RadixPrefixTrie<Integer> radix = new RadixPrefixTrie<>(noKeys, noValues, new int[0], alphabet);
+			for (int i = 0; i < 5000; i++) {
+				String key = TrieChecks.randomWord(random, 1 + random.nextInt(8));
+				if (random.nextInt(4) == 0) {
+					TrieChecks.assertEquals("remove " + key, expected.remove(key), radix.remove(key));
+				} else {
+					int score = random.nextInt(30);
+					TrieChecks.assertEquals("put " + key, expected.put(key, i, score), radix.put(key, i, score));
+				}
+				String word = TrieChecks.randomWord(random, random.nextInt(5));
+				TrieChecks.assertEquals("size", expected.size(), radix.size());
+				TrieChecks.assertEquals("getkeyValueNode " + word, TrieChecks.describe(expected.getkeyValueNode(word)), 
+						TrieChecks.describe(radix.getkeyValueNode(word)));
+				TrieChecks.assertEquals("getKeyValueNodes " + word, TrieChecks.describe(expected.getKeyValueNodes(word)), 
+						TrieChecks.describe(radix.getKeyValueNodes(word)));
+				TrieChecks.assertEquals("getBestKeyValueNode " + word, TrieChecks.describe(expected.getBestKeyValueNode(word)), 
+						TrieChecks.describe(radix.getBestKeyValueNode(word)));
+				TrieChecks.assertEquals("getBestKeyValueNodes " + word, TrieChecks.describe(expected.getBestKeyValueNodes(word, 6)), 
+						TrieChecks.describe(radix.getBestKeyValueNodes(word, 6)));
+			}
+		}
+		System.out.println("RadixPrefixTrieCheck ok");
+	}
+	
+}
@@ -0,0 +1,68 @@
+package efficient_trie.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.linchimin.efficient_trie.Alphabet;
+import org.linchimin.efficient_trie.PrefixTrie;
+import org.linchimin.efficient_trie.SortedTrieBuilder;
+
+
+
+/**
+ * 
+ * checks that a trie bulk-loaded by SortedTrieBuilder answers queries as a PrefixTrie constructed from the same keys
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public class SortedTrieBuilderCheck {
+	
+	public static void main(String[] args) {
+		Random random = new Random(13);
+		Alphabet alphabet = Alphabet.of(TrieChecks.CHARS);
+		for (int round = 0; round < 20; round++) {
+			TreeMap<String, Integer> keys = TrieChecks.randomKeys(random, 1 + random.nextInt(3000), 8);
+			List<String> keyList = new ArrayList<>(keys.keySet());
+			int[] scores = new int[keyList.size()];
+			SortedTrieBuilder<String> builder = new SortedTrieBuilder<>(alphabet);
+			int i = 0;
+			for (Map.Entry<String, Integer> entry : keys.entrySet()) {
+				scores[i++] = entry.getValue();
+				boolean added = builder.add(entry.getKey(), entry.getKey().toUpperCase(), entry.getValue());
+				TrieChecks.assertEquals("added " + entry.getKey(), entry.getKey().indexOf('z') == -1, added);
+			}
+			PrefixTrie<String> built = builder.build();
+			List<String> values = new ArrayList<>(keyList.size());
+			for (String key : keyList) {
+				values.add(key.toUpperCase());
+			}
+			PrefixTrie<String> expected = new PrefixTrie<>(keyList, values, scores, alphabet);
+			
+			TrieChecks.assertEquals("size", expected.size(), built.size());
+			TrieChecks.assertEquals("isAllAdded", expected.isAllAdded(), built.isAllAdded());
+			for (int j = 0; j < 500; j++) {
+				String word = TrieChecks.randomWord(random, 1 + random.nextInt(4));
+				TrieChecks.assertEquals("getNode " + word, TrieChecks.describe(expected.getNode(word)), TrieChecks.describe(built.getNode(word)));
+				TrieChecks.assertEquals("getKeyValueNodes " + word, TrieChecks.describe(expected.getKeyValueNodes(word)), 
+						TrieChecks.describe(built.getKeyValueNodes(word)));
+				TrieChecks.assertEquals("getBestKeyValueNodes " + word, TrieChecks.describe(expected.getBestKeyValueNodes(word, 5)), 
+						TrieChecks.describe(built.getBestKeyValueNodes(word, 5)));
+			}
+		}
+		
+		SortedTrieBuilder<String> builder = new SortedTrieBuilder<>(alphabet);
+		builder.add("b", "B");
+		try {
+			builder.add("a", "A");
+			throw new IllegalStateException("IllegalStateException: unsorted keys are accepted.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		System.out.println("SortedTrieBuilderCheck ok");
+	}
+	
+}
@@ -0,0 +1,101 @@
+package efficient_trie.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.linchimin.efficient_trie.TrieNode;
+
+
+
+/**
+ * 
+ * shared helpers of the behavioral checks, which compare a structure or query against the results of a plain PrefixTrie
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+final class TrieChecks {
+	
+	static final String CHARS = "abcdefgh";
+	
+	private TrieChecks() {
+	}
+	
+	/**
+	 * @param random : the random generator
+	 * @param numKeys : the maximum number of keys
+	 * @param maxLength : the maximum length of a key
+	 * @return distinct random keys over CHARS, in lexicographic order, mapped to random scores
+	 */
+	static TreeMap<String, Integer> randomKeys(Random random, int numKeys, int maxLength) {
+		TreeMap<String, Integer> result = new TreeMap<>();
+		for (int i = 0; i < numKeys; i++) {
+			result.put(randomWord(random, 1 + random.nextInt(maxLength)), random.nextInt(1000));
+		}
+		return result;
+	}
+	
+	/**
+	 * @param random : the random generator
+	 * @param length : the length of the word
+	 * @return a random word over CHARS, whose last char may also be an unsupported 'z'
+	 */
+	static String randomWord(Random random, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+		}
+		if (length > 0 && random.nextInt(50) == 0) {
+			sb.setCharAt(length - 1, 'z');
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return a comparable description of a node, or "null"
+	 */
+	static String describe(TrieNode<?> node) {
+		if (node == null) {
+			return "null";
+		}
+		return node.getKey() + "=" + node.getValue() + "@" + node.getScore();
+	}
+	
+	/**
+	 * @return comparable descriptions of nodes, in the order of the list
+	 */
+	static List<String> describe(List<? extends TrieNode<?>> nodes) {
+		if (nodes == null) {
+			return null;
+		}
+		List<String> result = new ArrayList<>(nodes.size());
+		for (TrieNode<?> node : nodes) {
+			result.add(describe(node));
+		}
+		return result;
+	}
+	
+	/**
+	 * throws if the actual result differs from the expected one
+	 * @param what : what is compared, for the message
+	 * @param expected : the result of a plain PrefixTrie
+	 * @param actual : the result of the checked structure or query
+	 */
+	static void assertEquals(String what, Object expected, Object actual) {
+		if (expected == null ? actual != null : !expected.equals(actual)) {
+			throw new IllegalStateException("IllegalStateException: " + what + ": expected " + expected + ", but was " + actual + ".");
+		}
+	}
+	
+	/**
+	 * throws if the condition does not hold
+	 */
+	static void assertTrue(String what, boolean condition) {
+		if (!condition) {
+			throw new IllegalStateException("IllegalStateException: " + what + " does not hold.");
+		}
+	}
+	
+}
@@ -0,0 +1,127 @@
+package org.linchimin.efficient_trie;
+
+import java.util.PriorityQueue;
+
+/**
+ * <pre>
+ * the base of the double-array tries, DoubleArrayTrie on heap arrays and MappedTrie on a mapped buffer: 
+ * key-value nodes are numbered in depth-first order, so that the key-value nodes of the sub-tree of a state 
+ * are the ordinals [kvBegin(state), kvEnd(state)), and bestOrdinal(state) is the best of them. 
+ * The top-k searches of both run on these accessors.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+abstract class AbstractDoubleArrayTrie {
+	
+	/**
+	 * @param state : a state
+	 * @return the first key-value ordinal of the sub-tree of the state
+	 */
+	abstract int kvBegin(int state);
+	
+	/**
+	 * @param state : a state
+	 * @return the ordinal after the last key-value ordinal of the sub-tree of the state
+	 */
+	abstract int kvEnd(int state);
+	
+	/**
+	 * @param ordinal : a key-value ordinal
+	 * @return the state of the key-value node
+	 */
+	abstract int kvState(int ordinal);
+	
+	/**
+	 * @param ordinal : a key-value ordinal
+	 * @return the score of the key-value node
+	 */
+	abstract int score(int ordinal);
+	
+	/**
+	 * @param state : a state
+	 * @return the ordinal of the highest scored key-value node of the sub-tree of the state, 
+	 * the first one in depth-first order among ties, or -1 if the sub-tree has no key-value nodes
+	 */
+	abstract int bestOrdinal(int state);
+	
+	/**
+	 * @param state : a state
+	 * @return the child state with the smallest child index, or -1 if there is none
+	 */
+	abstract int firstChild(int state);
+	
+	/**
+	 * @param state : a state
+	 * @return the sibling state with the next child index, or -1 if there is none
+	 */
+	abstract int nextSibling(int state);
+	
+	/**
+	 * @param state : a state
+	 * @return whether the state is a key-value node
+	 */
+	final boolean isKeyValueState(int state) {
+		int begin = kvBegin(state);
+		return begin < kvEnd(state) && kvState(begin) == state;
+	}
+	
+	/**
+	 * @param state : a state
+	 * @return the maximum score of the key-value nodes of the sub-tree of the state, or Integer.MIN_VALUE if there are no such nodes
+	 */
+	final int maxScore(int state) {
+		int best = bestOrdinal(state);
+		return best < 0 ? Integer.MIN_VALUE : score(best);
+	}
+	
+	/**
+	 * <pre>
+	 * A best-first search with the maximum scores of sub-trees as upper bounds, as TrieNode.getBestKeyValueNodes, 
+	 * which expands only the sub-trees that may hold one of the top key-value nodes; 
+	 * an entry of the queue is either a state, whose sub-tree is to expand, or ~ordinal for a key-value node as a result. 
+	 * Ties are broken by the first ordinals of the sub-trees and the ordinals of the results, which are in depth-first order. 
+	 * </pre>
+	 * @param state : a state
+	 * @param numTopKeyValueNodes : number of top key-value nodes, which is positive
+	 * @return the ordinals of the best key-value nodes of the sub-tree of the state, in descending order of scores
+	 */
+	final int[] topOrdinals(int state, int numTopKeyValueNodes) {
+		int[] result = new int[Math.min(numTopKeyValueNodes, kvEnd(state) - kvBegin(state))];
+		if (result.length == 0) {
+			return result;
+		}
+		PriorityQueue<Integer> queue = new PriorityQueue<Integer>((a, b) -> {
+			int priorityA = a >= 0 ? maxScore(a) : score(~a);
+			int priorityB = b >= 0 ? maxScore(b) : score(~b);
+			if (priorityA != priorityB) {
+				return Integer.compare(priorityB, priorityA);
+			}
+			int positionA = a >= 0 ? kvBegin(a) : ~a;
+			int positionB = b >= 0 ? kvBegin(b) : ~b;
+			if (positionA != positionB) {
+				return Integer.compare(positionA, positionB);
+			}
+			// a result precedes the sub-tree of its own state 
+			return Boolean.compare(a >= 0, b >= 0);
+		});
+		queue.add(state);
+		int numResults = 0;
+		while (numResults < result.length && queue.isEmpty() == false) {
+			int entry = queue.poll();
+			if (entry < 0) {
+				result[numResults++] = ~entry;
+				continue;
+			}
+			if (isKeyValueState(entry)) {
+				queue.add(~kvBegin(entry));
+			}
+			for (int child = firstChild(entry); child >= 0; child = nextSibling(child)) {
+				if (bestOrdinal(child) >= 0) {
+					queue.add(child);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,193 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <pre>
+ * the base of the read-only prefix tries with primitive values, IntPrefixTrie and LongPrefixTrie:
+ * the keys are compiled directly into a DoubleArrayTrie, without a trie of TrieNodes, whose key-value nodes are numbered in depth-first order,
+ * and a subclass keeps the values in a primitive array indexed by these ordinals, so that no value is boxed.
+ * The ordinals of the keys prefixed with a prefix are the range [kvBegins[state], kvEnds[state]) of the state of the prefix.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+abstract class AbstractPrimitiveTrie {
+
+	/**
+	 * the compiled keys; its 'kvPositions' hold the positions of the keys at the constructor arguments until they are taken by takePositions()
+	 */
+	final DoubleArrayTrie<Void> dat;
+
+	private final boolean isAllAdded;
+
+	/**
+	 * @param keys : the keys for trie construction
+	 * @param numValues : the number of the corresponding values of the keys
+	 * @param scores : the scores of each of the key-value pairs
+	 * @param alphabet : the supported chars of this trie
+	 */
+	AbstractPrimitiveTrie(List<String> keys, int numValues, int[] scores, Alphabet alphabet) {
+		if (keys.size() != numValues || keys.size() != scores.length){
+			throw new IllegalArgumentException("IllegalArgumentException: the sizes of 'keys', 'values' and 'scores' should agree; "
+					+ "keys.size() = " + keys.size() + ", values.length = " + numValues +  ", scores.length = " + scores.length);
+		}
+		int[] positions = new int[keys.size()];
+		int numPositions = 0;
+		for (int i = 0; i < positions.length; i++) {
+			if (isSupported(keys.get(i), alphabet)) {
+				positions[numPositions++] = i;
+			}
+		}
+		isAllAdded = numPositions == positions.length;
+		dat = new DoubleArrayTrie<Void>(keys, Arrays.copyOf(positions, numPositions), scores, alphabet);
+	}
+
+	/**
+	 * @param key : a key
+	 * @param alphabet : the supported chars of this trie
+	 * @return true if all chars of 'key' are supported by 'alphabet'
+	 */
+	private static boolean isSupported(String key, Alphabet alphabet) {
+		for (int i = 0; i < key.length(); i++) {
+			if (alphabet.indexOf(key.charAt(i)) == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the position at the constructor arguments of the key of each ordinal; the positions are released from 'dat'
+	 */
+	final int[] takePositions() {
+		int[] positions = dat.kvPositions;
+		dat.kvPositions = null;
+		return positions;
+	}
+
+	/**
+	 * @return number of keys of this trie
+	 */
+	public int size() {
+		return dat.size();
+	}
+
+	/**
+	 * @return true if all keys are added by the constructor, and false if one or more keys contain unsupported characters
+	 */
+	public boolean isAllAdded() {
+		return isAllAdded;
+	}
+
+	/**
+	 * @return the supported chars of this trie
+	 */
+	public Alphabet getAlphabet() {
+		return dat.alphabet;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the ordinal of the key, or -1 if it does not exist
+	 */
+	final int ordinalOf(CharSequence key) {
+		int state = dat.getState(key);
+		return (state >= 0 && dat.isKeyValueState(state)) ? dat.kvBegins[state] : -1;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return whether the key exists
+	 */
+	public boolean containsKey(CharSequence key) {
+		return ordinalOf(key) >= 0;
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the range {begin, end} of the ordinals of the keys prefixed with 'prefix', which is empty if there is no such key
+	 */
+	final int[] rangeOf(CharSequence prefix) {
+		int state = dat.getState(prefix);
+		return state < 0 ? new int[] {0, 0} : new int[] {dat.kvBegins[state], dat.kvEnds[state]};
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the ordinal of the highest scored key prefixed with 'prefix', the first one in depth-first order among ties, 
+	 * or -1 if there is no such key
+	 */
+	final int bestOrdinalOf(CharSequence prefix) {
+		int state = dat.getState(prefix);
+		return state < 0 ? -1 : dat.bestOrdinals[state];
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @param numTopKeys : number of top keys
+	 * @return the ordinals of the best keys prefixed with 'prefix', in descending order of scores, 
+	 * found by a best-first search of the sub-tree of the prefix
+	 */
+	final int[] bestOrdinalsOf(CharSequence prefix, int numTopKeys) {
+		if (numTopKeys <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeys (" + numTopKeys + ") should be positive ");
+		}
+		int state = dat.getState(prefix);
+		return state < 0 ? new int[0] : dat.topOrdinals(state, numTopKeys);
+	}
+
+	/**
+	 * @param ordinal : the ordinal of a key
+	 * @return the key
+	 */
+	final String keyOf(int ordinal) {
+		int state = dat.kvStates[ordinal];
+		int level = 0;
+		for (int s = state; s != DoubleArrayTrie.ROOT; s = dat.check[s]) {
+			level++;
+		}
+		char[] chars = new char[level];
+		for (int s = state, i = level - 1; s != DoubleArrayTrie.ROOT; s = dat.check[s], i--) {
+			chars[i] = dat.alphabet.charAt(s - dat.base[dat.check[s]] - 1);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the keys prefixed with 'prefix', in the order of the values returned by getValues(prefix)
+	 */
+	public String[] getKeys(CharSequence prefix) {
+		int[] range = rangeOf(prefix);
+		String[] keys = new String[range[1] - range[0]];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keyOf(range[0] + i);
+		}
+		return keys;
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @param numTopKeys : number of top keys
+	 * @return the best keys prefixed with 'prefix', in the order of the values returned by getBestValues(prefix, numTopKeys)
+	 */
+	public String[] getBestKeys(CharSequence prefix, int numTopKeys) {
+		int[] ordinals = bestOrdinalsOf(prefix, numTopKeys);
+		String[] keys = new String[ordinals.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keyOf(ordinals[i]);
+		}
+		return keys;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the score of the key, or 0 if the key does not exist
+	 */
+	public int getScore(CharSequence key) {
+		int ordinal = ordinalOf(key);
+		return ordinal < 0 ? 0 : dat.scores[ordinal];
+	}
+}
@@ -1,9 +1,14 @@
 package org.linchimin.efficient_trie;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Function;
 
 
@@ -17,14 +22,21 @@ import java.util.function.Function;
  */
 abstract class AbstractTrie<V>  {
 	
-	protected static int[] CHAR_TO_INDEX_MAP = TrieNode.CHAR_TO_INDEX_MAP;
-	
+	/**
+	 * the supported chars of this trie
+	 */
+	protected final Alphabet alphabet;
 	
 	/**
 	 * the root node of this trie
 	 */
 	protected TrieNode<V> root;
 	
+	/**
+	 * the node storage for TrieStorage.NODE_POOL and TrieStorage.OFF_HEAP, or null for TrieStorage.OBJECT_GRAPH
+	 */
+	final NodePool<V> pool;
+	
 	/**
 	 * number of key-value nodes added to this trie
 	 */
@@ -33,13 +45,42 @@ abstract class AbstractTrie<V>  {
 	/**
 	 * true if all words are added with the constructor, and false if one or more words are not added
 	 */
-	private boolean isAllAdded;
+	boolean isAllAdded;
+	
+	/**
+	 * the maximum number of top key-value nodes indexed at each node by indexBestKeyValueNodes, or 0 if not indexed 
+	 */
+	int numIndexedBestKeyValueNodes;
+	
+	/**
+	 * the number of puts and removals, by which a TrieCursor finds that its node may have been pruned or replaced
+	 */
+	int modCount;
 	
 	/**
 	 * an internal constructor
 	 */
 	protected AbstractTrie() {
-		root = new TrieNode<V>((char) 0, 0);
+		this(Alphabet.getDefault(), TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * an internal constructor
+	 * @param alphabet : the supported chars of this trie
+	 * @param storage : the storage backend of the nodes
+	 */
+	protected AbstractTrie(Alphabet alphabet, TrieStorage storage) {
+		if (alphabet == null) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'alphabet' should not be null.");
+		}
+		this.alphabet = alphabet;
+		if (storage == TrieStorage.NODE_POOL || storage == TrieStorage.OFF_HEAP) {
+			pool = storage == TrieStorage.NODE_POOL ? new ArrayNodePool<V>() : new OffHeapNodePool<V>();
+			root = pool.view(NodePool.ROOT);
+		} else {
+			pool = null;
+			root = newNode((char) 0, 0);
+		}
 	}
 
 	/**
@@ -50,6 +91,16 @@ abstract class AbstractTrie<V>  {
 	public AbstractTrie(List<String> keys, List<V> values) {
 		this(keys, values, ones(keys.size()));
 	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param alphabet : the supported chars of this trie
+	 */
+	public AbstractTrie(List<String> keys, List<V> values, Alphabet alphabet) {
+		this(keys, values, ones(keys.size()), alphabet, TrieStorage.OBJECT_GRAPH);
+	}
 
 	/**
 	 * constructor for constructing a trie with the keys and values and scores;
@@ -59,7 +110,20 @@ abstract class AbstractTrie<V>  {
 	 * @param scores: the scores of each of the key-value pairs 
 	 */
 	public AbstractTrie(List<String> keys, List<V> values, int[] scores) {
-		this();
+		this(keys, values, scores, Alphabet.getDefault(), TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, 
+	 * with the nodes stored at 'storage'
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie
+	 * @param storage : the storage backend of the nodes
+	 */
+	public AbstractTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, TrieStorage storage) {
+		this(alphabet, storage);
 		if (keys.size() != values.size() || keys.size() != scores.length){
 			throw new IllegalArgumentException("IllegalArgumentException: the sizes of 'elements', 'values' and 'scores' should agree; "
 					+ "elements.size() = " + keys.size() + ", values.size() = " + values.size() +  ", scores.length = " + scores.length);
@@ -74,6 +138,25 @@ abstract class AbstractTrie<V>  {
 		isAllAdded = allAdded;
 	}
 	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores in parallel, with TrieStorage.OBJECT_GRAPH;
+	 * the keys are partitioned by their first chars (last chars for SuffixTrie), and the sub-trees are built in 'forkJoinPool'.
+	 * The trie, size() and isAllAdded() are identical to the ones of the sequential constructors
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie
+	 * @param forkJoinPool : the pool for building sub-trees, like ForkJoinPool.commonPool()
+	 */
+	public AbstractTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, ForkJoinPool forkJoinPool) {
+		this(alphabet, TrieStorage.OBJECT_GRAPH);
+		if (keys.size() != values.size() || keys.size() != scores.length){
+			throw new IllegalArgumentException("IllegalArgumentException: the sizes of 'elements', 'values' and 'scores' should agree; "
+					+ "elements.size() = " + keys.size() + ", values.size() = " + values.size() +  ", scores.length = " + scores.length);
+		}
+		isAllAdded = new ParallelTrieBuilder<V>(this, keys, values, scores).build(forkJoinPool);
+	}
+	
 	/**
 	 * <pre>
 	 * Words that contain one or more unsupported chars are automatically not added to a trie.
@@ -89,17 +172,43 @@ abstract class AbstractTrie<V>  {
 	 * @param length : the array length
 	 * @return a int array in which all elements are 1
 	 */
-	private static int[] ones(int length){
+	static int[] ones(int length){
 		int[] ones = new int[length];
 		Arrays.fill(ones, 1);
 		return ones;
 	}
 	
+	/**
+	 * creates the TrieNode objects of this trie for TrieStorage.OBJECT_GRAPH
+	 * @param c : the char of the node
+	 * @param level : the level of the node
+	 * @return a new node
+	 */
+	TrieNode<V> newNode(char c, int level) {
+		return new TrieNode<V>(c, level);
+	}
+	
+	/**
+	 * @param key : a key
+	 * @return true if all chars of 'key' are supported by the alphabet of this trie
+	 */
+	protected final boolean isSupported(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			if (alphabet.indexOf(key.charAt(i)) == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * look up char indices
 	 * @param chars : the chars of a prefix or suffix, from .toCharArray()
-	 * @return indices of the chars according to CHAR_TO_INDEX_MAP  
+	 * @return indices of the chars according to the alphabet of this trie, or null if a char is not supported
+	 * @deprecated the tries no longer look up whole index arrays, but map each char by {@link #charToIndex(char)} while walking; 
+	 * kept only for subclasses that still call it
 	 */
+	@Deprecated
 	protected int[] lookupIndices(char[] chars) {
 		int[] result = new int[chars.length];
 		for (int i = 0; i < chars.length; i++) {
@@ -129,36 +238,146 @@ abstract class AbstractTrie<V>  {
 	}
 	
 	/**
-	 * inserts a key and its value, a key-value pair, into this trie.
+	 * releases the off-heap memory of a trie with TrieStorage.OFF_HEAP immediately, instead of when the trie is garbage collected; 
+	 * the trie and its nodes should not be used afterwards. It does nothing for other storages.
+	 */
+	public void close() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+	
+	/**
+	 * @return the storage backend of the nodes of this trie
+	 */
+	public TrieStorage getStorage() {
+		if (pool == null) {
+			return TrieStorage.OBJECT_GRAPH;
+		}
+		return pool instanceof OffHeapNodePool ? TrieStorage.OFF_HEAP : TrieStorage.NODE_POOL;
+	}
+	
+	/**
+	 * sets a key-value pair at a node of 'pool'
+	 * @param handle : handle of the node for the key
+	 * @param value : the value 
+	 * @param score : the score of the key value pair
+	 */
+	protected void putPooled(int handle, V value, int score) {
+		if (pool.isKeyValueNode(handle) == false){
+			size++;
+		}
+		pool.put(handle, value, score);
+	}
+	
+	/**
+	 * inserts a key and its value, a key-value pair, with score 1 into this trie; 
+	 * the value and score are replaced if the key exists
 	 * @param key : the key 
 	 * @param value : the value 
+	 * @return true if succesfully added, and false if the key contains unsupported characters
 	 */
-	protected void put(String key, V value) {
-		put(key, value, 1);
+	public boolean put(String key, V value) {
+		return put(key, value, 1);
+	}
+	
+	/**
+	 * inserts a key-value pair only if the key does not exist in this trie yet
+	 * @param key : the key 
+	 * @param value : the value 
+	 * @param score : the score of the key value pair
+	 * @return true if succesfully added, 
+	 * and false if the key exists or contains unsupported characters
+	 */
+	public boolean putIfAbsent(String key, V value, int score) {
+		if (getkeyValueNode(key) != null) {
+			return false;
+		}
+		return put(key, value, score);
+	}
+	
+	/**
+	 * removes a key and its value from this trie in O(key length); 
+	 * nodes which no longer lead to any key-value node are pruned, 
+	 * and only the indexes of the ancestors of the removed key are updated
+	 * @param key : the key 
+	 * @return the value of the removed key, or null if there is no such key
+	 */
+	public V remove(String key) {
+		TrieNode<V> node = getkeyValueNode(key);
+		if (node == null) {
+			return null;
+		}
+		V value = node.getValue();
+		size--;
+		modCount++;
+		if (pool != null) {
+			pool.remove(((PooledTrieNode<V>) node).handle);
+			return value;
+		}
+		node.isKeyValueNode = false;
+		node.value = null;
+		node.score = 0;
+		while (node.parent != null && !node.isKeyValueNode && node.numChildren == 0) {
+			TrieNode<V> parent = node.parent;
+			parent.removeChild(charToIndex(node.c));
+			node = parent;
+		}
+		for (TrieNode<V> n = node; n != null; n = n.parent) {
+			n.invalidateKeyValueNodes();
+		}
+		updateIndexes(node);
+		return value;
 	}
 
 	
 	/**
-	 * a fast way to convert char to index at the 'children' field of TrieNode
+	 * a fast way to convert char to index at the children of TrieNode
 	 * @param c : a char
-	 * @return index of c according to CHAR_TO_INDEX_MAP
+	 * @return index of c according to the alphabet of this trie
 	 */
 	protected final int charToIndex(char c) {
-		return c >= CHAR_TO_INDEX_MAP.length ? -1 : CHAR_TO_INDEX_MAP[c];
+		return alphabet.indexOf(c);
+	}
+	
+	/**
+	 * @return the supported chars of this trie
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
 	}
 	
 
 	
+	/**
+	 * see getNode(CharSequence)
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the node that is prefixed or suffixed with word
+	 */
+	public TrieNode<V> getNode(String word) {
+		return getNode((CharSequence) word);
+	}
+	
 	/**
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @return the node that is prefixed or suffixed with word; 
 	 * it may be a non-key-value node or a leaf node
 	 */
-	public TrieNode<V> getNode(String word) {
+	public TrieNode<V> getNode(CharSequence word) {
 		TrieNode<V> theNode = getNodeWithLongestCommonPart(word);
 		return (theNode != null && theNode.level == word.length()) ? theNode : null;
 	}
 	
+	/**
+	 * see getNode(CharSequence, int)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the node that is prefixed or suffixed with the substring of word
+	 */
+	public TrieNode<V> getNode(String word, int substringLength) {
+		return getNode((CharSequence) word, substringLength);
+	}
+	
 	/**
 	 * @param word : a word
 	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie;
@@ -166,7 +385,7 @@ abstract class AbstractTrie<V>  {
 	 * or suffixed with word.substring(word.length() - length, word.length()); 
 	 * it may be a key-value node or not a key-value node
 	 */
-	public TrieNode<V> getNode(String word, int substringLength) {
+	public TrieNode<V> getNode(CharSequence word, int substringLength) {
 		
 		TrieNode<V> theNode = getNodeWithLongestCommonPart(word, substringLength);
 		return (theNode != null && theNode.level == word.length()) ? theNode : null;
@@ -174,22 +393,50 @@ abstract class AbstractTrie<V>  {
 	
 	
 	/**
+	 * see getNodeWithLongestCommonPart(CharSequence)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @return either a key-value node or a non key-value node
 	 */
 	public TrieNode<V> getNodeWithLongestCommonPart(String word) {
+		return getNodeWithLongestCommonPart((CharSequence) word);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return either a key-value node or a non key-value node
+	 */
+	public TrieNode<V> getNodeWithLongestCommonPart(CharSequence word) {
 		return getNodeWithLongestCommonPart(word, word.length());
 	}
 	
 	
 	/**
+	 * see getKeyValueNodes(CharSequence)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie 
 	 * @return all key-value nodes prefixed or suffixed with this word 
 	 */
 	public List<TrieNode<V>> getKeyValueNodes(String word) {
+		return getKeyValueNodes((CharSequence) word);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie 
+	 * @return all key-value nodes prefixed or suffixed with this word 
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word) {
 		return getKeyValueNodes(word, word.length());
 	}
 	
+	/**
+	 * see getKeyValueNodes(CharSequence, int)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the key-value nodes with level &gt;= substringLength  
+	 */
+	protected List<TrieNode<V>> getKeyValueNodes(String word, int substringLength){
+		return getKeyValueNodes((CharSequence) word, substringLength);
+	}
+	
 	/**
 	 * Equivalent to getKeyValueNodes(word.substring(0, maxLength)) for PrefixTrie,
 	 * and equivalent to getKeyValueNodes(word.substring(word.length() - maxLength)) for SuffixTrie
@@ -198,24 +445,53 @@ abstract class AbstractTrie<V>  {
 	 * for example, if word is "abcde" and substringLength is 3, then it's "abc" for PrefixTrie and "cde" for SuffixTrie
 	 * @return the key-value nodes with level &gt;= substringLength  
 	 */
-	protected List<TrieNode<V>> getKeyValueNodes(String word, int substringLength){
-		TrieNode<V> tempSubtreeRoot = getNodeWithLongestCommonPart(word, substringLength);
-		if (tempSubtreeRoot.level < substringLength){
+	protected List<TrieNode<V>> getKeyValueNodes(CharSequence word, int substringLength){
+		return keyValueNodesOf(getNodeWithLongestCommonPart(word, substringLength), substringLength);
+	}
+	
+	/**
+	 * @param tempSubtreeRoot : the node with the longest common part with a word
+	 * @param length : the length of the word
+	 * @return the key-value nodes of the sub-tree of 'tempSubtreeRoot' if it is at level 'length', and an empty list otherwise
+	 */
+	List<TrieNode<V>> keyValueNodesOf(TrieNode<V> tempSubtreeRoot, int length) {
+		if (tempSubtreeRoot.level < length){
 			return Collections.emptyList();
 		}
-		return (tempSubtreeRoot == null) ? null : tempSubtreeRoot.getKeyValueNodes();
+		return tempSubtreeRoot.getKeyValueNodes();
 	}
 	
 	
 	/**
+	 * see getKeyValueNodes(CharSequence, Function)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @param condition : for selecting key-value nodes that matches this condition
 	 * @return all key-value nodes that match 'condition'
 	 */
 	public List<TrieNode<V>> getKeyValueNodes(String word, Function<TrieNode<V>, Boolean> condition){
+		return getKeyValueNodes((CharSequence) word, condition);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param condition : for selecting key-value nodes that matches this condition
+	 * @return all key-value nodes that match 'condition'
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word, Function<TrieNode<V>, Boolean> condition){
 		return getKeyValueNodes(word, word.length(), condition);
 	}
 	
+	/**
+	 * see getKeyValueNodes(CharSequence, int, Function)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param condition : for selecting key-value nodes that matches this condition
+	 * @return the matched key-value nodes with level &gt;= substringLength
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(String word, int substringLength, Function<TrieNode<V>, Boolean> condition){
+		return getKeyValueNodes((CharSequence) word, substringLength, condition);
+	}
+	
 	/**
 	 * @param word : a word
 	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie;
@@ -223,7 +499,7 @@ abstract class AbstractTrie<V>  {
 	 * @param condition : for selecting key-value nodes that matches this condition
 	 * @return the matched key-value nodes with level &gt;= substringLength
 	 */
-	public List<TrieNode<V>> getKeyValueNodes(String word, int substringLength, Function<TrieNode<V>, Boolean> condition){
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word, int substringLength, Function<TrieNode<V>, Boolean> condition){
 		TrieNode<V> tempSubtreeRoot = getNodeWithLongestCommonPart(word, substringLength);
 		if (tempSubtreeRoot.level < substringLength){
 			return Collections.emptyList();
@@ -232,12 +508,21 @@ abstract class AbstractTrie<V>  {
 	}
 	
 	/**
+	 * see getkeyValueNode(CharSequence)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @return the key-value node for the exact word, or null if it does not exist
 	 */
 	public TrieNode<V> getkeyValueNode(String word){
+		return getkeyValueNode((CharSequence) word);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the key-value node for the exact word, or null if it does not exist
+	 */
+	public TrieNode<V> getkeyValueNode(CharSequence word){
 		TrieNode<V> theNode = getNodeWithLongestCommonPart(word);
-		return (theNode.isKeyValueNode && theNode.level == word.length()) ? theNode : null;
+		return (theNode.isKeyValueNode() && theNode.level == word.length()) ? theNode : null;
 	}
 	
 	
@@ -260,15 +545,34 @@ abstract class AbstractTrie<V>  {
 	
 	
 	/**
-	 * see getBestKeyValueNode(word, length)
+	 * see getBestKeyValueNode(CharSequence)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @return the highest scored key-value node
 	 */
 	public TrieNode<V> getBestKeyValueNode(String word){
+		return getBestKeyValueNode((CharSequence) word);
+	}
+	
+	/**
+	 * see getBestKeyValueNode(word, length)
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the highest scored key-value node
+	 */
+	public TrieNode<V> getBestKeyValueNode(CharSequence word){
 		return getBestKeyValueNode(word, word.length());
 	}
 	
 
+	/**
+	 * see getBestKeyValueNode(CharSequence, int)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the key-value node with the highest score among key-value nodes with level &gt;= substringLength 
+	 */
+	protected TrieNode<V> getBestKeyValueNode(String word, int substringLength) {
+		return getBestKeyValueNode((CharSequence) word, substringLength);
+	}
+	
 	/**
 	 * 
 	 * Equivalent to getBestKeyValueNode(word.substring(0, maxLength)) for PrefixTrie,
@@ -280,11 +584,36 @@ abstract class AbstractTrie<V>  {
 	 * @return 
 	 * the key-value node with the highest score among key-value nodes with level &gt;= substringLength 
 	 */
-	protected TrieNode<V> getBestKeyValueNode(String word, int substringLength) {
-		return getBestKeyValueNode(word, substringLength, (a, b) -> (a.score - b.score));
+	protected TrieNode<V> getBestKeyValueNode(CharSequence word, int substringLength) {
+		return bestKeyValueNodeOf(getNodeWithLongestCommonPart(word, substringLength), substringLength);
+	}
+	
+	/**
+	 * @param tempSubtreeRoot : the node with the longest common part with a word
+	 * @param length : the length of the word
+	 * @return the highest scored key-value node of the sub-tree of 'tempSubtreeRoot' if it is at level 'length', and null otherwise
+	 */
+	TrieNode<V> bestKeyValueNodeOf(TrieNode<V> tempSubtreeRoot, int length) {
+		if (tempSubtreeRoot.level < length){
+			return null;
+		}
+		if (numIndexedBestKeyValueNodes > 0) {
+			return tempSubtreeRoot.bestKeyValueNodes.length == 0 ? null : tempSubtreeRoot.bestKeyValueNodes[0];
+		}
+		return tempSubtreeRoot.getBestKeyValueNode();
 	}
 
 
+	/**
+	 * see getBestKeyValueNode(CharSequence, Comparator)
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param comparator : a normal comparator
+	 * @return the best key-value node with level &gt;= word.length();  
+	 */
+	public TrieNode<V> getBestKeyValueNode(String word, Comparator<TrieNode<V>> comparator) {
+		return getBestKeyValueNode((CharSequence) word, comparator);
+	}
+	
 	/**
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @param comparator : a normal comparator
@@ -295,11 +624,22 @@ abstract class AbstractTrie<V>  {
 	 * </pre>
 	 * @return the best key-value node with level &gt;= word.length();  
 	 */
-	public TrieNode<V> getBestKeyValueNode(String word, Comparator<TrieNode<V>> comparator) {
+	public TrieNode<V> getBestKeyValueNode(CharSequence word, Comparator<TrieNode<V>> comparator) {
 		return getBestKeyValueNode(word, word.length(), comparator);
 	}
 	
 	
+	/**
+	 * see getBestKeyValueNode(CharSequence, int, Comparator)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param comparator : comparator for selecting the best key-value node 
+	 * @return the best key-value node with level &gt;= substringLength
+	 */
+	protected TrieNode<V> getBestKeyValueNode(String word, int substringLength, Comparator<TrieNode<V>> comparator) {
+		return getBestKeyValueNode((CharSequence) word, substringLength, comparator);
+	}
+	
 	/**
 	 * Similar to getBestKeyValueNode, with TrieNode comparator 'comparator'
 	 * @param word : a word
@@ -308,7 +648,7 @@ abstract class AbstractTrie<V>  {
 	 * @param comparator : comparator for selecting the best key-value node 
 	 * @return the best key-value node with level &gt;= substringLength
 	 */
-	protected TrieNode<V> getBestKeyValueNode(String word, int substringLength, Comparator<TrieNode<V>> comparator) {
+	protected TrieNode<V> getBestKeyValueNode(CharSequence word, int substringLength, Comparator<TrieNode<V>> comparator) {
 		TrieNode<V> tempSubtreeRoot = getNodeWithLongestCommonPart(word, substringLength);
 		if (tempSubtreeRoot.level < substringLength){
 			return null;
@@ -319,16 +659,89 @@ abstract class AbstractTrie<V>  {
 	//////////////////////////////////////////////////////////
 	
 	/**
+	 * <pre>
+	 * Indexes the top 'maxNumTopKeyValueNodes' key-value nodes by score at every node, 
+	 * so that getBestKeyValueNodes(word, k) with k &lt;= maxNumTopKeyValueNodes is a walk of 'word' plus an array copy, 
+	 * and getBestKeyValueNode(word) is a walk of 'word'.
+	 * getBestKeyValueNodes(word, k) with k &gt; maxNumTopKeyValueNodes, and queries with comparators, do not use the index.
+	 * The index is kept up to date by later insertions; 
+	 * it takes up to maxNumTopKeyValueNodes references per node, and nodes in single-child chains share them.
+	 * It is only supported by TrieStorage.OBJECT_GRAPH. 
+	 * </pre>
+	 * @param maxNumTopKeyValueNodes : the maximum number of top key-value nodes to index at each node 
+	 */
+	public void indexBestKeyValueNodes(int maxNumTopKeyValueNodes) {
+		if (maxNumTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: maxNumTopKeyValueNodes (" + maxNumTopKeyValueNodes + ") should be positive "); 
+		} else if (pool != null) {
+			throw new UnsupportedOperationException("UnsupportedOperationException: indexBestKeyValueNodes is not supported by TrieStorage.NODE_POOL and TrieStorage.OFF_HEAP.");
+		}
+		root.indexBestKeyValueNodes(maxNumTopKeyValueNodes);
+		numIndexedBestKeyValueNodes = maxNumTopKeyValueNodes;
+	}
+	
+	/**
+	 * updates the indexes of the nodes on the path of a key-value node which is inserted or updated
+	 * @param node : the key-value node
+	 */
+	void updateIndexes(TrieNode<V> node) {
+		for (TrieNode<V> n = node; n != null && n.updateMaxScore(); n = n.parent) {
+		}
+		if (numIndexedBestKeyValueNodes > 0) {
+			for (TrieNode<V> n = node; n != null; n = n.parent) {
+				n.updateBestKeyValueNodes(numIndexedBestKeyValueNodes);
+			}
+		}
+	}
+	
+	/**
+	 * see getBestKeyValueNodes(CharSequence, int)
 	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
 	 * @param numTopKeyValueNodes : number of top key-value nodes
 	 * @return best key-value nodes
 	 */
 	public List<TrieNode<V>> getBestKeyValueNodes(String word, int numTopKeyValueNodes) {
-		return getBestKeyValueNodes(word, word.length(), numTopKeyValueNodes, (a, b) -> (a.score - b.score));
+		return getBestKeyValueNodes((CharSequence) word, numTopKeyValueNodes);
 	}
 	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return best key-value nodes
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes) {
+		return bestKeyValueNodesOf(getNodeWithLongestCommonPart(word, word.length()), word.length(), numTopKeyValueNodes);
+	}
 	
+	/**
+	 * @param tempSubtreeRoot : the node with the longest common part with a word
+	 * @param length : the length of the word
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes of the sub-tree of 'tempSubtreeRoot' if it is at level 'length', and an empty list otherwise
+	 */
+	List<TrieNode<V>> bestKeyValueNodesOf(TrieNode<V> tempSubtreeRoot, int length, int numTopKeyValueNodes) {
+		if (tempSubtreeRoot.level < length){
+			return Collections.emptyList();
+		}
+		if (numTopKeyValueNodes > 0 && numTopKeyValueNodes <= numIndexedBestKeyValueNodes) {
+			return tempSubtreeRoot.copyBestKeyValueNodes(numTopKeyValueNodes);
+		}
+		return tempSubtreeRoot.getBestKeyValueNodes(numTopKeyValueNodes);
+	}
+	
+	
+	/**
+	 * see getBestKeyValueNodes(CharSequence, int, Comparator)
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @param comparator : a comparator for comparison of key-value nodes
+	 * @return the best key-value nodes according to comparator 'comparator'
+	 */
 	public List<TrieNode<V>> getBestKeyValueNodes(String word, int numTopKeyValueNodes, Comparator<TrieNode<V>> comparator) {
+		return getBestKeyValueNodes((CharSequence) word, numTopKeyValueNodes, comparator);
+	}
+	
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes, Comparator<TrieNode<V>> comparator) {
 		return getBestKeyValueNodes(word, word.length(), numTopKeyValueNodes, comparator);
 	}
 	
@@ -341,7 +754,7 @@ abstract class AbstractTrie<V>  {
 	 * @param comparator : a comparator for comparison of key-value nodes
 	 * @return the best key-value nodes with level &gt;= substringLength according to comparator 'comparator'
 	 */
-	private List<TrieNode<V>> getBestKeyValueNodes(String word, int substringLength, int numTopKeyValueNodes, Comparator<TrieNode<V>> comparator) {
+	private List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int substringLength, int numTopKeyValueNodes, Comparator<TrieNode<V>> comparator) {
 		TrieNode<V> tempSubtreeRoot = getNodeWithLongestCommonPart(word, substringLength);
 		if (tempSubtreeRoot.level < substringLength){
 			return Collections.emptyList();
@@ -351,16 +764,485 @@ abstract class AbstractTrie<V>  {
 	
 	
 	
+	//////////////////////////////////////////////////////////
+	// fuzzy queries with a bounded edit distance
+	
+	/**
+	 * <pre>
+	 * a fuzzy query for mistyped prefixes (suffixes for SuffixTrie): the distance of a key-value node is 
+	 * the minimum Levenshtein distance between 'word' and the keys of the node and its ancestors, 
+	 * and the nodes with distances &lt;= maxEdits are ranked by distance and then by score.
+	 * 
+	 * The trie is traversed depth-first with one row of the Levenshtein matrix per level, 
+	 * and a branch is pruned once the minimum of its row is no smaller than the distance already matched on its path, 
+	 * as the minimums of the rows of descendants are no smaller. The sub-trees matched with each distance are then 
+	 * searched best-first along the maximum scores of sub-trees, from distance 0 until there are 'numTopKeyValueNodes' nodes.
+	 * 
+	 * For example, for "abdc" and maxEdits 1, both "abc" and "abcde" have distance 1, as "abc" is "abdc" without the 'd'.
+	 * </pre>
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie, which may be mistyped
+	 * @param maxEdits : the maximum number of insertions, deletions and substitutions of chars
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes, in ascending order of distances and then descending order of scores
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int maxEdits, int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive "); 
+		} else if (maxEdits < 0) {
+			throw new IllegalArgumentException("IllegalArgumentException: maxEdits (" + maxEdits + ") should not be negative ");
+		}
+		int length = word.length();
+		char[] pattern = new char[length];
+		for (int i = 0; i < length; i++) {
+			pattern[i] = isReversed() ? word.charAt(length - 1 - i) : word.charAt(i);
+		}
+		
+		// matches.get(d) are the roots of the sub-trees whose key-value nodes have distance d
+		List<List<TrieNode<V>>> matches = new ArrayList<List<TrieNode<V>>>(maxEdits + 1);
+		for (int d = 0; d <= maxEdits; d++) {
+			matches.add(new ArrayList<TrieNode<V>>());
+		}
+		// as rows[level][j] >= level - j, no path deeper than length + maxEdits + 1 is traversed
+		int[][] rows = new int[length + maxEdits + 2][length + 1];
+		for (int j = 0; j <= length; j++) {
+			rows[0][j] = j;
+		}
+		if (length <= maxEdits) {
+			matches.get(length).add(root);
+		}
+		collectFuzzyMatches(root, pattern, rows, Math.min(length, maxEdits + 1), matches);
+		
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(Math.min(numTopKeyValueNodes, 16));
+		// all nodes of smaller distances are in 'result' when the nodes of a distance are searched
+		HashSet<TrieNode<V>> excluded = new HashSet<TrieNode<V>>();
+		for (int d = 0; d <= maxEdits && result.size() < numTopKeyValueNodes; d++) {
+			int numResults = result.size();
+			PriorityQueue<TrieNode.Candidate<V>> queue = new PriorityQueue<TrieNode.Candidate<V>>();
+			// the matched sub-trees of a distance are disjoint, and collected in depth-first order
+			List<TrieNode<V>> roots = matches.get(d);
+			for (int i = 0; i < roots.size(); i++) {
+				queue.add(new TrieNode.Candidate<V>(roots.get(i), roots.get(i).getMaxScore(), false, null, i));
+			}
+			TrieNode.addBestKeyValueNodes(queue, numTopKeyValueNodes, result, excluded);
+			excluded.addAll(result.subList(numResults, result.size()));
+		}
+		return result;
+	}
+	
+	/**
+	 * adds the descendants of 'node' matched with smaller distances than 'distance' to 'matches'
+	 * @param node : a node
+	 * @param pattern : the chars of the word in the order of the trie
+	 * @param rows : rows[level] is the Levenshtein row of the node at 'level' on the current path, 
+	 * where rows[level][j] is the distance between its key and pattern[0, j); rows are reused among paths
+	 * @param distance : the smallest distance matched by 'node' or its ancestors, or maxEdits + 1 if none is matched
+	 * @param matches : the roots of matched sub-trees by distances
+	 */
+	private void collectFuzzyMatches(TrieNode<V> node, char[] pattern, int[][] rows, int distance, List<List<TrieNode<V>>> matches) {
+		int length = pattern.length;
+		int[] row = rows[node.level];
+		int[] next = rows[node.level + 1];
+		for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+			TrieNode<V> child = node.getChildAt(i);
+			char c = child.c;
+			next[0] = row[0] + 1;
+			int min = next[0];
+			for (int j = 1; j <= length; j++) {
+				int substitution = row[j - 1] + (pattern[j - 1] == c ? 0 : 1);
+				next[j] = Math.min(substitution, Math.min(row[j], next[j - 1]) + 1);
+				min = Math.min(min, next[j]);
+			}
+			int childDistance = distance;
+			if (next[length] < distance) {
+				matches.get(next[length]).add(child);
+				childDistance = next[length];
+			}
+			if (min < childDistance) {
+				collectFuzzyMatches(child, pattern, rows, childDistance, matches);
+			}
+		}
+	}
+	
+	
+	
+	//////////////////////////////////////////////////////////
+	// wildcard queries
+	
+	/**
+	 * <pre>
+	 * the key-value nodes whose keys match a wildcard pattern, where '?' matches any char and '*' matches any chars, 
+	 * and the other chars match themselves; e.g. "c?t" matches "cat" and "cut", and "c*t" also matches "ct" and "carrot".
+	 * 
+	 * The trie is walked in step with the positions of the pattern that the key of each node can reach, 
+	 * and a branch is pruned as soon as no position is reachable. 
+	 * Where the only reachable position is a plain char, the walk descends to one child instead of trying all children.
+	 * A pattern starting with '*' visits most nodes of a PrefixTrie, and is matched faster by a SuffixTrie of the same keys, 
+	 * which walks the pattern from its end.
+	 * </pre>
+	 * @param pattern : a wildcard pattern over whole keys
+	 * @return the key-value nodes whose keys match 'pattern', in the order of getKeyValueNodes("")
+	 */
+	public List<TrieNode<V>> match(String pattern) {
+		int length = pattern.length();
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			// a reversed wildcard pattern matches the reversed keys
+			chars[i] = isReversed() ? pattern.charAt(length - 1 - i) : pattern.charAt(i);
+		}
+		boolean[] positions = new boolean[length + 1];
+		positions[0] = true;
+		skipStars(chars, positions);
+		ArrayList<boolean[]> rows = new ArrayList<boolean[]>();
+		rows.add(positions);
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+		collectWildcardMatches(root, chars, rows, result);
+		return result;
+	}
+	
+	/**
+	 * makes the positions after '*'s reachable from the positions before them, as a '*' can match no chars
+	 * @param chars : the chars of a wildcard pattern
+	 * @param positions : positions[p] is whether position p of 'chars' is reachable
+	 */
+	private static void skipStars(char[] chars, boolean[] positions) {
+		for (int p = 0; p < chars.length; p++) {
+			if (positions[p] && chars[p] == '*') {
+				positions[p + 1] = true;
+			}
+		}
+	}
+	
+	/**
+	 * adds the key-value nodes matched by the wildcard pattern in the sub-tree of 'node' to 'result'
+	 * @param node : a node
+	 * @param chars : the chars of the pattern in the order of the trie
+	 * @param rows : rows.get(level) are the positions reachable by the key of the node at 'level' on the current path
+	 * @param result : the list to add key-value nodes to
+	 */
+	private void collectWildcardMatches(TrieNode<V> node, char[] chars, List<boolean[]> rows, List<TrieNode<V>> result) {
+		int length = chars.length;
+		boolean[] positions = rows.get(node.level);
+		if (positions[length] && node.isKeyValueNode()) {
+			result.add(node);
+		}
+		if (rows.size() == node.level + 1) {
+			rows.add(new boolean[length + 1]);
+		}
+		boolean[] next = rows.get(node.level + 1);
+		
+		int numPositions = 0, plain = -1;
+		for (int p = 0; p < length; p++) {
+			if (positions[p]) {
+				numPositions++;
+				plain = (chars[p] == '?' || chars[p] == '*') ? -1 : p;
+			}
+		}
+		if (numPositions == 1 && plain >= 0) {
+			int index = charToIndex(chars[plain]);
+			TrieNode<V> child = index >= 0 ? node.getChild(index) : null;
+			if (child != null) {
+				Arrays.fill(next, false);
+				next[plain + 1] = true;
+				skipStars(chars, next);
+				collectWildcardMatches(child, chars, rows, result);
+			}
+			return;
+		}
+		for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+			TrieNode<V> child = node.getChildAt(i);
+			char c = child.c;
+			Arrays.fill(next, false);
+			boolean isAlive = false;
+			for (int p = 0; p < length; p++) {
+				if (positions[p]) {
+					if (chars[p] == '*') {
+						next[p] = true;
+						isAlive = true;
+					} else if (chars[p] == '?' || chars[p] == c) {
+						next[p + 1] = true;
+						isAlive = true;
+					}
+				}
+			}
+			if (isAlive) {
+				skipStars(chars, next);
+				collectWildcardMatches(child, chars, rows, result);
+			}
+		}
+	}
+	
+	
+	
+	//////////////////////////////////////////////////////////
+	// batched queries
+	
+	/**
+	 * the minimum number of words of a batch which is split across a ForkJoinPool
+	 */
+	private static final int MIN_BATCH_SIZE_PER_TASK = 256;
+	
+	/**
+	 * equivalent to calling getBestKeyValueNodes(word, numTopKeyValueNodes) for each of 'words', 
+	 * but the words are sorted first, so that each word only walks the part after its common prefix with the previous word; 
+	 * equal words get the same result list
+	 * @param words : prefixes for PrefixTrie and suffixes for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes for each word
+	 * @return the best key-value nodes of each word, in the order of 'words'
+	 */
+	public List<List<TrieNode<V>>> getBestKeyValueNodes(List<? extends CharSequence> words, int numTopKeyValueNodes) {
+		return getBestKeyValueNodes(words, numTopKeyValueNodes, null);
+	}
+	
+	/**
+	 * as getBestKeyValueNodes(words, numTopKeyValueNodes), with the sorted words split into contiguous ranges 
+	 * which are queried in parallel in 'forkJoinPool'
+	 * @param words : prefixes for PrefixTrie and suffixes for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes for each word
+	 * @param forkJoinPool : the pool for querying ranges of the sorted words, or null for querying in the calling thread
+	 * @return the best key-value nodes of each word, in the order of 'words'
+	 */
+	public List<List<TrieNode<V>>> getBestKeyValueNodes(List<? extends CharSequence> words, int numTopKeyValueNodes, ForkJoinPool forkJoinPool) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive "); 
+		}
+		int numWords = words.size();
+		// the chars of each word in the order they are walked
+		char[][] walks = new char[numWords][];
+		Integer[] order = new Integer[numWords];
+		for (int i = 0; i < numWords; i++) {
+			CharSequence word = words.get(i);
+			int length = word.length();
+			char[] walk = new char[length];
+			for (int j = 0; j < length; j++) {
+				walk[j] = isReversed() ? word.charAt(length - 1 - j) : word.charAt(j);
+			}
+			walks[i] = walk;
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> compareWalks(walks[a], walks[b]));
+		
+		List<List<TrieNode<V>>> results = new ArrayList<>(Collections.<List<TrieNode<V>>>nCopies(numWords, null));
+		if (forkJoinPool == null || numWords < 2 * MIN_BATCH_SIZE_PER_TASK) {
+			queryBatch(walks, order, 0, numWords, numTopKeyValueNodes, results);
+		} else {
+			forkJoinPool.invoke(new BatchTask(walks, order, 0, numWords, numTopKeyValueNodes, results));
+		}
+		return results;
+	}
+	
+	/**
+	 * @return the lexicographic order of two arrays of chars
+	 */
+	private static int compareWalks(char[] a, char[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			if (a[i] != b[i]) {
+				return a[i] - b[i];
+			}
+		}
+		return a.length - b.length;
+	}
+	
+	/**
+	 * queries the words order[from, to), keeping the nodes on the path of the previous word for the next one
+	 * @param walks : the chars of the words in the order they are walked
+	 * @param order : the indexes of the words in lexicographic order of 'walks'
+	 * @param from : the first position in 'order' to query
+	 * @param to : the position after the last position in 'order' to query
+	 * @param numTopKeyValueNodes : number of top key-value nodes for each word
+	 * @param results : the results by the indexes of the words
+	 */
+	private void queryBatch(char[][] walks, Integer[] order, int from, int to, int numTopKeyValueNodes, List<List<TrieNode<V>>> results) {
+		TrieNode<V>[] path = TrieNode.newNodeArray(16);
+		path[0] = root;
+		// path[0, depth] are the nodes of the longest prefix of 'previous' in this trie
+		int depth = 0;
+		char[] previous = null;
+		for (int i = from; i < to; i++) {
+			char[] walk = walks[order[i]];
+			if (previous != null && Arrays.equals(walk, previous)) {
+				results.set(order[i], results.get(order[i - 1]));
+				continue;
+			}
+			int level = 0;
+			if (previous != null) {
+				int maxLevel = Math.min(depth, walk.length);
+				while (level < maxLevel && walk[level] == previous[level]) {
+					level++;
+				}
+			}
+			TrieNode<V> node = path[level];
+			while (level < walk.length) {
+				int index = charToIndex(walk[level]);
+				TrieNode<V> next = index >= 0 ? node.getChild(index) : null;
+				if (next == null) {
+					break;
+				}
+				node = next;
+				level++;
+				if (level == path.length) {
+					path = Arrays.copyOf(path, path.length * 2);
+				}
+				path[level] = node;
+			}
+			depth = level;
+			results.set(order[i], bestKeyValueNodesOf(node, walk.length, numTopKeyValueNodes));
+			previous = walk;
+		}
+	}
+	
+	/**
+	 * a task which queries a range of the sorted words, split in halves until it is small enough
+	 */
+	private final class BatchTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final char[][] walks;
+		private final Integer[] order;
+		private final int from;
+		private final int to;
+		private final int numTopKeyValueNodes;
+		private final List<List<TrieNode<V>>> results;
+		
+		BatchTask(char[][] walks, Integer[] order, int from, int to, int numTopKeyValueNodes, List<List<TrieNode<V>>> results) {
+			this.walks = walks;
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.numTopKeyValueNodes = numTopKeyValueNodes;
+			this.results = results;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from < 2 * MIN_BATCH_SIZE_PER_TASK) {
+				queryBatch(walks, order, from, to, numTopKeyValueNodes, results);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchTask(walks, order, from, middle, numTopKeyValueNodes, results), 
+					new BatchTask(walks, order, middle, to, numTopKeyValueNodes, results));
+		}
+	}
+	
+	
+	
+	//////////////////////////////////////////////////////////
+	// queries on a range of a char array, such as a reusable input buffer, without allocating a String
+	
 	/**
-	 * inserts a key and its value, a key-value pair, with score 'score', into this trie.
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the word
+	 */
+	static void checkRange(char[] buf, int off, int len) {
+		if (off < 0 || len < 0 || off > buf.length - len) {
+			throw new IllegalArgumentException("IllegalArgumentException: the range [off, off + len) = [" + off + ", " + (off + len) 
+					+ ") should be within [0, buf.length) = [0, " + buf.length + ").");
+		}
+	}
+	
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf', prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param len : the length of the word
+	 * @return the node that is prefixed or suffixed with the word, or null if there is no such node
+	 */
+	public TrieNode<V> getNode(char[] buf, int off, int len) {
+		TrieNode<V> theNode = getNodeWithLongestCommonPart(buf, off, len);
+		return theNode.level == len ? theNode : null;
+	}
+	
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf', prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param len : the length of the word
+	 * @return the key-value node for the exact word, or null if it does not exist
+	 */
+	public TrieNode<V> getkeyValueNode(char[] buf, int off, int len) {
+		TrieNode<V> theNode = getNodeWithLongestCommonPart(buf, off, len);
+		return (theNode.isKeyValueNode() && theNode.level == len) ? theNode : null;
+	}
+	
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf', prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param len : the length of the word
+	 * @return all key-value nodes prefixed or suffixed with the word
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(char[] buf, int off, int len) {
+		return keyValueNodesOf(getNodeWithLongestCommonPart(buf, off, len), len);
+	}
+	
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf', prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param len : the length of the word
+	 * @return the highest scored key-value node prefixed or suffixed with the word, or null if there is no such node
+	 */
+	public TrieNode<V> getBestKeyValueNode(char[] buf, int off, int len) {
+		return bestKeyValueNodeOf(getNodeWithLongestCommonPart(buf, off, len), len);
+	}
+	
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf', prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param len : the length of the word
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return best key-value nodes prefixed or suffixed with the word
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(char[] buf, int off, int len, int numTopKeyValueNodes) {
+		return bestKeyValueNodesOf(getNodeWithLongestCommonPart(buf, off, len), len, numTopKeyValueNodes);
+	}
+	
+	/**
+	 * indexes the key-value nodes of all nodes in one depth-first pass, 
+	 * so that later getKeyValueNodes queries do not index sub-trees lazily; 
+	 * the maximum scores for best-first searches are always kept up to date and need no warming up
+	 */
+	public void warmUp() {
+		if (pool == null) {
+			root.getKeyValueNodes();
+		}
+	}
+	
+	/**
+	 * compiles this trie into a read-only double-array trie, 
+	 * which supports the same queries with two array reads per char and a fraction of the memory of the TrieNode graph
+	 * @return a DoubleArrayTrie with the keys, values and scores of this trie
+	 */
+	public DoubleArrayTrie<V> freeze() {
+		return new DoubleArrayTrie<V>(this, isReversed());
+	}
+	
+	/**
+	 * @return true if keys are walked from their last chars, as for SuffixTrie
+	 */
+	abstract boolean isReversed();
+	
+	/**
+	 * inserts a key and its value, a key-value pair, with score 'score', into this trie; 
+	 * the value and score are replaced if the key exists. 
+	 * Only the indexes of the ancestors of the key are invalidated or updated, so the cost is O(key length)
 	 * @param key : the key 
 	 * @param value : the value 
 	 * @param score : the score of the key value pair
 	 * @return true if succesfully added, and false if the word contains unsupported characters
 	 */
-	protected abstract boolean put(String key, V value, int score);
+	public abstract boolean put(String key, V value, int score);
 	
 	
+	/**
+	 * see getNodeWithLongestCommonPart(CharSequence, int)
+	 * @param word : a word
+	 * @param substringLength : substring length of 'word' for prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the node that has the longest common prefix or suffix with the substring of word
+	 */
+	protected TrieNode<V> getNodeWithLongestCommonPart(String word, int substringLength) {
+		return getNodeWithLongestCommonPart((CharSequence) word, substringLength);
+	}
+	
 	/**
 	 * See implementation in PrefixTrie.java or SuffixTrie.java 
 	 * @param word : a word
@@ -368,7 +1250,16 @@ abstract class AbstractTrie<V>  {
 	 * for example, if word is "abcde" and substringLength is 3, then it's "abc" for PrefixTrie and "cde" for SuffixTrie
 	 * @return the node that has the longest common suffix with word
 	 */
-	protected abstract TrieNode<V> getNodeWithLongestCommonPart(String word, int substringLength);
+	protected abstract TrieNode<V> getNodeWithLongestCommonPart(CharSequence word, int substringLength);
+	
+	/**
+	 * See implementation in PrefixTrie.java or SuffixTrie.java 
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the word
+	 * @return the node that has the longest common prefix or suffix with the word
+	 */
+	public abstract TrieNode<V> getNodeWithLongestCommonPart(char[] buf, int off, int len);
 	
 	
 	
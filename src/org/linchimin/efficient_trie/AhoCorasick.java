@@ -0,0 +1,189 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * an Aho-Corasick automaton compiled from a PrefixTrie with PrefixTrie.compileAhoCorasick(),
+ * which reports every occurrence of every key in a text in one pass over the text.
+ *
+ * The goto function is the DoubleArrayTrie of the keys, with the alphabet of the source trie;
+ * fail[s] is the state of the longest proper suffix of the key of state s which is also a node,
+ * and output[s] is the nearest key-value state on the chain of failure links of s, or -1 if there is none.
+ * The automaton is a snapshot of the source trie, and later updates of the trie are not reflected.
+ *
+ * For example:
+ * PrefixTrie&lt;Integer&gt; trie = new PrefixTrie&lt;Integer&gt;(new String[] {"he", "she", "his", "hers"}, new Integer[] {1, 2, 3, 4});
+ * trie.compileAhoCorasick().scan("ushers", (begin, end, value) -&gt; ...); // "she" at [1, 4), "he" at [2, 4) and "hers" at [2, 6)
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class AhoCorasick<V> {
+
+	/**
+	 * a handler of the occurrences of keys reported by scan
+	 */
+	@FunctionalInterface
+	public interface MatchHandler<V> {
+
+		/**
+		 * @param begin : the offset of the first char of the occurrence
+		 * @param end : the offset after the last char of the occurrence
+		 * @param value : the value of the key
+		 */
+		void onMatch(int begin, int end, V value);
+	}
+
+	private final DoubleArrayTrie<V> trie;
+
+	/**
+	 * the failure links of the states
+	 */
+	private final int[] fail;
+
+	/**
+	 * the output links of the states
+	 */
+	private final int[] output;
+
+	/**
+	 * the levels of the states, which are the lengths of their keys
+	 */
+	private final int[] levels;
+
+	/**
+	 * @param trie : a DoubleArrayTrie of a PrefixTrie
+	 */
+	AhoCorasick(DoubleArrayTrie<V> trie) {
+		if (trie.reversed) {
+			throw new IllegalArgumentException("IllegalArgumentException: an Aho-Corasick automaton is compiled from a PrefixTrie, not a SuffixTrie.");
+		}
+		this.trie = trie;
+		int numStates = trie.check.length;
+		fail = new int[numStates];
+		output = new int[numStates];
+		levels = new int[numStates];
+		Arrays.fill(output, -1);
+
+		// the children of each state, grouped by their parents in ascending order of states, and so of child indexes
+		int[] firstChildren = new int[numStates + 1];
+		for (int t = 1; t < numStates; t++) {
+			if (trie.check[t] >= 0) {
+				firstChildren[trie.check[t] + 1]++;
+			}
+		}
+		for (int s = 0; s < numStates; s++) {
+			firstChildren[s + 1] += firstChildren[s];
+		}
+		int[] children = new int[firstChildren[numStates]];
+		int[] next = Arrays.copyOf(firstChildren, numStates);
+		for (int t = 1; t < numStates; t++) {
+			if (trie.check[t] >= 0) {
+				children[next[trie.check[t]]++] = t;
+			}
+		}
+
+		// breadth-first, so that the failure links of shallower states are set first
+		int[] queue = new int[children.length + 1];
+		int head = 0, tail = 0;
+		queue[tail++] = DoubleArrayTrie.ROOT;
+		while (head < tail) {
+			int s = queue[head++];
+			for (int i = firstChildren[s]; i < firstChildren[s + 1]; i++) {
+				int t = children[i];
+				int index = t - trie.base[s] - 1;
+				int f = DoubleArrayTrie.ROOT;
+				if (s != DoubleArrayTrie.ROOT) {
+					f = fail[s];
+					while (f != DoubleArrayTrie.ROOT && trie.transition(f, index) < 0) {
+						f = fail[f];
+					}
+					int ft = trie.transition(f, index);
+					f = ft < 0 ? DoubleArrayTrie.ROOT : ft;
+				}
+				fail[t] = f;
+				output[t] = (f != DoubleArrayTrie.ROOT && trie.isKeyValueState(f)) ? f : output[f];
+				levels[t] = levels[s] + 1;
+				queue[tail++] = t;
+			}
+		}
+	}
+
+	/**
+	 * @return number of keys of this automaton
+	 */
+	public int size() {
+		return trie.size();
+	}
+
+	/**
+	 * reports the occurrences of all keys in 'text', in ascending order of their ends,
+	 * and in descending order of their lengths for the same end; an empty key is not reported
+	 * @param text : a text
+	 * @param handler : the handler of the occurrences, with offsets in 'text'
+	 */
+	public void scan(CharSequence text, MatchHandler<V> handler) {
+		int state = DoubleArrayTrie.ROOT;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			state = step(state, text.charAt(i));
+			report(state, i + 1, handler);
+		}
+	}
+
+	/**
+	 * equivalent to scan(new String(buf, off, len), handler) without allocating the String,
+	 * except that the offsets of occurrences are offsets in 'buf'
+	 * @param buf : a char array
+	 * @param off : the offset of the text at 'buf'
+	 * @param len : the length of the text
+	 * @param handler : the handler of the occurrences, with offsets in 'buf'
+	 */
+	public void scan(char[] buf, int off, int len, MatchHandler<V> handler) {
+		AbstractTrie.checkRange(buf, off, len);
+		int state = DoubleArrayTrie.ROOT;
+		for (int i = off; i < off + len; i++) {
+			state = step(state, buf[i]);
+			report(state, i + 1, handler);
+		}
+	}
+
+	/**
+	 * @param state : the current state
+	 * @param c : the next char of the text
+	 * @return the state of the longest suffix of the text up to 'c' which is a node
+	 */
+	private int step(int state, char c) {
+		int index = trie.charToIndex(c);
+		if (index < 0) {
+			// no key contains an unsupported char
+			return DoubleArrayTrie.ROOT;
+		}
+		while (true) {
+			int t = trie.transition(state, index);
+			if (t >= 0) {
+				return t;
+			} else if (state == DoubleArrayTrie.ROOT) {
+				return DoubleArrayTrie.ROOT;
+			}
+			state = fail[state];
+		}
+	}
+
+	/**
+	 * reports the keys which are suffixes of the key of 'state'
+	 * @param state : the current state
+	 * @param end : the offset after the current char
+	 * @param handler : the handler of the occurrences
+	 */
+	@SuppressWarnings("unchecked")
+	private void report(int state, int end, MatchHandler<V> handler) {
+		int s = (state != DoubleArrayTrie.ROOT && trie.isKeyValueState(state)) ? state : output[state];
+		while (s >= 0) {
+			handler.onMatch(end - levels[s], end, (V) trie.values[trie.kvBegins[s]]);
+			s = output[s];
+		}
+	}
+}
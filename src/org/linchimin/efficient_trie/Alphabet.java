@@ -0,0 +1,203 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 
+ * an immutable set of the chars supported by a trie, which maps each char to a child index;
+ * every PrefixTrie or SuffixTrie has its own Alphabet, 
+ * so that tries with different chars can be constructed and queried concurrently. 
+ * 
+ * Chars are mapped to indices with a two-level page table, so that an alphabet with a few CJK chars 
+ * takes a few pages of 256 entries instead of a table as large as the largest char.
+ * 
+ * 1. Warning: keys that contain one or more unsupported chars are automatically not added to a trie;
+ * to check if all keys are added after trie construction, check trie.isAllAdded() to see if all characters are added. 
+ * 2. Minimize the number of supported chars for speed optimization, for example with Alphabet.of(keys). 
+ * 3. Alphabet.unicode() supports all keys, with supplementary code points as surrogate pairs. 
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public final class Alphabet {
+	
+	/**
+	 * the default characters
+	 */
+	private static final String DEFAULT_CHARS_STRING = "abcdefghijklmnopqrstuvwxyz0123456789";
+	
+	/**
+	 * the number of chars of a page of 'pages'
+	 */
+	private static final int PAGE_SIZE = 256;
+	
+	/**
+	 * the shared page of the chars that are not supported
+	 */
+	private static final char[] EMPTY_PAGE = new char[PAGE_SIZE];
+	
+	/**
+	 * the maximum size of an alphabet of explicit chars, whose indices + 1 fit in a char
+	 */
+	private static final int MAX_SIZE = Character.MAX_VALUE;
+	
+	private static final Alphabet UNICODE = new Alphabet(null);
+	
+	/**
+	 * the alphabet of tries constructed without an Alphabet; see TrieNode.setSupportedChars;
+	 * declared after EMPTY_PAGE, which the constructor uses during class initialization
+	 */
+	private static volatile Alphabet defaultAlphabet = of(DEFAULT_CHARS_STRING);
+	
+	/**
+	 * the supported chars; chars[i] is the char of index i; null for Alphabet.unicode()
+	 */
+	private final char[] chars;
+	
+	/**
+	 * pages[c &gt;&gt;&gt; 8][c &amp; 0xFF] - 1 is the index of char c, or -1 if c is not supported; null for Alphabet.unicode()
+	 */
+	private final char[][] pages;
+	
+	/**
+	 * @param chars : distinct chars, or null for all chars
+	 */
+	private Alphabet(char[] chars) {
+		this.chars = chars;
+		if (chars == null) {
+			this.pages = null;
+			return;
+		}
+		if (chars.length > MAX_SIZE) {
+			throw new IllegalArgumentException("IllegalArgumentException: an alphabet supports at most " + MAX_SIZE 
+					+ " explicit chars; use Alphabet.unicode() for all chars.");
+		}
+		char[][] pages = new char[(Character.MAX_VALUE + 1) / PAGE_SIZE][];
+		Arrays.fill(pages, EMPTY_PAGE);
+		for (int i = 0; i < chars.length; i++) {
+			int page = chars[i] / PAGE_SIZE;
+			if (pages[page] == EMPTY_PAGE) {
+				pages[page] = new char[PAGE_SIZE];
+			}
+			pages[page][chars[i] % PAGE_SIZE] = (char) (i + 1);
+		}
+		this.pages = pages;
+	}
+	
+	/**
+	 * @param charsString : like "abcdefghijklmnopqrstuvwxyz0123456789,.-_:'"; duplicated chars are ignored
+	 * @return an alphabet of the chars, indexed in the order of 'charsString'
+	 */
+	public static Alphabet of(String charsString) {
+		char[] chars = new char[charsString.length()];
+		int numChars = 0;
+		for (int i = 0; i < charsString.length(); i++) {
+			char c = charsString.charAt(i);
+			if (charsString.indexOf(c) == i) {
+				chars[numChars++] = c;
+			}
+		}
+		return new Alphabet(Arrays.copyOf(chars, numChars));
+	}
+	
+	/**
+	 * @param distinctChars : distinct chars, which are owned by the alphabet afterwards
+	 * @return an alphabet of the chars, indexed in the order of 'distinctChars'
+	 */
+	static Alphabet ofDistinct(char[] distinctChars) {
+		return new Alphabet(distinctChars);
+	}
+	
+	/**
+	 * @param keys : keys for trie construction
+	 * @return the smallest alphabet which supports all the keys, indexed in ascending order of chars 
+	 */
+	public static Alphabet of(Collection<? extends CharSequence> keys) {
+		boolean[] used = new boolean[Character.MAX_VALUE + 1];
+		int numChars = 0;
+		for (CharSequence key : keys) {
+			for (int i = 0; i < key.length(); i++) {
+				char c = key.charAt(i);
+				if (used[c] == false) {
+					used[c] = true;
+					numChars++;
+				}
+			}
+		}
+		char[] chars = new char[numChars];
+		int offset = 0;
+		for (int c = 0; c < used.length; c++) {
+			if (used[c]) {
+				chars[offset++] = (char) c;
+			}
+		}
+		return new Alphabet(chars);
+	}
+	
+	/**
+	 * An alphabet of all UTF-16 chars, where the index of a char is the char itself;
+	 * tries with large alphabets keep the children of each node sorted by index instead of direct-mapped, 
+	 * so that the size of a node depends on its number of children rather than on the alphabet size.
+	 * @return the alphabet which supports all keys
+	 */
+	public static Alphabet unicode() {
+		return UNICODE;
+	}
+	
+	/**
+	 * @return the alphabet of tries constructed without an Alphabet
+	 */
+	public static Alphabet getDefault() {
+		return defaultAlphabet;
+	}
+	
+	/**
+	 * sets the alphabet of tries constructed without an Alphabet afterwards; 
+	 * tries which are already constructed keep their alphabets
+	 * @param alphabet : the new default alphabet
+	 */
+	public static void setDefault(Alphabet alphabet) {
+		if (alphabet == null) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'alphabet' should not be null.");
+		}
+		defaultAlphabet = alphabet;
+	}
+	
+	/**
+	 * a fast way to convert char to index at the children of TrieNode
+	 * @param c : a char
+	 * @return index of c, or -1 if c is not supported
+	 */
+	public int indexOf(char c) {
+		return pages == null ? c : pages[c >>> 8][c & 0xFF] - 1;
+	}
+	
+	/**
+	 * @param index : 0 &lt;= index &lt; size()
+	 * @return the char of the index
+	 */
+	public char charAt(int index) {
+		return chars == null ? (char) index : chars[index];
+	}
+	
+	/**
+	 * @return the number of supported chars
+	 */
+	public int size() {
+		return chars == null ? Character.MAX_VALUE + 1 : chars.length;
+	}
+	
+	/**
+	 * @param c : a char
+	 * @return whether c is supported
+	 */
+	public boolean contains(char c) {
+		return indexOf(c) >= 0;
+	}
+	
+	@Override
+	public String toString() {
+		return chars == null ? "Alphabet [unicode]" : "Alphabet [chars=" + new String(chars) + "]";
+	}
+}
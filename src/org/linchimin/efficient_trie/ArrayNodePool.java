@@ -0,0 +1,199 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+
+/**
+ *
+ * a struct-of-arrays NodePool for TrieStorage.NODE_POOL;
+ * the fields of a node are at its handle in parallel primitive arrays
+ *
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+final class ArrayNodePool<V> extends NodePool<V> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] parents;
+	private int[] levels;
+	private char[] chars;
+	private char[] indices;
+	private int[] scores;
+	private byte[] flags;
+	private int[] maxScores;
+	private int[] childBlocks;
+	private int[] childCounts;
+	private Object[] values;
+
+	/**
+	 * the child slots of all blocks
+	 */
+	private int[] childSlots;
+
+	private int numChildSlots;
+
+	ArrayNodePool() {
+		parents = new int[INITIAL_CAPACITY];
+		levels = new int[INITIAL_CAPACITY];
+		chars = new char[INITIAL_CAPACITY];
+		indices = new char[INITIAL_CAPACITY];
+		scores = new int[INITIAL_CAPACITY];
+		flags = new byte[INITIAL_CAPACITY];
+		maxScores = new int[INITIAL_CAPACITY];
+		childBlocks = new int[INITIAL_CAPACITY];
+		childCounts = new int[INITIAL_CAPACITY];
+		values = new Object[INITIAL_CAPACITY];
+		childSlots = new int[INITIAL_CAPACITY];
+		newNode(NIL, (char) 0, 0, 0);
+	}
+
+	@Override
+	int newNode(int parent, char c, int index, int level) {
+		int handle = reuseNode();
+		if (handle == NIL) {
+			handle = grow();
+		}
+		parents[handle] = parent;
+		levels[handle] = level;
+		chars[handle] = c;
+		indices[handle] = (char) index;
+		scores[handle] = 0;
+		maxScores[handle] = Integer.MIN_VALUE;
+		childBlocks[handle] = NIL;
+		childCounts[handle] = 0;
+		return handle;
+	}
+
+	/**
+	 * @return a new handle at the end of the arrays, which are grown if they are full
+	 */
+	private int grow() {
+		if (numNodes == parents.length) {
+			int capacity = numNodes + (numNodes >> 1);
+			parents = Arrays.copyOf(parents, capacity);
+			levels = Arrays.copyOf(levels, capacity);
+			chars = Arrays.copyOf(chars, capacity);
+			indices = Arrays.copyOf(indices, capacity);
+			scores = Arrays.copyOf(scores, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+			maxScores = Arrays.copyOf(maxScores, capacity);
+			childBlocks = Arrays.copyOf(childBlocks, capacity);
+			childCounts = Arrays.copyOf(childCounts, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		return numNodes++;
+	}
+
+	@Override
+	int parent(int handle) {
+		return parents[handle];
+	}
+
+	@Override
+	void setParent(int handle, int parent) {
+		parents[handle] = parent;
+	}
+
+	@Override
+	int level(int handle) {
+		return levels[handle];
+	}
+
+	@Override
+	char charOf(int handle) {
+		return chars[handle];
+	}
+
+	@Override
+	int index(int handle) {
+		return indices[handle];
+	}
+
+	@Override
+	int childBlock(int handle) {
+		return childBlocks[handle];
+	}
+
+	@Override
+	void setChildBlock(int handle, int block) {
+		childBlocks[handle] = block;
+	}
+
+	@Override
+	int numChildren(int handle) {
+		return childCounts[handle];
+	}
+
+	@Override
+	void setNumChildren(int handle, int numChildren) {
+		childCounts[handle] = numChildren;
+	}
+
+	@Override
+	int childSlot(int slot) {
+		return childSlots[slot];
+	}
+
+	@Override
+	void setChildSlot(int slot, int handle) {
+		childSlots[slot] = handle;
+	}
+
+	@Override
+	int newChildSlots(int capacity) {
+		if (numChildSlots + capacity > childSlots.length) {
+			childSlots = Arrays.copyOf(childSlots, Math.max(numChildSlots + (numChildSlots >> 1), numChildSlots + capacity));
+		}
+		int block = numChildSlots;
+		numChildSlots += capacity;
+		return block;
+	}
+
+	@Override
+	int score(int handle) {
+		return scores[handle];
+	}
+
+	@Override
+	void setScore(int handle, int score) {
+		scores[handle] = score;
+	}
+
+	@Override
+	int maxScore(int handle) {
+		return maxScores[handle];
+	}
+
+	@Override
+	void setMaxScore(int handle, int maxScore) {
+		maxScores[handle] = maxScore;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	V value(int handle) {
+		return (V) values[handle];
+	}
+
+	@Override
+	void setValue(int handle, V value) {
+		values[handle] = value;
+	}
+
+	@Override
+	boolean isKeyValueNode(int handle) {
+		return (flags[handle] & FLAG_KEY_VALUE) != 0;
+	}
+
+	@Override
+	void setKeyValue(int handle, boolean isKeyValueNode, V value, int score) {
+		if (isKeyValueNode) {
+			flags[handle] |= FLAG_KEY_VALUE;
+		} else {
+			flags[handle] &= ~FLAG_KEY_VALUE;
+		}
+		values[handle] = value;
+		scores[handle] = score;
+	}
+}
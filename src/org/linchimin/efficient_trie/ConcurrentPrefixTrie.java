@@ -0,0 +1,844 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ * a PrefixTrie which supports concurrent queries and insertions or removals without a global lock.
+ *
+ * The sub-trees under the children of the root are guarded by striped locks, selected by the first char of a key;
+ * the root itself has its own lock, which writers take only when they change the children or the maximum score of the root.
+ * Writers of keys of different stripes run in parallel.
+ *
+ * Readers do not lock: a query runs under optimistic read stamps of the locks it depends on,
+ * and its result is returned only if no writer took these locks in the meantime;
+ * otherwise the query is retried once under read locks, so readers never see stale or torn nodes. 
+ * An exception thrown by a query is rethrown if the stamps are still valid, and otherwise taken as a torn read and retried.
+ * The nodes of this trie do not memoize their key-value nodes, so queries never write to shared nodes.
+ *
+ * Queries should go through the methods of this trie;
+ * the methods of the returned TrieNode objects are not guarded and may observe later insertions or removals partially.
+ * Only TrieStorage.OBJECT_GRAPH is supported. 
+ * After indexBestKeyValueNodes, every writer also takes the lock of the root to update the top key-value nodes of the root, 
+ * so writers of different stripes no longer run fully in parallel.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public class ConcurrentPrefixTrie<V> extends PrefixTrie<V> {
+
+	/**
+	 * the number of striped locks, a power of 2
+	 */
+	private static final int NUM_STRIPES = 64;
+
+	/**
+	 * stripes[index &amp; (NUM_STRIPES - 1)] guards the sub-tree of the child of the root at 'index';
+	 * null during construction, when this trie is not published yet
+	 */
+	private final StampedLock[] stripes;
+
+	/**
+	 * guards the children, the key-value pair and the maximum score of the root
+	 */
+	private final StampedLock rootLock;
+
+	/**
+	 * the number of key-value nodes, as 'size' is only updated during construction
+	 */
+	private final AtomicInteger numKeyValueNodes;
+
+
+	/**
+	 * constructor for constructing an empty trie
+	 * @param alphabet : the supported chars of this trie
+	 */
+	public ConcurrentPrefixTrie(Alphabet alphabet) {
+		this(Collections.<String>emptyList(), Collections.<V>emptyList(), new int[0], alphabet);
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 */
+	public ConcurrentPrefixTrie(List<String> keys, List<V> values) {
+		this(keys, values, ones(keys.size()), Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 */
+	public ConcurrentPrefixTrie(List<String> keys, List<V> values, int[] scores) {
+		this(keys, values, scores, Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 */
+	public ConcurrentPrefixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet) {
+		super(keys, values, scores, alphabet, TrieStorage.OBJECT_GRAPH);
+		stripes = new StampedLock[NUM_STRIPES];
+		for (int i = 0; i < NUM_STRIPES; i++) {
+			stripes[i] = new StampedLock();
+		}
+		rootLock = new StampedLock();
+		numKeyValueNodes = new AtomicInteger(size);
+	}
+
+	@Override
+	TrieNode<V> newNode(char c, int level) {
+		return new ConcurrentTrieNode<V>(c, level);
+	}
+
+	/**
+	 * a TrieNode which enumerates its key-value nodes by traversal instead of memoizing them,
+	 * so that concurrent readers do not write to it
+	 */
+	private static final class ConcurrentTrieNode<V> extends TrieNode<V> {
+
+		ConcurrentTrieNode(char c, int level) {
+			super(c, level);
+		}
+
+		@Override
+		public List<TrieNode<V>> getKeyValueNodes() {
+			ArrayList<TrieNode<V>> nodes = new ArrayList<TrieNode<V>>();
+			addKeyValueNodes(this, nodes);
+			return nodes;
+		}
+
+		private static <V> void addKeyValueNodes(TrieNode<V> node, ArrayList<TrieNode<V>> nodes) {
+			if (node.isKeyValueNode) {
+				nodes.add(node);
+			}
+			for (int i = 0; i < node.numChildren; i++) {
+				addKeyValueNodes(node.getChildAt(i), nodes);
+			}
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////
+	// writers
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean put(String key, V value, int score) {
+		if (stripes == null) {
+			// called by the constructor, before this trie is published
+			return super.put(key, value, score);
+		}
+		return put(key, value, score, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean putIfAbsent(String key, V value, int score) {
+		return put(key, value, score, true);
+	}
+
+	/**
+	 * @param key : the key
+	 * @param value : the value
+	 * @param score : the score of the key value pair
+	 * @param onlyIfAbsent : true for not updating an existing key-value pair
+	 * @return true if succesfully added
+	 */
+	private boolean put(String key, V value, int score, boolean onlyIfAbsent) {
+		if (!isSupported(key)){
+			// not allowed to add this word if one of the chars is unsupported
+			return false;
+		}
+		int length = key.length();
+		if (length == 0) {
+			long stamp = rootLock.writeLock();
+			try {
+				return setKeyValue(root, value, score, onlyIfAbsent);
+			} finally {
+				rootLock.unlockWrite(stamp);
+			}
+		}
+
+		char first = key.charAt(0);
+		int firstIndex = charToIndex(first);
+		StampedLock stripe = stripes[firstIndex & (NUM_STRIPES - 1)];
+		long stamp = stripe.writeLock();
+		try {
+			TrieNode<V> node = getOrAddFirstLevelNode(first, firstIndex);
+			for (int i = 1; i < length; i++) {
+				char c = key.charAt(i);
+				int index = charToIndex(c);
+				TrieNode<V> next = node.getChild(index);
+				if (next == null) {
+					next = newNode(c, i + 1);
+					next.parent = node;
+					node.addChild(index, next, alphabet.size());
+				}
+				node = next;
+			}
+			if (!setKeyValue(node, value, score, onlyIfAbsent)) {
+				return false;
+			}
+			updatePath(node, false);
+			return true;
+		} finally {
+			stripe.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @param node : a node
+	 * @param value : the value
+	 * @param score : the score of the key value pair
+	 * @param onlyIfAbsent : true for not updating an existing key-value pair
+	 * @return false if 'node' is a key-value node and 'onlyIfAbsent' is true
+	 */
+	private boolean setKeyValue(TrieNode<V> node, V value, int score, boolean onlyIfAbsent) {
+		if (node.isKeyValueNode) {
+			if (onlyIfAbsent) {
+				return false;
+			}
+		} else {
+			numKeyValueNodes.incrementAndGet();
+		}
+		node.isKeyValueNode = true;
+		node.value = value;
+		node.score = score;
+		if (node == root) {
+			updateRoot();
+		}
+		return true;
+	}
+
+	/**
+	 * the caller holds the write lock of the stripe of 'index'
+	 * @param c : the first char of a key
+	 * @param index : the index of 'c'
+	 * @return the child of the root at 'index', which is created if it does not exist
+	 */
+	private TrieNode<V> getOrAddFirstLevelNode(char c, int index) {
+		TrieNode<V> node;
+		long stamp = rootLock.readLock();
+		try {
+			node = root.getChild(index);
+		} finally {
+			rootLock.unlockRead(stamp);
+		}
+		if (node != null) {
+			return node;
+		}
+		node = newNode(c, 1);
+		node.parent = root;
+		if (numIndexedBestKeyValueNodes > 0) {
+			// an empty list, which other writers may read for the root before the path of this node is updated
+			node.updateBestKeyValueNodes(numIndexedBestKeyValueNodes);
+		}
+		stamp = rootLock.writeLock();
+		try {
+			root.addChild(index, node, alphabet.size());
+		} finally {
+			rootLock.unlockWrite(stamp);
+		}
+		return node;
+	}
+
+	/**
+	 * invalidates and updates the nodes from 'node' up to the root,
+	 * where the root is only locked if its children, its maximum score or its top key-value nodes may change;
+	 * the caller holds the write lock of the stripe of the path. 
+	 * The top key-value nodes of a child of the root are updated under the lock of the root as well, 
+	 * as the root reads them while writers of other stripes update theirs
+	 * @param node : the deepest node of the path, with level &gt;= 1
+	 * @param pruneFirstLevelNode : true if 'node' is a child of the root which no longer leads to any key-value node
+	 */
+	private void updatePath(TrieNode<V> node, boolean pruneFirstLevelNode) {
+		int numIndexed = numIndexedBestKeyValueNodes;
+		boolean isMaxScoreChanged = true;
+		TrieNode<V> firstLevelNode = node;
+		for (TrieNode<V> n = node; n != root; n = n.parent) {
+			n.invalidateKeyValueNodes();
+			if (isMaxScoreChanged) {
+				isMaxScoreChanged = n.updateMaxScore();
+			}
+			if (numIndexed > 0 && n.level > 1) {
+				n.updateBestKeyValueNodes(numIndexed);
+			}
+			firstLevelNode = n;
+		}
+		if (isMaxScoreChanged || pruneFirstLevelNode || numIndexed > 0) {
+			long stamp = rootLock.writeLock();
+			try {
+				if (pruneFirstLevelNode) {
+					root.removeChild(charToIndex(node.c));
+				} else if (numIndexed > 0) {
+					firstLevelNode.updateBestKeyValueNodes(numIndexed);
+				}
+				updateRoot();
+			} finally {
+				rootLock.unlockWrite(stamp);
+			}
+		}
+	}
+	
+	/**
+	 * updates the indexes of the root after a change of its key-value pair or its children; 
+	 * the caller holds the write lock of the root
+	 */
+	private void updateRoot() {
+		root.invalidateKeyValueNodes();
+		root.updateMaxScore();
+		if (numIndexedBestKeyValueNodes > 0) {
+			root.updateBestKeyValueNodes(numIndexedBestKeyValueNodes);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V remove(String key) {
+		if (key.isEmpty()) {
+			long stamp = rootLock.writeLock();
+			try {
+				if (!root.isKeyValueNode) {
+					return null;
+				}
+				V value = root.value;
+				root.isKeyValueNode = false;
+				root.value = null;
+				root.score = 0;
+				numKeyValueNodes.decrementAndGet();
+				updateRoot();
+				return value;
+			} finally {
+				rootLock.unlockWrite(stamp);
+			}
+		}
+		int firstIndex = charToIndex(key.charAt(0));
+		if (firstIndex == -1) {
+			return null;
+		}
+		StampedLock stripe = stripes[firstIndex & (NUM_STRIPES - 1)];
+		long stamp = stripe.writeLock();
+		try {
+			TrieNode<V> node;
+			long rootStamp = rootLock.readLock();
+			try {
+				node = root.getChild(firstIndex);
+			} finally {
+				rootLock.unlockRead(rootStamp);
+			}
+			for (int i = 1; node != null && i < key.length(); i++) {
+				int index = charToIndex(key.charAt(i));
+				node = index == -1 ? null : node.getChild(index);
+			}
+			if (node == null || !node.isKeyValueNode) {
+				return null;
+			}
+			V value = node.value;
+			node.isKeyValueNode = false;
+			node.value = null;
+			node.score = 0;
+			numKeyValueNodes.decrementAndGet();
+			while (node.level > 1 && !node.isKeyValueNode && node.numChildren == 0) {
+				TrieNode<V> parent = node.parent;
+				parent.removeChild(charToIndex(node.c));
+				node = parent;
+			}
+			updatePath(node, !node.isKeyValueNode && node.numChildren == 0);
+			return value;
+		} finally {
+			stripe.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The index is built under the write locks of all stripes and the root; 
+	 * afterwards, every writer also takes the write lock of the root, as the top key-value nodes of the root depend on all stripes.
+	 */
+	@Override
+	public void indexBestKeyValueNodes(int maxNumTopKeyValueNodes) {
+		long[] stamps = new long[NUM_STRIPES];
+		for (int i = 0; i < NUM_STRIPES; i++) {
+			stamps[i] = stripes[i].writeLock();
+		}
+		long rootStamp = rootLock.writeLock();
+		try {
+			super.indexBestKeyValueNodes(maxNumTopKeyValueNodes);
+		} finally {
+			rootLock.unlockWrite(rootStamp);
+			for (int i = 0; i < NUM_STRIPES; i++) {
+				stripes[i].unlockWrite(stamps[i]);
+			}
+		}
+	}
+
+	/**
+	 * does nothing, as the nodes of this trie do not memoize their key-value nodes
+	 */
+	@Override
+	public void warmUp() {
+	}
+
+	@Override
+	public int size() {
+		return numKeyValueNodes == null ? size : numKeyValueNodes.get();
+	}
+
+
+	//////////////////////////////////////////////////////////
+	// readers
+
+	/**
+	 * @param word : a word
+	 * @param prefixLength : the length of the prefix of 'word' which a query walks
+	 * @return the stripe which a query of the prefix depends on besides the root, or -1 for all stripes
+	 */
+	private int stripeOf(CharSequence word, int prefixLength) {
+		if (prefixLength == 0) {
+			return -1;
+		}
+		return charToIndex(word.charAt(0)) & (NUM_STRIPES - 1);
+	}
+
+	/**
+	 * @param text : a text
+	 * @param offset : the offset in 'text' where keys start
+	 * @return the stripe which a query of the keys starting at 'offset' depends on besides the root, or -1 for all stripes
+	 */
+	private int stripeAt(CharSequence text, int offset) {
+		if (offset == text.length()) {
+			return -1;
+		}
+		return charToIndex(text.charAt(offset)) & (NUM_STRIPES - 1);
+	}
+
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the prefix of the word which a query walks
+	 * @return the stripe which a query of the prefix depends on besides the root, or -1 for all stripes
+	 */
+	private int stripeOf(char[] buf, int off, int len) {
+		checkRange(buf, off, len);
+		if (len == 0) {
+			return -1;
+		}
+		return charToIndex(buf[off]) & (NUM_STRIPES - 1);
+	}
+
+	/**
+	 * runs a query under optimistic read stamps, and retries it under read locks if a writer interferes
+	 * @param stripe : the stripe which the query depends on besides the root, or -1 for all stripes
+	 * @param query : the query
+	 * @return the result of the query
+	 */
+	private <T> T read(int stripe, Supplier<T> query) {
+		int from = stripe < 0 ? 0 : stripe;
+		int to = stripe < 0 ? NUM_STRIPES : stripe + 1;
+		long[] stamps = new long[to - from + 1];
+		boolean isValid = true;
+		for (int i = from; i < to && isValid; i++) {
+			stamps[i - from] = stripes[i].tryOptimisticRead();
+			isValid = stamps[i - from] != 0;
+		}
+		stamps[to - from] = rootLock.tryOptimisticRead();
+		if (isValid && stamps[to - from] != 0) {
+			try {
+				T result = query.get();
+				if (validate(from, to, stamps)) {
+					return result;
+				}
+			} catch (RuntimeException e) {
+				if (validate(from, to, stamps)) {
+					// not caused by a writer, such as an invalid argument
+					throw e;
+				}
+				// a torn read of nodes being changed by a writer; retried under read locks
+			}
+		}
+		for (int i = from; i < to; i++) {
+			stamps[i - from] = stripes[i].readLock();
+		}
+		stamps[to - from] = rootLock.readLock();
+		try {
+			return query.get();
+		} finally {
+			rootLock.unlockRead(stamps[to - from]);
+			for (int i = from; i < to; i++) {
+				stripes[i].unlockRead(stamps[i - from]);
+			}
+		}
+	}
+
+	/**
+	 * @param from : the first stripe of a query
+	 * @param to : the stripe after the last stripe of the query
+	 * @param stamps : the optimistic read stamps of the stripes, followed by the stamp of the root
+	 * @return true if no writer took the locks since the stamps were taken
+	 */
+	private boolean validate(int from, int to, long[] stamps) {
+		for (int i = from; i < to; i++) {
+			if (stripes[i].validate(stamps[i - from]) == false) {
+				return false;
+			}
+		}
+		return rootLock.validate(stamps[to - from]);
+	}
+
+	@Override
+	public TrieNode<V> getNode(CharSequence word) {
+		return read(stripeOf(word, word.length()), () -> super.getNode(word, word.length()));
+	}
+
+	@Override
+	public TrieNode<V> getNode(CharSequence word, int substringLength) {
+		return read(stripeOf(word, substringLength), () -> super.getNode(word, substringLength));
+	}
+
+	@Override
+	public TrieNode<V> getNodeWithLongestCommonPart(CharSequence word) {
+		return read(stripeOf(word, word.length()), () -> getNodeWithLongestCommonPart(word, word.length()));
+	}
+
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word) {
+		return read(stripeOf(word, word.length()), () -> super.getKeyValueNodes(word, word.length()));
+	}
+
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word, Function<TrieNode<V>, Boolean> condition) {
+		return read(stripeOf(word, word.length()), () -> super.getKeyValueNodes(word, word.length(), condition));
+	}
+
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word, int substringLength, Function<TrieNode<V>, Boolean> condition) {
+		return read(stripeOf(word, substringLength), () -> super.getKeyValueNodes(word, substringLength, condition));
+	}
+
+	@Override
+	public TrieNode<V> getkeyValueNode(CharSequence word) {
+		return read(stripeOf(word, word.length()), () -> {
+			TrieNode<V> theNode = getNodeWithLongestCommonPart(word, word.length());
+			return (theNode.isKeyValueNode && theNode.level == word.length()) ? theNode : null;
+		});
+	}
+
+	@Override
+	public TrieNode<V> getBestKeyValueNode() {
+		return read(-1, () -> super.getBestKeyValueNode());
+	}
+
+	@Override
+	public TrieNode<V> getBestKeyValueNode(Comparator<TrieNode<V>> comparator) {
+		return read(-1, () -> super.getBestKeyValueNode(comparator));
+	}
+
+	@Override
+	public TrieNode<V> getBestKeyValueNode(CharSequence word) {
+		return read(stripeOf(word, word.length()), () -> super.getBestKeyValueNode(word, word.length()));
+	}
+
+	@Override
+	public TrieNode<V> getBestKeyValueNode(CharSequence word, Comparator<TrieNode<V>> comparator) {
+		return read(stripeOf(word, word.length()), () -> super.getBestKeyValueNode(word, word.length(), comparator));
+	}
+
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes) {
+		return read(stripeOf(word, word.length()), () -> super.getBestKeyValueNodes(word, numTopKeyValueNodes));
+	}
+
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes, Comparator<TrieNode<V>> comparator) {
+		return read(stripeOf(word, word.length()), () -> super.getBestKeyValueNodes(word, numTopKeyValueNodes, comparator));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * As a removal may prune the node of a cursor, the node is validated with the optimistic read stamp of the stripe of the typed chars, 
+	 * which guards all the nodes below the root that a cursor reads; the typed chars are walked again only if a writer took that lock.
+	 */
+	@Override
+	public TrieCursor<V> newCursor() {
+		return new ConcurrentTrieCursor<V>(this);
+	}
+
+	/**
+	 * a cursor which keeps the typed chars and their node, found under an optimistic read stamp of their stripe; 
+	 * while the stamp is valid, each call moves from the node or queries its sub-tree, and validates the stamp afterwards, 
+	 * and otherwise it runs as a query of this trie on the typed chars. 
+	 * When no char is typed, every call is a query of this trie, as the root depends on all stripes
+	 */
+	private static final class ConcurrentTrieCursor<V> extends TrieCursor<V> {
+
+		private final ConcurrentPrefixTrie<V> trie;
+
+		private final StringBuilder typed = new StringBuilder();
+
+		/**
+		 * the lock of the stripe of the typed chars, or null if no char is typed
+		 */
+		private StampedLock stripe;
+
+		/**
+		 * the optimistic read stamp of 'stripe' taken before 'node' was found, or 0 if 'node' should be found again
+		 */
+		private long stamp;
+
+		/**
+		 * the node of the longest prefix of the typed chars in the trie, which is valid while 'stamp' is
+		 */
+		private TrieNode<V> node;
+
+		ConcurrentTrieCursor(ConcurrentPrefixTrie<V> trie) {
+			super(trie);
+			this.trie = trie;
+		}
+
+		/**
+		 * the caller has typed at least one char
+		 * @return the node of the longest prefix of the typed chars, which is walked again if a writer took the lock of their stripe
+		 */
+		private TrieNode<V> node() {
+			if (stamp == 0 || stripe.validate(stamp) == false) {
+				stamp = stripe.tryOptimisticRead();
+				node = trie.getNodeWithLongestCommonPart(typed);
+			}
+			return node;
+		}
+
+		/**
+		 * runs a query on the node of the typed chars under the stamp of their stripe, 
+		 * and runs it as a query of the trie instead if no char is typed or a writer interferes
+		 * @param query : the query on the node of the typed chars
+		 * @param trieQuery : the same query of the trie on the typed chars
+		 * @return the result of the query
+		 */
+		private <T> T read(Function<TrieNode<V>, T> query, Supplier<T> trieQuery) {
+			if (typed.length() > 0) {
+				TrieNode<V> theNode = node();
+				long theStamp = stamp;
+				if (theStamp != 0) {
+					try {
+						T result = query.apply(theNode);
+						if (stripe.validate(theStamp)) {
+							return result;
+						}
+					} catch (RuntimeException e) {
+						if (stripe.validate(theStamp)) {
+							throw e;
+						}
+						// a torn read of nodes being changed by a writer
+					}
+					stamp = 0;
+				}
+			}
+			return trieQuery.get();
+		}
+
+		@Override
+		public boolean advance(char c) {
+			if (typed.length() == 0) {
+				typed.append(c);
+				stripe = trie.stripes[trie.stripeOf(typed, 1)];
+				stamp = 0;
+				return node().level == 1;
+			}
+			TrieNode<V> parent = node();
+			long theStamp = stamp;
+			typed.append(c);
+			if (theStamp != 0 && parent.level == typed.length() - 1) {
+				int index = trie.charToIndex(c);
+				try {
+					TrieNode<V> child = index >= 0 ? parent.getChild(index) : null;
+					if (stripe.validate(theStamp)) {
+						if (child != null) {
+							node = child;
+						}
+						return child != null;
+					}
+				} catch (RuntimeException e) {
+					if (stripe.validate(theStamp)) {
+						throw e;
+					}
+				}
+				stamp = 0;
+			}
+			return node().level == typed.length();
+		}
+
+		@Override
+		public boolean backspace() {
+			if (typed.length() == 0) {
+				return false;
+			}
+			typed.setLength(typed.length() - 1);
+			if (typed.length() == 0) {
+				reset();
+			} else if (node.level > typed.length()) {
+				// the parent of a node is never changed, and a pruned node is found again by node() as its stamp is no longer valid
+				node = node.parent;
+			}
+			return true;
+		}
+
+		@Override
+		public void reset() {
+			typed.setLength(0);
+			stripe = null;
+			stamp = 0;
+			node = null;
+		}
+
+		@Override
+		public int length() {
+			return typed.length();
+		}
+
+		@Override
+		public TrieNode<V> getNode() {
+			return read(theNode -> theNode.level == typed.length() ? theNode : null, () -> trie.getNode(typed));
+		}
+
+		@Override
+		public TrieNode<V> getBestKeyValueNode() {
+			return read(theNode -> trie.bestKeyValueNodeOf(theNode, typed.length()), () -> trie.getBestKeyValueNode(typed));
+		}
+
+		@Override
+		public List<TrieNode<V>> getBestKeyValueNodes(int numTopKeyValueNodes) {
+			checkNumTopKeyValueNodes(numTopKeyValueNodes);
+			return read(theNode -> trie.bestKeyValueNodesOf(theNode, typed.length(), numTopKeyValueNodes), 
+					() -> trie.getBestKeyValueNodes(typed, numTopKeyValueNodes));
+		}
+	}
+
+	/**
+	 * a fuzzy match can start with any first char, so all stripes are validated
+	 */
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int maxEdits, int numTopKeyValueNodes) {
+		return read(-1, () -> super.getBestKeyValueNodes(word, maxEdits, numTopKeyValueNodes));
+	}
+
+	/**
+	 * the words of a batch may start with any chars, so all stripes are validated for the whole batch
+	 */
+	@Override
+	public List<List<TrieNode<V>>> getBestKeyValueNodes(List<? extends CharSequence> words, int numTopKeyValueNodes, ForkJoinPool forkJoinPool) {
+		return read(-1, () -> super.getBestKeyValueNodes(words, numTopKeyValueNodes, forkJoinPool));
+	}
+
+	@Override
+	public TrieNode<V> longestKeyPrefixOf(CharSequence text, int offset) {
+		checkOffset(text, offset);
+		return read(stripeAt(text, offset), () -> super.longestKeyPrefixOf(text, offset));
+	}
+
+	/**
+	 * the key-value nodes are collected under the read stamps, and passed to 'consumer' after they are validated, 
+	 * so that 'consumer' never sees a retried query twice
+	 */
+	@Override
+	public void forEachKeyPrefixOf(CharSequence text, int offset, Consumer<TrieNode<V>> consumer) {
+		checkOffset(text, offset);
+		List<TrieNode<V>> nodes = read(stripeAt(text, offset), () -> {
+			ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+			super.forEachKeyPrefixOf(text, offset, result::add);
+			return result;
+		});
+		nodes.forEach(consumer);
+	}
+
+	@Override
+	public List<TrieNode<V>> match(String pattern) {
+		return read(-1, () -> super.match(pattern));
+	}
+
+	@Override
+	public List<TrieNode<V>> match(Pattern pattern) {
+		return read(-1, () -> super.match(pattern));
+	}
+
+	@Override
+	public TrieNode<V> getNodeWithLongestCommonPart(char[] buf, int off, int len) {
+		return read(stripeOf(buf, off, len), () -> super.getNodeWithLongestCommonPart(buf, off, len));
+	}
+
+	@Override
+	public TrieNode<V> getNode(char[] buf, int off, int len) {
+		return read(stripeOf(buf, off, len), () -> {
+			TrieNode<V> theNode = super.getNodeWithLongestCommonPart(buf, off, len);
+			return theNode.level == len ? theNode : null;
+		});
+	}
+
+	@Override
+	public TrieNode<V> getkeyValueNode(char[] buf, int off, int len) {
+		return read(stripeOf(buf, off, len), () -> {
+			TrieNode<V> theNode = super.getNodeWithLongestCommonPart(buf, off, len);
+			return (theNode.isKeyValueNode && theNode.level == len) ? theNode : null;
+		});
+	}
+
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes(char[] buf, int off, int len) {
+		return read(stripeOf(buf, off, len), () -> keyValueNodesOf(super.getNodeWithLongestCommonPart(buf, off, len), len));
+	}
+
+	@Override
+	public TrieNode<V> getBestKeyValueNode(char[] buf, int off, int len) {
+		return read(stripeOf(buf, off, len), () -> bestKeyValueNodeOf(super.getNodeWithLongestCommonPart(buf, off, len), len));
+	}
+
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(char[] buf, int off, int len, int numTopKeyValueNodes) {
+		return read(stripeOf(buf, off, len), () -> bestKeyValueNodesOf(super.getNodeWithLongestCommonPart(buf, off, len), len, numTopKeyValueNodes));
+	}
+
+	/**
+	 * compiles a snapshot of this trie under the read locks of all stripes
+	 * @return a DoubleArrayTrie with the keys, values and scores of this trie
+	 */
+	@Override
+	public DoubleArrayTrie<V> freeze() {
+		long[] stamps = new long[NUM_STRIPES];
+		for (int i = 0; i < NUM_STRIPES; i++) {
+			stamps[i] = stripes[i].readLock();
+		}
+		long rootStamp = rootLock.readLock();
+		try {
+			return super.freeze();
+		} finally {
+			rootLock.unlockRead(rootStamp);
+			for (int i = 0; i < NUM_STRIPES; i++) {
+				stripes[i].unlockRead(stamps[i]);
+			}
+		}
+	}
+}
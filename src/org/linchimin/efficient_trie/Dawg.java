@@ -0,0 +1,321 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <pre>
+ * a read-only minimal acyclic automaton (DAWG) built by DawgBuilder from keys in lexicographic order;
+ * the arcs of state s are [firstArcs[s], firstArcs[s + 1]) of 'labels' and 'targets', sorted by their labels, and the start state is 0.
+ *
+ * As states are shared by keys, values are not stored at states:
+ * each key has an ordinal, its position in lexicographic order, computed with the number of keys accepted from each state,
+ * which is a minimal perfect hash of the keys; values are kept in an array indexed by ordinals.
+ * The ordinals of the keys prefixed with a prefix are a contiguous range.
+ *
+ * Unlike the other tries, a DAWG returns no TrieNodes, since a state is shared by many keys and has neither one key nor one value, 
+ * and it keeps no scores, so there are no best-first queries. Its queries correspond to the ones of PrefixTrie as follows:
+ * getkeyValueNode(key) : containsKey(key), getOrdinal(key) and getValue(key)
+ * getNode(prefix) != null : containsPrefix(prefix)
+ * getKeyValueNodes(prefix) : getKeys(prefix), getValues(prefix) and getOrdinalRange(prefix)
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class Dawg<V> {
+
+	private final int[] firstArcs;
+
+	private final char[] labels;
+
+	private final int[] targets;
+
+	private final boolean[] finals;
+
+	/**
+	 * counts[s] is the number of keys accepted from state s
+	 */
+	private final int[] counts;
+
+	/**
+	 * the values in the order of ordinals, or null if no key has a value
+	 */
+	private final Object[] values;
+
+	/**
+	 * @param firstArcs : the first arc of each state, and the number of arcs at the end
+	 * @param labels : the labels of the arcs
+	 * @param targets : the target states of the arcs
+	 * @param finals : whether each state is final
+	 * @param values : the values in the order of ordinals, or null
+	 */
+	Dawg(int[] firstArcs, char[] labels, int[] targets, boolean[] finals, Object[] values) {
+		this.firstArcs = firstArcs;
+		this.labels = labels;
+		this.targets = targets;
+		this.finals = finals;
+		this.values = values;
+		this.counts = new int[finals.length];
+		Arrays.fill(counts, -1);
+		countKeys();
+	}
+
+	/**
+	 * computes 'counts' of all states, which are reachable from the start state, in post-order without recursion
+	 */
+	private void countKeys() {
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int s = stack[top - 1];
+			if (counts[s] >= 0) {
+				// a state pushed again by another arc before it was counted
+				top--;
+				continue;
+			}
+			boolean isReady = true;
+			for (int arc = firstArcs[s]; arc < firstArcs[s + 1]; arc++) {
+				int target = targets[arc];
+				if (counts[target] < 0) {
+					if (top == stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[top++] = target;
+					isReady = false;
+				}
+			}
+			if (isReady) {
+				int count = finals[s] ? 1 : 0;
+				for (int arc = firstArcs[s]; arc < firstArcs[s + 1]; arc++) {
+					count += counts[targets[arc]];
+				}
+				counts[s] = count;
+				top--;
+			}
+		}
+	}
+
+	/**
+	 * @return number of keys of this DAWG
+	 */
+	public int size() {
+		return counts[0];
+	}
+
+	/**
+	 * @return number of states of this DAWG
+	 */
+	public int getNumStates() {
+		return finals.length;
+	}
+
+	/**
+	 * @return number of arcs of this DAWG
+	 */
+	public int getNumArcs() {
+		return labels.length;
+	}
+
+	/**
+	 * @param state : a state
+	 * @param c : a char
+	 * @return the arc from 'state' labeled with 'c', or -1 if there is no such arc
+	 */
+	private int arcOf(int state, char c) {
+		int low = firstArcs[state], high = firstArcs[state + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			char label = labels[middle];
+			if (label < c) {
+				low = middle + 1;
+			} else if (label > c) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * walks 'word' from the start state
+	 * @param word : a word
+	 * @return {the state after 'word', the number of keys smaller than 'word'}, or null if 'word' is not a prefix of a key
+	 */
+	private int[] walk(CharSequence word) {
+		int state = 0;
+		int ordinal = 0;
+		for (int i = 0; i < word.length(); i++) {
+			int arc = arcOf(state, word.charAt(i));
+			if (arc < 0) {
+				return null;
+			}
+			if (finals[state]) {
+				ordinal++;
+			}
+			for (int a = firstArcs[state]; a < arc; a++) {
+				ordinal += counts[targets[a]];
+			}
+			state = targets[arc];
+		}
+		return new int[] {state, ordinal};
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the ordinal of the key, its position in lexicographic order among the keys, or -1 if the key does not exist
+	 */
+	public int getOrdinal(CharSequence key) {
+		int[] walked = walk(key);
+		return (walked != null && finals[walked[0]]) ? walked[1] : -1;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return whether the key exists
+	 */
+	public boolean containsKey(CharSequence key) {
+		int[] walked = walk(key);
+		return walked != null && finals[walked[0]];
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return whether one or more keys are prefixed with 'prefix'
+	 */
+	public boolean containsPrefix(CharSequence prefix) {
+		return walk(prefix) != null;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the value of the key, or null if the key does not exist or has no value
+	 */
+	@SuppressWarnings("unchecked")
+	public V getValue(CharSequence key) {
+		int ordinal = getOrdinal(key);
+		return (ordinal < 0 || values == null) ? null : (V) values[ordinal];
+	}
+
+	/**
+	 * @param ordinal : the ordinal of a key
+	 * @return the value of the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V getValue(int ordinal) {
+		if (ordinal < 0 || ordinal >= size()) {
+			throw new IllegalArgumentException("IllegalArgumentException: ordinal (" + ordinal + ") should be in [0, " + size() + ")");
+		}
+		return values == null ? null : (V) values[ordinal];
+	}
+
+	/**
+	 * @param ordinal : the ordinal of a key
+	 * @return the key, found by descending with the counts of the states
+	 */
+	public String getKey(int ordinal) {
+		if (ordinal < 0 || ordinal >= size()) {
+			throw new IllegalArgumentException("IllegalArgumentException: ordinal (" + ordinal + ") should be in [0, " + size() + ")");
+		}
+		StringBuilder key = new StringBuilder();
+		int state = 0;
+		while (true) {
+			if (finals[state]) {
+				if (ordinal == 0) {
+					return key.toString();
+				}
+				ordinal--;
+			}
+			for (int arc = firstArcs[state]; ; arc++) {
+				int count = counts[targets[arc]];
+				if (ordinal < count) {
+					key.append(labels[arc]);
+					state = targets[arc];
+					break;
+				}
+				ordinal -= count;
+			}
+		}
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the range {begin, end} of the ordinals of the keys prefixed with 'prefix', which is empty if there is no such key
+	 */
+	public int[] getOrdinalRange(CharSequence prefix) {
+		int[] walked = walk(prefix);
+		return walked == null ? new int[] {0, 0} : new int[] {walked[1], walked[1] + counts[walked[0]]};
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the keys prefixed with 'prefix' in lexicographic order, which is the order of their ordinals
+	 */
+	public List<String> getKeys(CharSequence prefix) {
+		int[] walked = walk(prefix);
+		if (walked == null) {
+			return Collections.emptyList();
+		}
+		ArrayList<String> keys = new ArrayList<String>(counts[walked[0]]);
+		StringBuilder key = new StringBuilder(prefix);
+		addKeys(walked[0], key, keys);
+		return keys;
+	}
+
+	/**
+	 * adds the keys accepted from a state in lexicographic order, in a depth-first walk with an explicit stack, 
+	 * so that long keys do not overflow the call stack
+	 * @param state : a state
+	 * @param key : the chars from the start state to 'state', which are restored on return
+	 * @param keys : the list to add keys to
+	 */
+	private void addKeys(int state, StringBuilder key, List<String> keys) {
+		int length = key.length();
+		// states[depth] is the state after 'depth' chars from 'state', and nextArcs[depth] is its next arc to follow
+		int[] states = new int[16];
+		int[] nextArcs = new int[16];
+		int depth = 0;
+		states[0] = state;
+		nextArcs[0] = firstArcs[state];
+		if (finals[state]) {
+			keys.add(key.toString());
+		}
+		while (depth >= 0) {
+			int arc = nextArcs[depth];
+			if (arc == firstArcs[states[depth] + 1]) {
+				depth--;
+				key.setLength(length + Math.max(depth, 0));
+				continue;
+			}
+			nextArcs[depth]++;
+			int target = targets[arc];
+			key.append(labels[arc]);
+			if (finals[target]) {
+				keys.add(key.toString());
+			}
+			if (++depth == states.length) {
+				states = Arrays.copyOf(states, depth * 2);
+				nextArcs = Arrays.copyOf(nextArcs, depth * 2);
+			}
+			states[depth] = target;
+			nextArcs[depth] = firstArcs[target];
+		}
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the values of the keys prefixed with 'prefix', in the order of getKeys(prefix)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> getValues(CharSequence prefix) {
+		int[] range = getOrdinalRange(prefix);
+		if (values == null) {
+			return Collections.nCopies(range[1] - range[0], null);
+		}
+		return Collections.unmodifiableList(Arrays.asList((V[]) values).subList(range[0], range[1]));
+	}
+}
@@ -0,0 +1,253 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * <pre>
+ * a builder of a minimal acyclic automaton (DAWG) from keys in lexicographic order,
+ * by the incremental algorithm of Daciuk et al.:
+ * when a key is added, the states of the part of the previous key after their common prefix can no longer change,
+ * so each of them is replaced by an equivalent registered state, or registered itself.
+ * Unlike a PrefixTrie, equal suffixes are shared as well as prefixes.
+ *
+ * For example:
+ * DawgBuilder&lt;Integer&gt; builder = new DawgBuilder&lt;Integer&gt;();
+ * builder.add("tapping", 1);
+ * builder.add("tops", 2);
+ * builder.add("topping", 3);
+ * Dawg&lt;Integer&gt; dawg = builder.build(); // "pping" is shared by "tapping" and "topping"
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class DawgBuilder<V> {
+
+	/**
+	 * the registered states, each of which is the representative of its equivalence class
+	 */
+	private HashMap<State, State> register = new HashMap<State, State>();
+
+	/**
+	 * path[i] is the state after the first i chars of 'previous'
+	 */
+	private State[] path;
+
+	/**
+	 * the values in the order of the keys, which is the order of their ordinals
+	 */
+	private ArrayList<Object> values = new ArrayList<Object>();
+
+	/**
+	 * the last added key, or null if no key is added yet
+	 */
+	private String previous;
+
+	private boolean isBuilt;
+
+	public DawgBuilder() {
+		path = new State[16];
+		path[0] = new State();
+	}
+
+	/**
+	 * adds a key without a value
+	 * @param key : the key, which should not be smaller than the previous key by String.compareTo
+	 */
+	public void add(String key) {
+		add(key, null);
+	}
+
+	/**
+	 * adds a key-value pair; for a key equal to the previous key, its value is replaced
+	 * @param key : the key, which should not be smaller than the previous key by String.compareTo
+	 * @param value : the value
+	 */
+	public void add(String key, V value) {
+		if (isBuilt) {
+			throw new IllegalStateException("IllegalStateException: the DAWG is already built.");
+		}
+		int length = key.length();
+		int common = 0;
+		if (previous != null) {
+			int minLength = Math.min(length, previous.length());
+			while (common < minLength && key.charAt(common) == previous.charAt(common)) {
+				common++;
+			}
+			if (common < minLength ? key.charAt(common) < previous.charAt(common) : length < previous.length()) {
+				throw new IllegalArgumentException("IllegalArgumentException: the keys should be added in lexicographic order, "
+						+ "while '" + key + "' is added after '" + previous + "'.");
+			}
+			if (common == length && length == previous.length()) {
+				values.set(values.size() - 1, value);
+				return;
+			}
+			replaceOrRegister(common);
+		}
+		if (length >= path.length) {
+			path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+		}
+		for (int i = common; i < length; i++) {
+			State state = new State();
+			path[i].addArc(key.charAt(i), state);
+			path[i + 1] = state;
+		}
+		path[length].isFinal = true;
+		values.add(value);
+		previous = key;
+	}
+
+	/**
+	 * replaces the states of 'previous' deeper than 'level' by their registered equivalents, from the deepest one
+	 * @param level : the level of the deepest state to keep unregistered
+	 */
+	private void replaceOrRegister(int level) {
+		for (int i = previous.length(); i > level; i--) {
+			State state = path[i];
+			State registered = register.get(state);
+			if (registered == null) {
+				register.put(state, state);
+			} else {
+				// the state is the last target of its parent, which is not registered yet
+				State parent = path[i - 1];
+				parent.targets[parent.numArcs - 1] = registered;
+			}
+			path[i] = null;
+		}
+	}
+
+	/**
+	 * @return the DAWG of the added keys; no key can be added afterwards
+	 */
+	public Dawg<V> build() {
+		if (isBuilt) {
+			throw new IllegalStateException("IllegalStateException: the DAWG is already built.");
+		}
+		isBuilt = true;
+		if (previous != null) {
+			replaceOrRegister(0);
+		}
+		register = null;
+
+		// number the states in depth-first order, and count their arcs
+		IdentityHashMap<State, Integer> ids = new IdentityHashMap<State, Integer>();
+		List<State> states = new ArrayList<State>();
+		ArrayList<State> stack = new ArrayList<State>();
+		stack.add(path[0]);
+		ids.put(path[0], 0);
+		int numArcs = 0;
+		while (stack.isEmpty() == false) {
+			State state = stack.remove(stack.size() - 1);
+			states.add(state);
+			numArcs += state.numArcs;
+			for (int i = state.numArcs - 1; i >= 0; i--) {
+				State target = state.targets[i];
+				if (ids.containsKey(target) == false) {
+					ids.put(target, ids.size());
+					stack.add(target);
+				}
+			}
+		}
+		// 'states' is in the order of popping, which differs from the order of 'ids'
+		int numStates = states.size();
+		State[] byId = new State[numStates];
+		for (State state : states) {
+			byId[ids.get(state)] = state;
+		}
+		int[] firstArcs = new int[numStates + 1];
+		char[] labels = new char[numArcs];
+		int[] targets = new int[numArcs];
+		boolean[] finals = new boolean[numStates];
+		int arc = 0;
+		for (int id = 0; id < numStates; id++) {
+			State state = byId[id];
+			firstArcs[id] = arc;
+			finals[id] = state.isFinal;
+			for (int i = 0; i < state.numArcs; i++) {
+				labels[arc] = state.labels[i];
+				targets[arc] = ids.get(state.targets[i]);
+				arc++;
+			}
+		}
+		firstArcs[numStates] = arc;
+		path = null;
+
+		boolean hasValues = false;
+		for (Object value : values) {
+			if (value != null) {
+				hasValues = true;
+				break;
+			}
+		}
+		Dawg<V> dawg = new Dawg<V>(firstArcs, labels, targets, finals, hasValues ? values.toArray() : null);
+		values = null;
+		return dawg;
+	}
+
+	/**
+	 * a state under construction;
+	 * two states are equal if they are both final or both not, and have the same labels and the identical targets
+	 */
+	private static final class State {
+
+		private static final char[] NO_LABELS = new char[0];
+
+		private static final State[] NO_TARGETS = new State[0];
+
+		char[] labels = NO_LABELS;
+
+		State[] targets = NO_TARGETS;
+
+		int numArcs;
+
+		boolean isFinal;
+
+		/**
+		 * adds an arc after the existing arcs, as labels are added in ascending order
+		 */
+		void addArc(char label, State target) {
+			if (numArcs == labels.length) {
+				int capacity = Math.max(2, numArcs * 2);
+				labels = Arrays.copyOf(labels, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+			}
+			labels[numArcs] = label;
+			targets[numArcs] = target;
+			numArcs++;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = isFinal ? 1 : 0;
+			for (int i = 0; i < numArcs; i++) {
+				hash = hash * 31 + labels[i];
+				hash = hash * 31 + System.identityHashCode(targets[i]);
+			}
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof State == false) {
+				return false;
+			}
+			State other = (State) obj;
+			if (isFinal != other.isFinal || numArcs != other.numArcs) {
+				return false;
+			}
+			for (int i = 0; i < numArcs; i++) {
+				if (labels[i] != other.labels[i] || targets[i] != other.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,558 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 
+ * a read-only double-array (base/check) trie compiled from a PrefixTrie or SuffixTrie with AbstractTrie.freeze(), 
+ * or directly from keys for IntPrefixTrie and LongPrefixTrie; 
+ * the transition from state s with child index i is t = base[s] + i + 1, which exists if check[t] == s.
+ * 
+ * Key-value nodes are numbered in depth-first order, 
+ * so that the key-value nodes of the sub-tree of a state are the range [kvBegins[state], kvEnds[state]) 
+ * of 'values', 'scores', 'kvStates' and 'kvLevels', and bestOrdinals[state] is the best of them. 
+ * Queried nodes are returned as lightweight TrieNode views of states.
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type 
+ */
+public final class DoubleArrayTrie<V> extends AbstractDoubleArrayTrie {
+	
+	/**
+	 * the state of the root
+	 */
+	static final int ROOT = 0;
+	
+	/**
+	 * the check value of unused states
+	 */
+	private static final int UNUSED = -1;
+	
+	int[] base;
+	int[] check;
+	int[] kvBegins;
+	int[] kvEnds;
+	
+	/**
+	 * the first child state of each state, and the next sibling state of each state in ascending order of child indexes, 
+	 * or -1 if there is none; children are enumerated with them instead of probing every index of the alphabet
+	 */
+	int[] firstChildren;
+	int[] nextSiblings;
+	
+	/**
+	 * the values of key-value nodes in depth-first order
+	 */
+	Object[] values;
+	
+	/**
+	 * the scores of key-value nodes in depth-first order
+	 */
+	int[] scores;
+	
+	/**
+	 * the states of key-value nodes in depth-first order
+	 */
+	int[] kvStates;
+	
+	/**
+	 * the levels of key-value nodes in depth-first order
+	 */
+	int[] kvLevels;
+	
+	/**
+	 * for a trie compiled directly from keys, the positions of the keys of key-value nodes among the keys in depth-first order, 
+	 * and null otherwise
+	 */
+	int[] kvPositions;
+	
+	/**
+	 * the ordinal of the highest scored key-value node of the sub-tree of each state, the first one in depth-first order among ties, 
+	 * or -1 if the sub-tree has no key-value nodes; the maximum scores of sub-trees for best-first searches
+	 */
+	int[] bestOrdinals;
+	
+	/**
+	 * the alphabet of the source trie
+	 */
+	final Alphabet alphabet;
+	
+	/**
+	 * true if keys are walked from their last chars, as for SuffixTrie
+	 */
+	final boolean reversed;
+	
+	/**
+	 * number of used states
+	 */
+	private int numStates;
+	
+	/**
+	 * the first state which may be unused, for faster base searching
+	 */
+	private int firstFreeState;
+	
+	private int numKeyValueNodes;
+	
+	/**
+	 * @param trie : the source trie
+	 * @param reversed : true if keys are walked from their last chars
+	 */
+	DoubleArrayTrie(AbstractTrie<V> trie, boolean reversed) {
+		this.alphabet = trie.alphabet;
+		this.reversed = reversed;
+		allocate(trie.size());
+		values = new Object[trie.size()];
+		compile(trie.getRoot(), ROOT);
+		trim();
+	}
+	
+	/**
+	 * compiles keys directly, without a trie of TrieNodes, for the tries with primitive values; 
+	 * 'values' is null, and kvPositions maps the key-value nodes to the positions of their keys. 
+	 * For duplicate keys, the last position and its score win
+	 * @param keys : the keys, all supported by 'alphabet'
+	 * @param positions : the positions of the keys at 'keys' and 'scores' to compile
+	 * @param scores : the scores of the keys
+	 * @param alphabet : the supported chars of the trie
+	 */
+	DoubleArrayTrie(List<String> keys, int[] positions, int[] scores, Alphabet alphabet) {
+		this.alphabet = alphabet;
+		this.reversed = false;
+		allocate(positions.length);
+		kvPositions = new int[positions.length];
+		long[] entries = new long[positions.length];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = positions[i];
+		}
+		compile(keys, scores, entries, 0, entries.length, 0, ROOT);
+		trim();
+		this.scores = Arrays.copyOf(this.scores, numKeyValueNodes);
+		kvStates = Arrays.copyOf(kvStates, numKeyValueNodes);
+		kvLevels = Arrays.copyOf(kvLevels, numKeyValueNodes);
+		kvPositions = Arrays.copyOf(kvPositions, numKeyValueNodes);
+	}
+	
+	/**
+	 * allocates the arrays before compilation, with the root as its own parent
+	 * @param maxNumKeyValueNodes : the maximum number of key-value nodes
+	 */
+	private void allocate(int maxNumKeyValueNodes) {
+		int capacity = Math.max(alphabet.size() + 2, 64);
+		base = new int[capacity];
+		check = new int[capacity];
+		Arrays.fill(check, UNUSED);
+		kvBegins = new int[capacity];
+		kvEnds = new int[capacity];
+		firstChildren = new int[capacity];
+		nextSiblings = new int[capacity];
+		bestOrdinals = new int[capacity];
+		scores = new int[maxNumKeyValueNodes];
+		kvStates = new int[maxNumKeyValueNodes];
+		kvLevels = new int[maxNumKeyValueNodes];
+		
+		check[ROOT] = ROOT;
+		numStates = 1;
+		firstFreeState = 1;
+	}
+	
+	/**
+	 * trims the arrays of states to the used states after compilation
+	 */
+	private void trim() {
+		// the root is its own parent only during compilation, so that state 0 is never taken by a child  
+		check[ROOT] = UNUSED;
+		int length = numStates;
+		base = Arrays.copyOf(base, length);
+		check = Arrays.copyOf(check, length);
+		kvBegins = Arrays.copyOf(kvBegins, length);
+		kvEnds = Arrays.copyOf(kvEnds, length);
+		firstChildren = Arrays.copyOf(firstChildren, length);
+		nextSiblings = Arrays.copyOf(nextSiblings, length);
+		nextSiblings[ROOT] = -1;
+		bestOrdinals = Arrays.copyOf(bestOrdinals, length);
+	}
+	
+	/**
+	 * places the children of 'node' and compiles the sub-tree of 'node' recursively in depth-first order
+	 * @param node : a node of the source trie
+	 * @param state : the state of 'node'
+	 */
+	private void compile(TrieNode<V> node, int state) {
+		kvBegins[state] = numKeyValueNodes;
+		int best = -1;
+		if (node.isKeyValueNode()) {
+			values[numKeyValueNodes] = node.getValue();
+			scores[numKeyValueNodes] = node.getScore();
+			kvStates[numKeyValueNodes] = state;
+			kvLevels[numKeyValueNodes] = node.getLevel();
+			best = numKeyValueNodes++;
+		}
+		List<TrieNode<V>> children = node.getNonNullChildren();
+		firstChildren[state] = -1;
+		if (children.isEmpty() == false) {
+			int[] codes = new int[children.size()];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = alphabet.indexOf(children.get(i).c) + 1;
+			}
+			int b = place(state, codes);
+			for (int i = 0; i < codes.length; i++) {
+				int child = b + codes[i];
+				compile(children.get(i), child);
+				best = better(best, bestOrdinals[child]);
+			}
+		}
+		kvEnds[state] = numKeyValueNodes;
+		bestOrdinals[state] = best;
+	}
+	
+	/**
+	 * compiles the sub-tree of a state from the keys which pass through it, recursively in depth-first order
+	 * @param keys : the keys
+	 * @param scores : the scores of the keys
+	 * @param entries : the positions of the keys at 'keys' and 'scores', in their low 32 bits
+	 * @param from : the first entry of the keys which pass through 'state'
+	 * @param to : the entry after the last entry of the keys which pass through 'state'
+	 * @param level : the level of 'state'
+	 * @param state : a state
+	 */
+	private void compile(List<String> keys, int[] scores, long[] entries, int from, int to, int level, int state) {
+		// the code of a key at this level is 0 if the key ends here, and the child index of its next char plus 1 otherwise; 
+		// sorting the codes in the high bits groups the keys by child, in child index order and then in position order
+		for (int i = from; i < to; i++) {
+			int position = (int) entries[i];
+			String key = keys.get(position);
+			long code = key.length() == level ? 0 : alphabet.indexOf(key.charAt(level)) + 1;
+			entries[i] = (code << 32) | position;
+		}
+		Arrays.sort(entries, from, to);
+		kvBegins[state] = numKeyValueNodes;
+		int best = -1;
+		int start = from;
+		while (start < to && (entries[start] >>> 32) == 0) {
+			start++;
+		}
+		if (start > from) {
+			// the last of duplicate keys wins
+			int position = (int) entries[start - 1];
+			this.scores[numKeyValueNodes] = scores[position];
+			kvStates[numKeyValueNodes] = state;
+			kvLevels[numKeyValueNodes] = level;
+			kvPositions[numKeyValueNodes] = position;
+			best = numKeyValueNodes++;
+		}
+		firstChildren[state] = -1;
+		if (start < to) {
+			int numChildren = 0;
+			int[] codes = new int[8];
+			int[] starts = new int[9];
+			for (int i = start; i < to; i++) {
+				int code = (int) (entries[i] >>> 32);
+				if (i == start || code != codes[numChildren - 1]) {
+					if (numChildren == codes.length) {
+						codes = Arrays.copyOf(codes, numChildren * 2);
+						starts = Arrays.copyOf(starts, numChildren * 2 + 1);
+					}
+					codes[numChildren] = code;
+					starts[numChildren++] = i;
+				}
+			}
+			starts[numChildren] = to;
+			codes = Arrays.copyOf(codes, numChildren);
+			int b = place(state, codes);
+			for (int i = 0; i < numChildren; i++) {
+				int child = b + codes[i];
+				compile(keys, scores, entries, starts[i], starts[i + 1], level + 1, child);
+				best = better(best, bestOrdinals[child]);
+			}
+		}
+		kvEnds[state] = numKeyValueNodes;
+		bestOrdinals[state] = best;
+	}
+	
+	/**
+	 * places the children of a state on unused states
+	 * @param state : a state
+	 * @param codes : the sorted codes of its children, the child indexes plus 1
+	 * @return the base of the state
+	 */
+	private int place(int state, int[] codes) {
+		int b = findBase(codes);
+		base[state] = b;
+		for (int i = 0; i < codes.length; i++) {
+			check[b + codes[i]] = state;
+			numStates = Math.max(numStates, b + codes[i] + 1);
+			nextSiblings[b + codes[i]] = i + 1 < codes.length ? b + codes[i + 1] : -1;
+		}
+		firstChildren[state] = b + codes[0];
+		return b;
+	}
+	
+	/**
+	 * @param best : the best ordinal so far, or -1
+	 * @param childBest : the best ordinal of a later sub-tree, or -1
+	 * @return the better of them; strictly greater, so that the first of tied key-value nodes in depth-first order is kept
+	 */
+	private int better(int best, int childBest) {
+		return (childBest >= 0 && (best < 0 || scores[childBest] > scores[best])) ? childBest : best;
+	}
+	
+	/**
+	 * @param codes : the sorted codes of the children of a state
+	 * @return a base with which all children fall on unused states
+	 */
+	private int findBase(int[] codes) {
+		int first = -1;
+		int numOccupied = 0;
+		for (int position = Math.max(firstFreeState, codes[0] + 1); ; position++) {
+			ensureCapacity(position + 1);
+			if (check[position] != UNUSED) {
+				numOccupied++;
+				continue;
+			}
+			if (first < 0) {
+				first = position;
+			}
+			int b = position - codes[0];
+			ensureCapacity(b + codes[codes.length - 1] + 1);
+			boolean fits = true;
+			for (int i = 1; i < codes.length; i++) {
+				if (check[b + codes[i]] != UNUSED) {
+					fits = false;
+					break;
+				}
+			}
+			if (fits) {
+				// skip densely occupied states in later searches, as in darts
+				if (numOccupied >= 0.95 * (position - firstFreeState + 1)) {
+					firstFreeState = position;
+				} else if (first > firstFreeState) {
+					firstFreeState = first;
+				}
+				return b;
+			}
+		}
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity > check.length) {
+			int length = Math.max(capacity, check.length + (check.length >> 1));
+			int oldLength = check.length;
+			base = Arrays.copyOf(base, length);
+			check = Arrays.copyOf(check, length);
+			Arrays.fill(check, oldLength, length, UNUSED);
+			kvBegins = Arrays.copyOf(kvBegins, length);
+			kvEnds = Arrays.copyOf(kvEnds, length);
+			firstChildren = Arrays.copyOf(firstChildren, length);
+			nextSiblings = Arrays.copyOf(nextSiblings, length);
+			bestOrdinals = Arrays.copyOf(bestOrdinals, length);
+		}
+	}
+	
+	/**
+	 * @param state : a state
+	 * @param index : a child index
+	 * @return the child state, or -1 if there is no such child
+	 */
+	final int transition(int state, int index) {
+		int t = base[state] + index + 1;
+		return (t < check.length && check[t] == state && t != ROOT) ? t : -1;
+	}
+	
+	/**
+	 * @param c : a char
+	 * @return the child index of c, or -1 if c is not supported
+	 */
+	final int charToIndex(char c) {
+		return alphabet.indexOf(c);
+	}
+	
+	@Override
+	int kvBegin(int state) {
+		return kvBegins[state];
+	}
+	
+	@Override
+	int kvEnd(int state) {
+		return kvEnds[state];
+	}
+	
+	@Override
+	int kvState(int ordinal) {
+		return kvStates[ordinal];
+	}
+	
+	@Override
+	int score(int ordinal) {
+		return scores[ordinal];
+	}
+	
+	@Override
+	int bestOrdinal(int state) {
+		return bestOrdinals[state];
+	}
+	
+	@Override
+	int firstChild(int state) {
+		return firstChildren[state];
+	}
+	
+	@Override
+	int nextSibling(int state) {
+		return nextSiblings[state];
+	}
+	
+	/**
+	 * @return number of key-value nodes of this trie
+	 */
+	public int size() {
+		return numKeyValueNodes;
+	}
+	
+	/**
+	 * @return the root
+	 */
+	public TrieNode<V> getRoot() {
+		return view(ROOT, 0);
+	}
+	
+	/**
+	 * @param state : a state
+	 * @param level : the level of the state
+	 * @return a view of the state
+	 */
+	TrieNode<V> view(int state, int level) {
+		return new DoubleArrayTrieNode<V>(this, state, level);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the state of the node of 'word', or -1 if it does not exist
+	 */
+	int getState(CharSequence word) {
+		int state = ROOT;
+		int length = word.length();
+		for (int i = 0; i < length && state >= 0; i++) {
+			int index = charToIndex(word.charAt(reversed ? length - 1 - i : i));
+			state = index >= 0 ? transition(state, index) : -1;
+		}
+		return state;
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return either a key-value node or a non key-value node
+	 */
+	public TrieNode<V> getNodeWithLongestCommonPart(CharSequence word) {
+		int state = ROOT;
+		int length = word.length();
+		int level = 0;
+		for (; level < length; level++) {
+			int index = charToIndex(word.charAt(reversed ? length - 1 - level : level));
+			int next = index >= 0 ? transition(state, index) : -1;
+			if (next < 0) {
+				break;
+			}
+			state = next;
+		}
+		return view(state, level);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the node that is prefixed or suffixed with word; 
+	 * it may be a non-key-value node or a leaf node
+	 */
+	public TrieNode<V> getNode(CharSequence word) {
+		int state = getState(word);
+		return state < 0 ? null : view(state, word.length());
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the key-value node for the exact word, or null if it does not exist
+	 */
+	public TrieNode<V> getkeyValueNode(CharSequence word) {
+		int state = getState(word);
+		return (state >= 0 && isKeyValueState(state)) ? view(state, word.length()) : null;
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie 
+	 * @return all key-value nodes prefixed or suffixed with this word 
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word) {
+		int state = getState(word);
+		return state < 0 ? Collections.<TrieNode<V>>emptyList() : getKeyValueNodes(kvBegins[state], kvEnds[state]);
+	}
+	
+	/**
+	 * @param begin : the first key-value ordinal
+	 * @param end : the ordinal after the last key-value ordinal
+	 * @return views of the key-value nodes with ordinals in [begin, end)
+	 */
+	List<TrieNode<V>> getKeyValueNodes(int begin, int end) {
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(end - begin);
+		for (int i = begin; i < end; i++) {
+			result.add(keyValueView(i));
+		}
+		return Collections.unmodifiableList(result);
+	}
+	
+	/**
+	 * @param ordinal : a key-value ordinal
+	 * @return a view of the key-value node
+	 */
+	TrieNode<V> keyValueView(int ordinal) {
+		return view(kvStates[ordinal], kvLevels[ordinal]);
+	}
+	
+	/**
+	 * @return the top scored key-value node
+	 */
+	public TrieNode<V> getBestKeyValueNode() {
+		return getBestKeyValueNode("");
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the highest scored key-value node with level &gt;= word.length(), or null if there is no such node; 
+	 * the first one in depth-first order among ties
+	 */
+	public TrieNode<V> getBestKeyValueNode(CharSequence word) {
+		int state = getState(word);
+		return (state < 0 || bestOrdinals[state] < 0) ? null : keyValueView(bestOrdinals[state]);
+	}
+	
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes with level &gt;= word.length(), in descending order of scores, 
+	 * and in depth-first order among ties as for PrefixTrie
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive "); 
+		}
+		int state = getState(word);
+		return state < 0 ? Collections.<TrieNode<V>>emptyList() : getBestKeyValueNodes(state, numTopKeyValueNodes);
+	}
+	
+	/**
+	 * @param state : a state
+	 * @param numTopKeyValueNodes : number of top key-value nodes, which is positive
+	 * @return the best key-value nodes of the sub-tree of the state, in descending order of scores, found by topOrdinals
+	 */
+	List<TrieNode<V>> getBestKeyValueNodes(int state, int numTopKeyValueNodes) {
+		int[] ordinals = topOrdinals(state, numTopKeyValueNodes);
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(ordinals.length);
+		for (int ordinal : ordinals) {
+			result.add(keyValueView(ordinal));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,159 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 
+ * a lightweight TrieNode view of a state of a DoubleArrayTrie; 
+ * views are created on demand, and two views are equal if they refer to the same state. 
+ * As PooledTrieNode, a view keeps nothing but the state, besides the final char and level, and every accessor reads the trie
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type 
+ */
+final class DoubleArrayTrieNode<V> extends TrieNode<V> {
+	
+	final DoubleArrayTrie<V> trie;
+	
+	final int state;
+	
+	DoubleArrayTrieNode(DoubleArrayTrie<V> trie, int state, int level) {
+		super(state == DoubleArrayTrie.ROOT ? (char) 0 : 
+			trie.alphabet.charAt(state - trie.base[trie.check[state]] - 1), level);
+		this.trie = trie;
+		this.state = state;
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public V getValue() {
+		return isKeyValueNode() ? (V) trie.values[trie.kvBegins[state]] : null;
+	}
+	
+	@Override
+	public void setValue(V value) {
+		if (isKeyValueNode() == false) {
+			throw new UnsupportedOperationException("UnsupportedOperationException: a DoubleArrayTrie is read-only except for values of key-value nodes.");
+		}
+		trie.values[trie.kvBegins[state]] = value;
+	}
+	
+	@Override
+	public int getScore() {
+		return isKeyValueNode() ? trie.scores[trie.kvBegins[state]] : 0;
+	}
+	
+	@Override
+	public void setScore(int score) {
+		throw new UnsupportedOperationException("UnsupportedOperationException: scores of a DoubleArrayTrie are read-only.");
+	}
+	
+	@Override
+	public int getMaxScore() {
+		return trie.maxScore(state);
+	}
+	
+	@Override
+	public boolean isKeyValueNode() {
+		return trie.isKeyValueState(state);
+	}
+	
+	@Override
+	public TrieNode<V> getParent() {
+		return isRoot() ? null : trie.view(trie.check[state], level - 1);
+	}
+	
+	@Override
+	public String getKey() {
+		char[] keyChars = new char[level];
+		int s = state;
+		for (int offset = level - 1; offset >= 0; offset--) {
+			int parent = trie.check[s];
+			keyChars[offset] = trie.alphabet.charAt(s - trie.base[parent] - 1);
+			s = parent;
+		}
+		return new String(keyChars);
+	}
+	
+	@Override
+	public int getNumChildren() {
+		int count = 0;
+		for (int child = trie.firstChildren[state]; child >= 0; child = trie.nextSiblings[child]) {
+			count++;
+		}
+		return count;
+	}
+	
+	@Override
+	public List<TrieNode<V>> getNonNullChildren() {
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+		for (int child = trie.firstChildren[state]; child >= 0; child = trie.nextSiblings[child]) {
+			result.add(trie.view(child, level + 1));
+		}
+		return result;
+	}
+	
+	@Override
+	public TrieNode<V> getFirstChild() {
+		return getChildAt(0);
+	}
+	
+	@Override
+	TrieNode<V> getChild(int index) {
+		int child = trie.transition(state, index);
+		return child < 0 ? null : trie.view(child, level + 1);
+	}
+	
+	@Override
+	TrieNode<V> getChildAt(int i) {
+		for (int child = trie.firstChildren[state]; child >= 0; child = trie.nextSiblings[child]) {
+			if (i-- == 0) {
+				return trie.view(child, level + 1);
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	void addChild(int index, TrieNode<V> node, int alphabetSize) {
+		throw new UnsupportedOperationException("UnsupportedOperationException: a DoubleArrayTrie is read-only.");
+	}
+	
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes() {
+		return trie.getKeyValueNodes(trie.kvBegins[state], trie.kvEnds[state]);
+	}
+	
+	@Override
+	public TrieNode<V> getBestKeyValueNode() {
+		int best = trie.bestOrdinals[state];
+		return best < 0 ? null : trie.keyValueView(best);
+	}
+	
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive "); 
+		}
+		return trie.getBestKeyValueNodes(state, numTopKeyValueNodes);
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof DoubleArrayTrieNode) {
+			DoubleArrayTrieNode<?> other = (DoubleArrayTrieNode<?>) obj;
+			return trie == other.trie && state == other.state;
+		}
+		return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(trie) * 31 + state;
+	}
+}
@@ -0,0 +1,106 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <pre>
+ * a read-only prefix trie with long values, which are kept in a long[] instead of boxed Longs at TrieNodes,
+ * for workloads such as mapping keys to ids;
+ * values, keys and top-k results by prefix are returned as primitive arrays.
+ *
+ * For example:
+ * LongPrefixTrie trie = new LongPrefixTrie(keys, ids, scores);
+ * long id = trie.getValue("abc", -1L);
+ * long[] ids = trie.getValues("ab");
+ * long[] bestIds = trie.getBestValues("ab", 10);
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public final class LongPrefixTrie extends AbstractPrimitiveTrie {
+
+	/**
+	 * the values in the depth-first order of the keys
+	 */
+	private final long[] values;
+
+	/**
+	 * constructor for constructing a trie with the keys and values, with scores of 1
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 */
+	public LongPrefixTrie(List<String> keys, long[] values) {
+		this(keys, values, AbstractTrie.ones(keys.size()), Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 */
+	public LongPrefixTrie(List<String> keys, long[] values, int[] scores) {
+		this(keys, values, scores, Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores;
+	 * for duplicate keys, the last value and score win
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 * @param alphabet : the supported chars of this trie
+	 */
+	public LongPrefixTrie(List<String> keys, long[] values, int[] scores, Alphabet alphabet) {
+		super(keys, values.length, scores, alphabet);
+		int[] positions = takePositions();
+		this.values = new long[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			this.values[i] = values[positions[i]];
+		}
+	}
+
+	/**
+	 * @param key : a key
+	 * @param defaultValue : the value returned if the key does not exist
+	 * @return the value of the key, or 'defaultValue' if the key does not exist
+	 */
+	public long getValue(CharSequence key, long defaultValue) {
+		int ordinal = ordinalOf(key);
+		return ordinal < 0 ? defaultValue : values[ordinal];
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @return the values of the keys prefixed with 'prefix', in the order of getKeys(prefix)
+	 */
+	public long[] getValues(CharSequence prefix) {
+		int[] range = rangeOf(prefix);
+		return Arrays.copyOfRange(values, range[0], range[1]);
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @param defaultValue : the value returned if there is no key prefixed with 'prefix'
+	 * @return the value of the highest scored key prefixed with 'prefix', or 'defaultValue' if there is no such key
+	 */
+	public long getBestValue(CharSequence prefix, long defaultValue) {
+		int ordinal = bestOrdinalOf(prefix);
+		return ordinal < 0 ? defaultValue : values[ordinal];
+	}
+
+	/**
+	 * @param prefix : a prefix
+	 * @param numTopKeys : number of top keys
+	 * @return the values of the best keys prefixed with 'prefix', in descending order of scores
+	 */
+	public long[] getBestValues(CharSequence prefix, int numTopKeys) {
+		int[] ordinals = bestOrdinalsOf(prefix, numTopKeys);
+		long[] bestValues = new long[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++) {
+			bestValues[i] = values[ordinals[i]];
+		}
+		return bestValues;
+	}
+}
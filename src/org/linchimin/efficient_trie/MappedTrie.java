@@ -0,0 +1,508 @@
+package org.linchimin.efficient_trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <pre>
+ * a read-only trie which runs queries directly against a buffer in the binary format of a DoubleArrayTrie,
+ * typically a file mapped by open(path, codec), so that loading takes no parsing and no copying,
+ * and JVMs on the same host share the pages of the file.
+ *
+ * Key-value nodes are addressed by int ids, which are their depth-first ordinals;
+ * the ids of the keys prefixed with a prefix (suffixed with a suffix for a SuffixTrie) are a contiguous range,
+ * and the best id of the sub-tree of each state is stored, so that top-k queries are best-first searches as for DoubleArrayTrie.
+ * Values are decoded on demand from the buffer by a ValueCodec, or kept by the caller in an array indexed by id.
+ *
+ * The format is little-endian and 4-byte aligned:
+ * header : MAGIC, VERSION, flags, numStates, numKeyValueNodes, alphabet size (-1 for Alphabet.unicode())
+ * alphabet : the chars in index order, padded to 4 bytes
+ * base, check, kvBegins, kvEnds, bestOrdinals, firstChildren, nextSiblings : numStates ints each
+ * scores, kvStates : numKeyValueNodes ints each
+ * if FLAG_VALUES is set, valueOffsets : numKeyValueNodes + 1 ints relative to the value bytes, followed by the value bytes
+ *
+ * As a MappedByteBuffer is indexed by int, a file is at most Integer.MAX_VALUE bytes (2 GB); 
+ * write rejects larger tries, and open rejects larger files.
+ * The length of every section is checked against the capacity of the buffer when it is loaded.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class MappedTrie<V> extends AbstractDoubleArrayTrie {
+
+	/**
+	 * "ETRI"
+	 */
+	private static final int MAGIC = 0x45545249;
+
+	private static final int VERSION = 2;
+
+	private static final int FLAG_REVERSED = 1;
+
+	private static final int FLAG_VALUES = 2;
+
+	private static final int HEADER_INTS = 6;
+
+	private static final int ROOT = DoubleArrayTrie.ROOT;
+
+	private final ByteBuffer buffer;
+
+	private final IntBuffer base, check, kvBegins, kvEnds, bestOrdinals, firstChildren, nextSiblings, scores, kvStates, valueOffsets;
+
+	/**
+	 * the offset of the value bytes at 'buffer'
+	 */
+	private final int valuesOffset;
+
+	private final Alphabet alphabet;
+
+	private final boolean reversed;
+
+	private final int numStates;
+
+	private final int numKeyValueNodes;
+
+	private final ValueCodec<V> codec;
+
+	/**
+	 * @param buffer : a buffer in the format of this class, from its position to its limit; it is not modified
+	 * @param codec : the codec of the values, or null if values are not needed
+	 */
+	public MappedTrie(ByteBuffer buffer, ValueCodec<V> codec) {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		this.codec = codec;
+		if (this.buffer.capacity() < HEADER_INTS * 4 || this.buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("IllegalArgumentException: the buffer is not in the format of MappedTrie.");
+		} else if (this.buffer.getInt(4) != VERSION) {
+			throw new IllegalArgumentException("IllegalArgumentException: unsupported MappedTrie version " + this.buffer.getInt(4) + ".");
+		}
+		int flags = this.buffer.getInt(8);
+		reversed = (flags & FLAG_REVERSED) != 0;
+		numStates = this.buffer.getInt(12);
+		numKeyValueNodes = this.buffer.getInt(16);
+		int alphabetSize = this.buffer.getInt(20);
+		if (numStates <= ROOT || numKeyValueNodes < 0 || alphabetSize < -1) {
+			throw new IllegalArgumentException("IllegalArgumentException: invalid MappedTrie header; numStates = " + numStates 
+					+ ", numKeyValueNodes = " + numKeyValueNodes + ", alphabet size = " + alphabetSize + ".");
+		}
+		int offset = HEADER_INTS * 4;
+		if (alphabetSize < 0) {
+			alphabet = Alphabet.unicode();
+		} else {
+			checkSection("alphabet", offset, (2L * alphabetSize + 3) & ~3);
+			char[] chars = new char[alphabetSize];
+			for (int i = 0; i < alphabetSize; i++) {
+				chars[i] = this.buffer.getChar(offset + 2 * i);
+			}
+			alphabet = Alphabet.ofDistinct(chars);
+			offset += (2 * alphabetSize + 3) & ~3;
+		}
+		base = ints(offset, numStates);
+		offset += 4 * numStates;
+		check = ints(offset, numStates);
+		offset += 4 * numStates;
+		kvBegins = ints(offset, numStates);
+		offset += 4 * numStates;
+		kvEnds = ints(offset, numStates);
+		offset += 4 * numStates;
+		bestOrdinals = ints(offset, numStates);
+		offset += 4 * numStates;
+		firstChildren = ints(offset, numStates);
+		offset += 4 * numStates;
+		nextSiblings = ints(offset, numStates);
+		offset += 4 * numStates;
+		scores = ints(offset, numKeyValueNodes);
+		offset += 4 * numKeyValueNodes;
+		kvStates = ints(offset, numKeyValueNodes);
+		offset += 4 * numKeyValueNodes;
+		if ((flags & FLAG_VALUES) != 0) {
+			valueOffsets = ints(offset, numKeyValueNodes + 1);
+			offset += 4 * (numKeyValueNodes + 1);
+			valuesOffset = offset;
+			int valuesLength = valueOffsets.get(numKeyValueNodes);
+			if (valueOffsets.get(0) != 0 || valuesLength < 0) {
+				throw new IllegalArgumentException("IllegalArgumentException: invalid MappedTrie value offsets; "
+						+ "the first is " + valueOffsets.get(0) + " and the last is " + valuesLength + ".");
+			}
+			checkSection("values", offset, valuesLength);
+		} else {
+			valueOffsets = null;
+			valuesOffset = -1;
+		}
+	}
+
+	/**
+	 * @param name : the name of the section, for the message
+	 * @param offset : the offset of the section at 'buffer'
+	 * @param length : the number of bytes of the section
+	 * @throws IllegalArgumentException if the section does not end within the capacity of 'buffer'
+	 */
+	private void checkSection(String name, int offset, long length) {
+		if (offset + length > buffer.capacity()) {
+			throw new IllegalArgumentException("IllegalArgumentException: the buffer is truncated; the " + name + " section [" + offset 
+					+ ", " + (offset + length) + ") exceeds the capacity " + buffer.capacity() + ".");
+		}
+	}
+
+	/**
+	 * @param offset : an offset at 'buffer'
+	 * @param length : a number of ints
+	 * @return a view of the ints
+	 * @throws IllegalArgumentException if the ints do not end within the capacity of 'buffer'
+	 */
+	private IntBuffer ints(int offset, int length) {
+		checkSection("int", offset, 4L * length);
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.limit(offset + 4 * length);
+		return view.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+	}
+
+	/**
+	 * maps a file written by write(trie, path, codec) read-only;
+	 * the mapping stays valid until the MappedTrie is garbage collected, also after the file is deleted or replaced
+	 * @param path : the path of the file
+	 * @param codec : the codec with which the values were written, or null if values are not needed
+	 * @return the trie
+	 * @throws IOException if the file cannot be mapped
+	 * @throws IllegalArgumentException if the file is larger than 2 GB, or not in the format of this class
+	 */
+	public static <V> MappedTrie<V> open(Path path, ValueCodec<V> codec) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("IllegalArgumentException: the file " + path + " (" + size 
+						+ " bytes) exceeds the 2 GB limit of a MappedByteBuffer.");
+			}
+			return new MappedTrie<V>(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), codec);
+		}
+	}
+
+	/**
+	 * writes a trie in the format of this class; 
+	 * the file is written as a temporary file in the same directory, which then replaces 'path' by an atomic move, 
+	 * so that readers of 'path' never map a partially written file
+	 * @param trie : a trie, like prefixTrie.freeze()
+	 * @param path : the path of the file, which is created or replaced
+	 * @param codec : the codec of the values, or null for writing keys and scores only, with values addressed by id
+	 * @throws IOException if the file cannot be written, or the file system cannot move it atomically
+	 * @throws IllegalArgumentException if the file would be larger than 2 GB
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> void write(DoubleArrayTrie<V> trie, Path path, ValueCodec<? super V> codec) throws IOException {
+		int numStates = trie.base.length;
+		int numKeyValueNodes = trie.size();
+		boolean isUnicode = trie.alphabet == Alphabet.unicode();
+		long fileSize = HEADER_INTS * 4 + (isUnicode ? 0 : (2L * trie.alphabet.size() + 3) & ~3) 
+				+ 4L * (7L * numStates + 2L * numKeyValueNodes);
+		byte[][] encoded = null;
+		if (codec != null) {
+			encoded = new byte[numKeyValueNodes][];
+			fileSize += 4L * (numKeyValueNodes + 1);
+			for (int i = 0; i < numKeyValueNodes; i++) {
+				encoded[i] = ((ValueCodec<V>) codec).encode((V) trie.values[i]);
+				fileSize += encoded[i].length;
+			}
+		}
+		if (fileSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("IllegalArgumentException: the trie takes " + fileSize 
+					+ " bytes, which exceeds the 2 GB limit of a MappedByteBuffer.");
+		}
+		Path absolutePath = path.toAbsolutePath();
+		Path temp = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName() + ".", ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer out = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+				out.putInt(MAGIC).putInt(VERSION);
+				out.putInt((trie.reversed ? FLAG_REVERSED : 0) | (codec != null ? FLAG_VALUES : 0));
+				out.putInt(numStates).putInt(numKeyValueNodes).putInt(isUnicode ? -1 : trie.alphabet.size());
+				if (!isUnicode) {
+					for (int i = 0; i < trie.alphabet.size(); i++) {
+						out = ensureRemaining(channel, out, 2);
+						out.putChar(trie.alphabet.charAt(i));
+					}
+					if (trie.alphabet.size() % 2 != 0) {
+						out = ensureRemaining(channel, out, 2);
+						out.putChar((char) 0);
+					}
+				}
+				for (int[] ints : new int[][] {trie.base, trie.check, trie.kvBegins, trie.kvEnds, 
+						trie.bestOrdinals, trie.firstChildren, trie.nextSiblings, trie.scores, trie.kvStates}) {
+					for (int i : ints) {
+						out = ensureRemaining(channel, out, 4);
+						out.putInt(i);
+					}
+				}
+				if (encoded != null) {
+					int valueOffset = 0;
+					out = ensureRemaining(channel, out, 4);
+					out.putInt(0);
+					for (byte[] bytes : encoded) {
+						valueOffset += bytes.length;
+						out = ensureRemaining(channel, out, 4);
+						out.putInt(valueOffset);
+					}
+					for (byte[] bytes : encoded) {
+						out = ensureRemaining(channel, out, bytes.length);
+						out.put(bytes);
+					}
+				}
+				out.flip();
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+				channel.force(true);
+			}
+			Files.move(temp, absolutePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @param channel : the channel to write
+	 * @param out : the output buffer
+	 * @param length : the number of bytes to put
+	 * @return 'out' after it is flushed to 'channel' if it has less than 'length' bytes remaining,
+	 * or a larger buffer for a value larger than the capacity of 'out'
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static ByteBuffer ensureRemaining(FileChannel channel, ByteBuffer out, int length) throws IOException {
+		if (out.remaining() >= length) {
+			return out;
+		}
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+		return length <= out.capacity() ? out : ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return number of key-value nodes of this trie
+	 */
+	public int size() {
+		return numKeyValueNodes;
+	}
+
+	/**
+	 * @return the supported chars of this trie
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return true if keys are walked from their last chars, as for SuffixTrie
+	 */
+	public boolean isReversed() {
+		return reversed;
+	}
+
+	/**
+	 * @param state : a state
+	 * @param index : a child index
+	 * @return the child state, or -1 if there is no such child
+	 */
+	private int transition(int state, int index) {
+		int t = base.get(state) + index + 1;
+		return (t > ROOT && t < numStates && check.get(t) == state) ? t : -1;
+	}
+
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the state of the node of 'word', or -1 if it does not exist
+	 */
+	private int getState(CharSequence word) {
+		int state = ROOT;
+		int length = word.length();
+		for (int i = 0; i < length && state >= 0; i++) {
+			int index = alphabet.indexOf(word.charAt(reversed ? length - 1 - i : i));
+			state = index >= 0 ? transition(state, index) : -1;
+		}
+		return state;
+	}
+
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the word
+	 * @return the state of the node of the word, or -1 if it does not exist
+	 */
+	private int getState(char[] buf, int off, int len) {
+		AbstractTrie.checkRange(buf, off, len);
+		int state = ROOT;
+		for (int i = 0; i < len && state >= 0; i++) {
+			int index = alphabet.indexOf(buf[reversed ? off + len - 1 - i : off + i]);
+			state = index >= 0 ? transition(state, index) : -1;
+		}
+		return state;
+	}
+
+	@Override
+	int kvBegin(int state) {
+		return kvBegins.get(state);
+	}
+
+	@Override
+	int kvEnd(int state) {
+		return kvEnds.get(state);
+	}
+
+	@Override
+	int kvState(int ordinal) {
+		return kvStates.get(ordinal);
+	}
+
+	@Override
+	int score(int ordinal) {
+		return scores.get(ordinal);
+	}
+
+	@Override
+	int bestOrdinal(int state) {
+		return bestOrdinals.get(state);
+	}
+
+	@Override
+	int firstChild(int state) {
+		return firstChildren.get(state);
+	}
+
+	@Override
+	int nextSibling(int state) {
+		return nextSiblings.get(state);
+	}
+
+	/**
+	 * @param state : a state, or -1
+	 * @return the id of the key-value node of 'state', or -1 if it is not a key-value node
+	 */
+	private int idOf(int state) {
+		return (state >= 0 && isKeyValueState(state)) ? kvBegins.get(state) : -1;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the id of the key, or -1 if the key does not exist
+	 */
+	public int getId(CharSequence key) {
+		return idOf(getState(key));
+	}
+
+	/**
+	 * @param buf : a char array
+	 * @param off : the offset of a key at 'buf'
+	 * @param len : the length of the key
+	 * @return the id of the key, or -1 if the key does not exist
+	 */
+	public int getId(char[] buf, int off, int len) {
+		return idOf(getState(buf, off, len));
+	}
+
+	/**
+	 * @param key : a key
+	 * @return whether the key exists
+	 */
+	public boolean containsKey(CharSequence key) {
+		return getId(key) >= 0;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return the decoded value of the key, or null if the key does not exist
+	 */
+	public V getValue(CharSequence key) {
+		int id = getId(key);
+		return id < 0 ? null : getValue(id);
+	}
+
+	/**
+	 * @param id : the id of a key-value node
+	 * @return the decoded value
+	 */
+	public V getValue(int id) {
+		if (valueOffsets == null || codec == null) {
+			throw new UnsupportedOperationException("UnsupportedOperationException: the values are not written or no codec is given.");
+		}
+		int begin = valueOffsets.get(id);
+		return codec.decode(buffer, valuesOffset + begin, valueOffsets.get(id + 1) - begin);
+	}
+
+	/**
+	 * @param id : the id of a key-value node
+	 * @return the score
+	 */
+	public int getScore(int id) {
+		return scores.get(id);
+	}
+
+	/**
+	 * @param id : the id of a key-value node
+	 * @return the key, in its original char order also for a SuffixTrie
+	 */
+	public String getKey(int id) {
+		int state = kvStates.get(id);
+		int level = 0;
+		for (int s = state; s != ROOT; s = check.get(s)) {
+			level++;
+		}
+		char[] chars = new char[level];
+		for (int s = state, i = level - 1; s != ROOT; s = check.get(s), i--) {
+			int parent = check.get(s);
+			char c = alphabet.charAt(s - base.get(parent) - 1);
+			chars[reversed ? level - 1 - i : i] = c;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the ids of the keys prefixed or suffixed with 'word', in ascending order
+	 */
+	public int[] getIds(CharSequence word) {
+		int state = getState(word);
+		if (state < 0) {
+			return new int[0];
+		}
+		int begin = kvBegins.get(state);
+		int[] ids = new int[kvEnds.get(state) - begin];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = begin + i;
+		}
+		return ids;
+	}
+
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @return the id of the highest scored key prefixed or suffixed with 'word', the first one in depth-first order among ties, 
+	 * or -1 if there is no such key
+	 */
+	public int getBestId(CharSequence word) {
+		int state = getState(word);
+		return state < 0 ? -1 : bestOrdinals.get(state);
+	}
+
+	/**
+	 * @param word : prefix for PrefixTrie and suffix for SuffixTrie
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the ids of the best keys prefixed or suffixed with 'word', in descending order of scores, 
+	 * and in depth-first order among ties
+	 */
+	public int[] getBestIds(CharSequence word, int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive ");
+		}
+		int state = getState(word);
+		return state < 0 ? new int[0] : topOrdinals(state, numTopKeyValueNodes);
+	}
+}
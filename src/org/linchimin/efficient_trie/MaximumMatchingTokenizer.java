@@ -0,0 +1,75 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * a forward maximum matching tokenizer over the keys of a PrefixTrie, as a dictionary:
+ * at each offset of a text, the longest key starting at the offset is taken as a token, found by PrefixTrie.longestKeyPrefixOf,
+ * and a char which starts no key is taken as a token of its own.
+ * This is the usual baseline for segmenting CJK texts and compound words with a dictionary.
+ *
+ * For example, with keys "new", "newyork", "york" and "times", "newyorktimes" is tokenized into "newyork" and "times".
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class MaximumMatchingTokenizer<V> {
+
+	/**
+	 * a handler of the tokens reported by tokenize
+	 */
+	@FunctionalInterface
+	public interface TokenHandler<V> {
+
+		/**
+		 * @param begin : the offset of the first char of the token
+		 * @param end : the offset after the last char of the token
+		 * @param node : the key-value node of the token, or null for a char which starts no key
+		 */
+		void onToken(int begin, int end, TrieNode<V> node);
+	}
+
+	private final PrefixTrie<V> dictionary;
+
+	/**
+	 * @param dictionary : a PrefixTrie whose keys are the words of the dictionary
+	 */
+	public MaximumMatchingTokenizer(PrefixTrie<V> dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * reports the tokens of 'text' from its beginning to its end;
+	 * nothing is allocated if the dictionary is of TrieStorage.OBJECT_GRAPH
+	 * @param text : a text
+	 * @param handler : the handler of the tokens, with offsets in 'text'
+	 */
+	public void tokenize(CharSequence text, TokenHandler<V> handler) {
+		int length = text.length();
+		int offset = 0;
+		while (offset < length) {
+			TrieNode<V> node = dictionary.longestKeyPrefixOf(text, offset);
+			if (node == null || node.getLevel() == 0) {
+				// an empty key does not make a token
+				handler.onToken(offset, offset + 1, null);
+				offset++;
+			} else {
+				handler.onToken(offset, offset + node.getLevel(), node);
+				offset += node.getLevel();
+			}
+		}
+	}
+
+	/**
+	 * @param text : a text
+	 * @return the tokens of 'text'
+	 */
+	public List<String> tokenize(CharSequence text) {
+		ArrayList<String> tokens = new ArrayList<String>();
+		tokenize(text, (begin, end, node) -> tokens.add(text.subSequence(begin, end).toString()));
+		return tokens;
+	}
+}
@@ -0,0 +1,403 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 
+ * a storage of trie nodes, where a node is an int handle and the root is handle 0; 
+ * the fields of the nodes are kept by a subclass, either in heap arrays or off-heap. 
+ * The children of a node are a block of consecutive child slots, sorted by their indices, 
+ * so that a child is found by a binary search and the ith child is read directly; 
+ * the capacities of blocks are powers of two, and released blocks are reused by blocks of the same capacity. 
+ * The handles of removed nodes are reused by new nodes, so views of removed nodes should not be used
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type 
+ */
+abstract class NodePool<V> {
+	
+	/**
+	 * the handle of no node
+	 */
+	static final int NIL = -1;
+	
+	/**
+	 * the handle of the root node
+	 */
+	static final int ROOT = 0;
+	
+	/**
+	 * the flag of key-value nodes
+	 */
+	static final byte FLAG_KEY_VALUE = 1;
+	
+	/**
+	 * number of nodes in this pool
+	 */
+	int numNodes;
+	
+	/**
+	 * freeBlocks[s] is the first released block of capacity 2^s, or NIL; 
+	 * the first slot of a released block is the next released block of the same capacity
+	 */
+	private final int[] freeBlocks;
+	
+	/**
+	 * the first released node handle, or NIL; 
+	 * the parent of a released node is the next released node
+	 */
+	private int freeNodes = NIL;
+	
+	NodePool() {
+		freeBlocks = new int[Integer.SIZE];
+		Arrays.fill(freeBlocks, NIL);
+	}
+	
+	/**
+	 * for newNode of subclasses
+	 * @return a released node handle, which is taken from the released nodes, or NIL if there is none
+	 */
+	final int reuseNode() {
+		int handle = freeNodes;
+		if (handle != NIL) {
+			freeNodes = parent(handle);
+		}
+		return handle;
+	}
+	
+	/**
+	 * @param parent : handle of the parent
+	 * @param c : char of the new node
+	 * @param index : child index of the new node
+	 * @param level : level of the new node
+	 * @return the handle of the new node without children, whose maximum score is Integer.MIN_VALUE, 
+	 * which is a released handle if there is one; it is not linked to its parent yet
+	 */
+	abstract int newNode(int parent, char c, int index, int level);
+	
+	abstract int parent(int handle);
+	
+	abstract void setParent(int handle, int parent);
+	
+	abstract int level(int handle);
+	
+	abstract char charOf(int handle);
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return the child index of the node at its parent, according to the alphabet of the trie
+	 */
+	abstract int index(int handle);
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return the first slot of the block of the children of the node, or NIL if it has no children
+	 */
+	abstract int childBlock(int handle);
+	
+	abstract void setChildBlock(int handle, int block);
+	
+	abstract int numChildren(int handle);
+	
+	abstract void setNumChildren(int handle, int numChildren);
+	
+	/**
+	 * @param slot : a child slot
+	 * @return the handle at the slot
+	 */
+	abstract int childSlot(int slot);
+	
+	abstract void setChildSlot(int slot, int handle);
+	
+	/**
+	 * @param capacity : the number of slots, a power of two
+	 * @return the first of 'capacity' new consecutive child slots
+	 */
+	abstract int newChildSlots(int capacity);
+	
+	abstract int score(int handle);
+	
+	/**
+	 * sets the score of a node, without updating the maximum scores of its ancestors
+	 * @param handle : handle of a node
+	 * @param score : the score
+	 */
+	abstract void setScore(int handle, int score);
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return the maximum score of the key-value nodes of the sub-tree of the node, or Integer.MIN_VALUE if there are no such nodes
+	 */
+	abstract int maxScore(int handle);
+	
+	abstract void setMaxScore(int handle, int maxScore);
+	
+	abstract V value(int handle);
+	
+	abstract void setValue(int handle, V value);
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return whether the node is a key-value node
+	 */
+	abstract boolean isKeyValueNode(int handle);
+	
+	/**
+	 * marks a node as a key-value node with a value and score, or clears its key-value pair, 
+	 * without updating the maximum scores of its ancestors
+	 * @param handle : handle of a node
+	 * @param isKeyValueNode : true for setting the key-value pair, and false for clearing it
+	 * @param value : the value, null when clearing
+	 * @param score : the score, 0 when clearing
+	 */
+	abstract void setKeyValue(int handle, boolean isKeyValueNode, V value, int score);
+	
+	/**
+	 * releases the memory of this pool if it is not managed by the garbage collector; 
+	 * the pool should not be used afterwards
+	 */
+	void close() {
+	}
+	
+	/**
+	 * @param numChildren : a number of children
+	 * @return the capacity of the block of 'numChildren' children, the smallest power of two not less than it, or 0
+	 */
+	private static int capacityOf(int numChildren) {
+		return numChildren <= 1 ? numChildren : Integer.highestOneBit(numChildren - 1) << 1;
+	}
+	
+	/**
+	 * @param capacity : a power of two
+	 * @return the first slot of a block of 'capacity' slots, which is a released block if there is one
+	 */
+	private int allocateBlock(int capacity) {
+		int s = Integer.numberOfTrailingZeros(capacity);
+		int block = freeBlocks[s];
+		if (block == NIL) {
+			return newChildSlots(capacity);
+		}
+		freeBlocks[s] = childSlot(block);
+		return block;
+	}
+	
+	/**
+	 * @param block : the first slot of a block which is no longer used
+	 * @param capacity : the capacity of the block
+	 */
+	private void releaseBlock(int block, int capacity) {
+		int s = Integer.numberOfTrailingZeros(capacity);
+		setChildSlot(block, freeBlocks[s]);
+		freeBlocks[s] = block;
+	}
+	
+	/**
+	 * @param block : the first slot of a block of children
+	 * @param numChildren : the number of children at the block
+	 * @param index : a child index
+	 * @return the position of the child at 'index' at the block, or (-(insertion point) - 1) if there is no such child
+	 */
+	private int search(int block, int numChildren, int index) {
+		int low = 0, high = numChildren - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int key = index(childSlot(block + middle));
+			if (key < index) {
+				low = middle + 1;
+			} else if (key > index) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @param index : a child index
+	 * @return the handle of the child at 'index', or NIL if there is no such child
+	 */
+	int getChild(int handle, int index) {
+		int block = childBlock(handle);
+		if (block == NIL) {
+			return NIL;
+		}
+		int position = search(block, numChildren(handle), index);
+		return position >= 0 ? childSlot(block + position) : NIL;
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @param i : 0 &lt;= i &lt; the number of children of the node
+	 * @return the handle of the ith child, with children ordered by their indices
+	 */
+	int getChildAt(int handle, int i) {
+		return childSlot(childBlock(handle) + i);
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @param c : a char
+	 * @param index : the child index of 'c'
+	 * @return the handle of the child at 'index', which is created if it does not exist
+	 */
+	int getOrAddChild(int handle, char c, int index) {
+		int numChildren = numChildren(handle);
+		int block = childBlock(handle);
+		int position = block == NIL ? -1 : search(block, numChildren, index);
+		if (position >= 0) {
+			return childSlot(block + position);
+		}
+		position = -position - 1;
+		int node = newNode(handle, c, index, level(handle) + 1);
+		int capacity = capacityOf(numChildren);
+		if (numChildren == capacity) {
+			int grown = allocateBlock(capacityOf(numChildren + 1));
+			for (int i = 0; i < position; i++) {
+				setChildSlot(grown + i, childSlot(block + i));
+			}
+			for (int i = position; i < numChildren; i++) {
+				setChildSlot(grown + i + 1, childSlot(block + i));
+			}
+			if (numChildren > 0) {
+				releaseBlock(block, capacity);
+			}
+			setChildBlock(handle, grown);
+			block = grown;
+		} else {
+			for (int i = numChildren; i > position; i--) {
+				setChildSlot(block + i, childSlot(block + i - 1));
+			}
+		}
+		setChildSlot(block + position, node);
+		setNumChildren(handle, numChildren + 1);
+		return node;
+	}
+	
+	/**
+	 * unlinks a child without children and without a key-value pair from its parent, 
+	 * moving the remaining children to a smaller block when they fit in one
+	 * @param handle : handle of the child
+	 */
+	private void unlink(int handle) {
+		int parent = parent(handle);
+		int numChildren = numChildren(parent);
+		int block = childBlock(parent);
+		int position = search(block, numChildren, index(handle));
+		int capacity = capacityOf(numChildren);
+		int shrunk = capacityOf(numChildren - 1);
+		if (shrunk < capacity) {
+			int moved = shrunk == 0 ? NIL : allocateBlock(shrunk);
+			for (int i = 0; i < position; i++) {
+				setChildSlot(moved + i, childSlot(block + i));
+			}
+			for (int i = position + 1; i < numChildren; i++) {
+				setChildSlot(moved + i - 1, childSlot(block + i));
+			}
+			releaseBlock(block, capacity);
+			setChildBlock(parent, moved);
+		} else {
+			for (int i = position + 1; i < numChildren; i++) {
+				setChildSlot(block + i - 1, childSlot(block + i));
+			}
+		}
+		setNumChildren(parent, numChildren - 1);
+	}
+	
+	/**
+	 * recomputes the maximum scores of a node and its ancestors, after the score of the node or its children are changed
+	 * @param handle : handle of a node
+	 */
+	void updateMaxScores(int handle) {
+		for (int node = handle; node != NIL; node = parent(node)) {
+			int max = isKeyValueNode(node) ? score(node) : Integer.MIN_VALUE;
+			int block = childBlock(node);
+			for (int i = numChildren(node) - 1; i >= 0; i--) {
+				max = Math.max(max, maxScore(childSlot(block + i)));
+			}
+			if (max == maxScore(node)) {
+				return;
+			}
+			setMaxScore(node, max);
+		}
+	}
+	
+	/**
+	 * sets a key-value pair at a node, and updates the maximum scores of its ancestors
+	 * @param handle : handle of a node
+	 * @param value : the value 
+	 * @param score : the score
+	 */
+	void put(int handle, V value, int score) {
+		setKeyValue(handle, true, value, score);
+		updateMaxScores(handle);
+	}
+	
+	/**
+	 * clears the key-value pair of a node, and unlinks the node and its ancestors that no longer lead to any key-value node;
+	 * the handles of unlinked nodes are released for new nodes
+	 * @param handle : handle of a key-value node
+	 */
+	void remove(int handle) {
+		setKeyValue(handle, false, null, 0);
+		while (handle != ROOT && numChildren(handle) == 0 && !isKeyValueNode(handle)) {
+			int parent = parent(handle);
+			unlink(handle);
+			setParent(handle, freeNodes);
+			freeNodes = handle;
+			handle = parent;
+		}
+		updateMaxScores(handle);
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return key based on ancestors and the node
+	 */
+	String getKey(int handle) {
+		char[] keyChars = new char[level(handle)];
+		for (int node = handle, offset = keyChars.length - 1; offset >= 0; node = parent(node)) {
+			keyChars[offset--] = charOf(node);
+		}
+		return new String(keyChars);
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return a view of the node, or null if handle is NIL
+	 */
+	TrieNode<V> view(int handle) {
+		return handle == NIL ? null : new PooledTrieNode<V>(this, handle);
+	}
+	
+	/**
+	 * @param handle : handle of a node
+	 * @return views of all key-value nodes among the sub-tree nodes of the node, in depth-first order
+	 */
+	List<TrieNode<V>> getKeyValueNodes(int handle) {
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = handle;
+		while (top > 0) {
+			int node = stack[--top];
+			if (isKeyValueNode(node)) {
+				result.add(view(node));
+			}
+			int numChildren = numChildren(node);
+			if (top + numChildren > stack.length) {
+				stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + numChildren));
+			}
+			// push in reversed order so that children are popped in index order 
+			int block = childBlock(node);
+			for (int i = numChildren - 1; i >= 0; i--) {
+				stack[top++] = childSlot(block + i);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,372 @@
+package org.linchimin.efficient_trie;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * a NodePool for TrieStorage.OFF_HEAP, where the fields of a node are a 32-byte record in pages of direct ByteBuffers,
+ * and the child slots are ints in pages of direct ByteBuffers as well, 
+ * so that the garbage collector neither marks nor scans the nodes, however many there are.
+ * Only the page array and the values of key-value nodes, which are Java objects, stay on the heap;
+ * a key-value node keeps the slot of its value at 'values'.
+ *
+ * The pages are freed by close(), or by the garbage collector if the pool is not closed; 
+ * any access after close() throws an IllegalStateException.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+final class OffHeapNodePool<V> extends NodePool<V> {
+
+	/**
+	 * 2^16 nodes, or 2 MB, per page
+	 */
+	private static final int PAGE_SHIFT = 16;
+
+	private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+	private static final int RECORD_SHIFT = 5;
+
+	private static final int PARENT = 0;
+	private static final int LEVEL = 4;
+	private static final int CHILD_BLOCK = 8;
+	/**
+	 * the number of children in the low 24 bits, and the flags in the high 8 bits
+	 */
+	private static final int NUM_CHILDREN = 12;
+	private static final int SCORE = 16;
+	private static final int MAX_SCORE = 20;
+	private static final int VALUE_SLOT = 24;
+	private static final int CHAR = 28;
+	private static final int INDEX = 30;
+
+	private static final int FLAGS_SHIFT = 24;
+
+	private static final int NUM_CHILDREN_MASK = (1 << FLAGS_SHIFT) - 1;
+
+	/**
+	 * 2^16 child slots, or 256 KB, per page, which holds the largest block of an alphabet of chars
+	 */
+	private static final int SLOT_PAGE_SHIFT = 16;
+
+	private static final int SLOT_PAGE_MASK = (1 << SLOT_PAGE_SHIFT) - 1;
+
+	/**
+	 * the method freeing a direct ByteBuffer: sun.misc.Unsafe.invokeCleaner since Java 9,
+	 * or null on Java 8, where the cleaner of the buffer is invoked instead
+	 */
+	private static final Method INVOKE_CLEANER;
+
+	private static final Object UNSAFE;
+
+	static {
+		Method invokeCleaner = null;
+		Object unsafe = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		INVOKE_CLEANER = invokeCleaner;
+		UNSAFE = unsafe;
+	}
+
+	private ByteBuffer[] pages;
+
+	private ByteBuffer[] slotPages;
+
+	/**
+	 * number of allocated child slots; a block does not span pages, so the tail of a page may be skipped
+	 */
+	private int numChildSlots;
+
+	/**
+	 * the values of key-value nodes at their slots
+	 */
+	private Object[] values;
+
+	/**
+	 * number of used slots at 'values'; the slot of a node stays with its handle, also when the handle is reused
+	 */
+	private int numValues;
+
+	OffHeapNodePool() {
+		pages = new ByteBuffer[4];
+		slotPages = new ByteBuffer[4];
+		values = new Object[16];
+		newNode(NIL, (char) 0, 0, 0);
+	}
+
+	/**
+	 * @param handle : handle of a node
+	 * @return the page of the node
+	 */
+	private ByteBuffer page(int handle) {
+		return pages()[handle >>> PAGE_SHIFT];
+	}
+
+	/**
+	 * @return the pages of the nodes
+	 * @throws IllegalStateException if this pool is closed
+	 */
+	private ByteBuffer[] pages() {
+		if (pages == null) {
+			throw new IllegalStateException("IllegalStateException: the off-heap nodes are accessed after close().");
+		}
+		return pages;
+	}
+
+	/**
+	 * @param slot : a child slot
+	 * @return the page of the slot
+	 * @throws IllegalStateException if this pool is closed
+	 */
+	private ByteBuffer slotPage(int slot) {
+		if (slotPages == null) {
+			throw new IllegalStateException("IllegalStateException: the off-heap nodes are accessed after close().");
+		}
+		return slotPages[slot >>> SLOT_PAGE_SHIFT];
+	}
+
+	/**
+	 * @param handle : handle of a node
+	 * @param field : the offset of a field in a record
+	 * @return the offset of the field of the node at its page
+	 */
+	private static int offset(int handle, int field) {
+		return ((handle & PAGE_MASK) << RECORD_SHIFT) + field;
+	}
+
+	@Override
+	int newNode(int parent, char c, int index, int level) {
+		int handle = reuseNode();
+		if (handle == NIL) {
+			handle = grow();
+		}
+		ByteBuffer page = page(handle);
+		page.putInt(offset(handle, PARENT), parent);
+		page.putInt(offset(handle, LEVEL), level);
+		page.putInt(offset(handle, CHILD_BLOCK), NIL);
+		page.putInt(offset(handle, NUM_CHILDREN), 0);
+		page.putInt(offset(handle, SCORE), 0);
+		page.putInt(offset(handle, MAX_SCORE), Integer.MIN_VALUE);
+		page.putChar(offset(handle, CHAR), c);
+		page.putChar(offset(handle, INDEX), (char) index);
+		return handle;
+	}
+
+	/**
+	 * @return a new handle after the used ones, at a new page if the last page is full; its value slot is NIL
+	 */
+	private int grow() {
+		if (numNodes == Integer.MAX_VALUE) {
+			throw new IllegalStateException("IllegalStateException: the number of nodes exceeds Integer.MAX_VALUE.");
+		}
+		ByteBuffer[] pages = pages();
+		int handle = numNodes++;
+		int pageIndex = handle >>> PAGE_SHIFT;
+		if (pageIndex == pages.length) {
+			pages = this.pages = Arrays.copyOf(pages, pages.length * 2);
+		}
+		if (pages[pageIndex] == null) {
+			pages[pageIndex] = ByteBuffer.allocateDirect(1 << (PAGE_SHIFT + RECORD_SHIFT)).order(ByteOrder.nativeOrder());
+		}
+		pages[pageIndex].putInt(offset(handle, VALUE_SLOT), NIL);
+		return handle;
+	}
+
+	@Override
+	int parent(int handle) {
+		return page(handle).getInt(offset(handle, PARENT));
+	}
+
+	@Override
+	void setParent(int handle, int parent) {
+		page(handle).putInt(offset(handle, PARENT), parent);
+	}
+
+	@Override
+	int level(int handle) {
+		return page(handle).getInt(offset(handle, LEVEL));
+	}
+
+	@Override
+	char charOf(int handle) {
+		return page(handle).getChar(offset(handle, CHAR));
+	}
+
+	@Override
+	int index(int handle) {
+		return page(handle).getChar(offset(handle, INDEX));
+	}
+
+	@Override
+	int childBlock(int handle) {
+		return page(handle).getInt(offset(handle, CHILD_BLOCK));
+	}
+
+	@Override
+	void setChildBlock(int handle, int block) {
+		page(handle).putInt(offset(handle, CHILD_BLOCK), block);
+	}
+
+	@Override
+	int numChildren(int handle) {
+		return page(handle).getInt(offset(handle, NUM_CHILDREN)) & NUM_CHILDREN_MASK;
+	}
+
+	@Override
+	void setNumChildren(int handle, int numChildren) {
+		ByteBuffer page = page(handle);
+		int flags = page.getInt(offset(handle, NUM_CHILDREN)) & ~NUM_CHILDREN_MASK;
+		page.putInt(offset(handle, NUM_CHILDREN), flags | numChildren);
+	}
+
+	@Override
+	int childSlot(int slot) {
+		return slotPage(slot).getInt((slot & SLOT_PAGE_MASK) << 2);
+	}
+
+	@Override
+	void setChildSlot(int slot, int handle) {
+		slotPage(slot).putInt((slot & SLOT_PAGE_MASK) << 2, handle);
+	}
+
+	@Override
+	int newChildSlots(int capacity) {
+		if (slotPages == null) {
+			throw new IllegalStateException("IllegalStateException: the off-heap nodes are accessed after close().");
+		}
+		if ((numChildSlots & SLOT_PAGE_MASK) + capacity > SLOT_PAGE_MASK + 1) {
+			numChildSlots = ((numChildSlots >>> SLOT_PAGE_SHIFT) + 1) << SLOT_PAGE_SHIFT;
+		}
+		if (numChildSlots < 0) {
+			throw new IllegalStateException("IllegalStateException: the number of child slots exceeds Integer.MAX_VALUE.");
+		}
+		int pageIndex = numChildSlots >>> SLOT_PAGE_SHIFT;
+		if (pageIndex == slotPages.length) {
+			slotPages = Arrays.copyOf(slotPages, slotPages.length * 2);
+		}
+		if (slotPages[pageIndex] == null) {
+			slotPages[pageIndex] = ByteBuffer.allocateDirect(4 << SLOT_PAGE_SHIFT).order(ByteOrder.nativeOrder());
+		}
+		int block = numChildSlots;
+		numChildSlots += capacity;
+		return block;
+	}
+
+	@Override
+	int score(int handle) {
+		return page(handle).getInt(offset(handle, SCORE));
+	}
+
+	@Override
+	void setScore(int handle, int score) {
+		page(handle).putInt(offset(handle, SCORE), score);
+	}
+
+	@Override
+	int maxScore(int handle) {
+		return page(handle).getInt(offset(handle, MAX_SCORE));
+	}
+
+	@Override
+	void setMaxScore(int handle, int maxScore) {
+		page(handle).putInt(offset(handle, MAX_SCORE), maxScore);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	V value(int handle) {
+		int slot = page(handle).getInt(offset(handle, VALUE_SLOT));
+		return slot == NIL ? null : (V) values[slot];
+	}
+
+	@Override
+	void setValue(int handle, V value) {
+		int slot = page(handle).getInt(offset(handle, VALUE_SLOT));
+		if (slot == NIL) {
+			if (value == null) {
+				return;
+			}
+			if (numValues == values.length) {
+				values = Arrays.copyOf(values, numValues + (numValues >> 1));
+			}
+			slot = numValues++;
+			page(handle).putInt(offset(handle, VALUE_SLOT), slot);
+		}
+		values[slot] = value;
+	}
+
+	@Override
+	boolean isKeyValueNode(int handle) {
+		return ((page(handle).getInt(offset(handle, NUM_CHILDREN)) >>> FLAGS_SHIFT) & FLAG_KEY_VALUE) != 0;
+	}
+
+	@Override
+	void setKeyValue(int handle, boolean isKeyValueNode, V value, int score) {
+		ByteBuffer page = page(handle);
+		int word = page.getInt(offset(handle, NUM_CHILDREN));
+		int flag = FLAG_KEY_VALUE << FLAGS_SHIFT;
+		page.putInt(offset(handle, NUM_CHILDREN), isKeyValueNode ? word | flag : word & ~flag);
+		page.putInt(offset(handle, SCORE), score);
+		setValue(handle, value);
+	}
+
+	/**
+	 * frees the pages; views and handles of this pool throw an IllegalStateException afterwards
+	 */
+	@Override
+	void close() {
+		ByteBuffer[] closedPages = pages;
+		ByteBuffer[] closedSlotPages = slotPages;
+		if (closedPages == null) {
+			return;
+		}
+		pages = null;
+		slotPages = null;
+		values = null;
+		numNodes = 0;
+		for (ByteBuffer page : closedPages) {
+			if (page != null) {
+				free(page);
+			}
+		}
+		for (ByteBuffer page : closedSlotPages) {
+			if (page != null) {
+				free(page);
+			}
+		}
+	}
+
+	/**
+	 * frees the memory of a direct ByteBuffer immediately if the JVM allows it,
+	 * and otherwise leaves it to the garbage collector
+	 * @param buffer : a direct ByteBuffer which is no longer accessed
+	 */
+	private static void free(ByteBuffer buffer) {
+		try {
+			if (INVOKE_CLEANER != null) {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} else {
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// freed by the garbage collector with the buffer
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <pre>
+ * builds the TrieNode graph of a trie in a ForkJoinPool:
+ * keys are partitioned by their first chars (last chars for SuffixTrie),
+ * and the sub-trees of the partitions are built in parallel and then attached under the root in index order.
+ * Large partitions are partitioned again by their next chars.
+ *
+ * Keys of a partition are inserted in their input order, so that for duplicate keys the last value and score win,
+ * and the resulting trie, size and isAllAdded are identical to the ones of sequential insertions.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+final class ParallelTrieBuilder<V> {
+
+	/**
+	 * partitions with at most this number of keys are built by sequential insertions
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+	private final AbstractTrie<V> trie;
+
+	private final String[] keys;
+
+	private final Object[] values;
+
+	private final int[] scores;
+
+	private final boolean reversed;
+
+	/**
+	 * false if a key contains unsupported chars;
+	 * only written with false by the tasks, and read after all tasks are joined
+	 */
+	private volatile boolean isAllAdded = true;
+
+	/**
+	 * @param trie : an empty trie with TrieStorage.OBJECT_GRAPH
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 */
+	ParallelTrieBuilder(AbstractTrie<V> trie, List<String> keys, List<V> values, int[] scores) {
+		this.trie = trie;
+		this.keys = keys.toArray(new String[keys.size()]);
+		this.values = values.toArray();
+		this.scores = scores;
+		this.reversed = trie.isReversed();
+	}
+
+	/**
+	 * builds the trie, and sets its size
+	 * @param forkJoinPool : the pool for building sub-trees
+	 * @return true if all keys are added, and false if one or more keys contain unsupported chars
+	 */
+	boolean build(ForkJoinPool forkJoinPool) {
+		int[] positions = new int[keys.length];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = i;
+		}
+		trie.size = forkJoinPool.invoke(new BuildTask(trie.root, positions));
+		return isAllAdded;
+	}
+
+	/**
+	 * @param key : a key
+	 * @param i : 0 &lt;= i &lt; key.length()
+	 * @return the ith char of 'key' in the order of the trie, from the end for SuffixTrie
+	 */
+	private char charAt(String key, int i) {
+		return reversed ? key.charAt(key.length() - 1 - i) : key.charAt(i);
+	}
+
+	/**
+	 * builds the sub-tree of a node, which is owned by the task until it is attached to its parent
+	 */
+	@SuppressWarnings("serial")
+	private final class BuildTask extends RecursiveTask<Integer> {
+
+		private final TrieNode<V> node;
+
+		/**
+		 * the positions of the keys of this sub-tree at 'keys', in ascending order
+		 */
+		private final int[] positions;
+
+		BuildTask(TrieNode<V> node, int[] positions) {
+			this.node = node;
+			this.positions = positions;
+		}
+
+		/**
+		 * @return the number of key-value nodes of the sub-tree
+		 */
+		@Override
+		protected Integer compute() {
+			if (positions.length <= SEQUENTIAL_THRESHOLD) {
+				int count = 0;
+				for (int position : positions) {
+					count += insert(position);
+				}
+				return count;
+			}
+			return split();
+		}
+
+		/**
+		 * inserts the key at 'position' below 'node'
+		 * @param position : a position at 'keys'
+		 * @return 1 if a new key-value node is added, and 0 otherwise
+		 */
+		@SuppressWarnings("unchecked")
+		private int insert(int position) {
+			String key = keys[position];
+			int length = key.length();
+			for (int i = node.level; i < length; i++) {
+				if (trie.charToIndex(charAt(key, i)) == -1) {
+					// not allowed to add this word if one of the chars is unsupported
+					isAllAdded = false;
+					return 0;
+				}
+			}
+			TrieNode<V> n = node;
+			for (int i = node.level; i < length; i++) {
+				char c = charAt(key, i);
+				int index = trie.charToIndex(c);
+				TrieNode<V> next = n.getChild(index);
+				if (next == null) {
+					next = trie.newNode(c, i + 1);
+					next.parent = n;
+					n.addChild(index, next, trie.alphabet.size());
+				}
+				n = next;
+			}
+			int added = n.isKeyValueNode ? 0 : 1;
+			n.isKeyValueNode = true;
+			n.value = (V) values[position];
+			n.score = scores[position];
+			for (TrieNode<V> m = n; m.updateMaxScore() && m != node; m = m.parent) {
+			}
+			return added;
+		}
+
+		/**
+		 * partitions the keys by their next chars, and builds the sub-trees of the children in parallel; 
+		 * the keys are partitioned by sorting them by the indices of their next chars, 
+		 * so that a split allocates in proportion to its keys rather than to the alphabet size
+		 * @return the number of key-value nodes of the sub-tree
+		 */
+		private int split() {
+			int level = node.level;
+			int alphabetSize = trie.alphabet.size();
+			// the index of the next char in the high 32 bits, and the position in the low 32 bits
+			long[] entries = new long[positions.length];
+			int numEntries = 0;
+			int last = -1;
+			for (int position : positions) {
+				String key = keys[position];
+				if (key.length() == level) {
+					last = position;
+					continue;
+				}
+				int index = trie.charToIndex(charAt(key, level));
+				if (index == -1) {
+					isAllAdded = false;
+				} else {
+					entries[numEntries++] = ((long) index << 32) | position;
+				}
+			}
+			// positions are sorted within a partition as well, so that its keys are inserted in their input order
+			Arrays.sort(entries, 0, numEntries);
+
+			List<BuildTask> tasks = new ArrayList<BuildTask>();
+			for (int begin = 0, end; begin < numEntries; begin = end) {
+				int index = (int) (entries[begin] >>> 32);
+				for (end = begin + 1; end < numEntries && (int) (entries[end] >>> 32) == index; end++) {
+				}
+				int[] partition = new int[end - begin];
+				for (int i = begin; i < end; i++) {
+					partition[i - begin] = (int) entries[i];
+				}
+				TrieNode<V> child = trie.newNode(charAt(keys[partition[0]], level), level + 1);
+				child.parent = node;
+				tasks.add(new BuildTask(child, partition));
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			int count = 0;
+			for (BuildTask task : tasks) {
+				int numKeyValueNodes = task.join();
+				if (numKeyValueNodes > 0) {
+					// children whose keys all contain unsupported chars are not attached
+					node.addChild(trie.charToIndex(task.node.c), task.node, alphabetSize);
+					count += numKeyValueNodes;
+				}
+			}
+			if (last != -1) {
+				count += insert(last);
+			}
+			node.updateMaxScore();
+			return count;
+		}
+	}
+}
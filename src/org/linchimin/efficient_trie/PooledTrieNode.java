@@ -0,0 +1,112 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 
+ * a lightweight TrieNode view of a node handle at a NodePool; 
+ * views are created on demand, and two views are equal if they refer to the same handle. 
+ * A view is a TrieNode only because the queries of a trie return TrieNodes: 
+ * it keeps nothing but the handle, besides the final char and level, and every accessor reads the pool, 
+ * so the other fields inherited from TrieNode are never set nor read
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type 
+ */
+final class PooledTrieNode<V> extends TrieNode<V> {
+	
+	final NodePool<V> pool;
+	
+	final int handle;
+	
+	PooledTrieNode(NodePool<V> pool, int handle) {
+		super(pool.charOf(handle), pool.level(handle));
+		this.pool = pool;
+		this.handle = handle;
+	}
+	
+	@Override
+	public V getValue() {
+		return pool.value(handle);
+	}
+	
+	@Override
+	public void setValue(V value) {
+		pool.setValue(handle, value);
+	}
+	
+	@Override
+	public int getScore() {
+		return pool.score(handle);
+	}
+	
+	@Override
+	public void setScore(int score) {
+		pool.setScore(handle, score);
+		pool.updateMaxScores(handle);
+	}
+	
+	@Override
+	public int getMaxScore() {
+		return pool.maxScore(handle);
+	}
+	
+	@Override
+	public boolean isKeyValueNode() {
+		return pool.isKeyValueNode(handle);
+	}
+	
+	@Override
+	public TrieNode<V> getParent() {
+		return pool.view(pool.parent(handle));
+	}
+	
+	@Override
+	public String getKey() {
+		return pool.getKey(handle);
+	}
+	
+	@Override
+	public int getNumChildren() {
+		return pool.numChildren(handle);
+	}
+	
+	@Override
+	TrieNode<V> getChild(int index) {
+		return pool.view(pool.getChild(handle, index));
+	}
+	
+	@Override
+	TrieNode<V> getChildAt(int i) {
+		return pool.view(pool.getChildAt(handle, i));
+	}
+	
+	@Override
+	void addChild(int index, TrieNode<V> node, int alphabetSize) {
+		throw new UnsupportedOperationException("UnsupportedOperationException: children of pooled nodes are added through NodePool.");
+	}
+	
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes() {
+		return Collections.unmodifiableList(pool.getKeyValueNodes(handle));
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof PooledTrieNode) {
+			PooledTrieNode<?> other = (PooledTrieNode<?>) obj;
+			return pool == other.pool && handle == other.handle;
+		}
+		return false;
+	}
+	
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(pool) * 31 + handle;
+	}
+}
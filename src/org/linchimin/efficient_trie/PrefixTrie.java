@@ -1,8 +1,13 @@
 
 package org.linchimin.efficient_trie;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 
@@ -54,27 +59,115 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 		super(Arrays.asList(keys), Arrays.asList(values), scores);
 	}
 	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, 
+	 * with the nodes stored at 'storage'
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param storage : TrieStorage.NODE_POOL for nodes in parallel primitive arrays, TrieStorage.OFF_HEAP for nodes in direct ByteBuffers, or TrieStorage.OBJECT_GRAPH for TrieNode objects
+	 */
+	public PrefixTrie(List<String> keys, List<V> values, int[] scores, TrieStorage storage) {
+		super(keys, values, scores, Alphabet.getDefault(), storage);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 */
+	public PrefixTrie(List<String> keys, List<V> values, Alphabet alphabet) {
+		super(keys, values, alphabet);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 */
+	public PrefixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet) {
+		super(keys, values, scores, alphabet, TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(Arrays.asList(keys))
+	 */
+	public PrefixTrie(String[] keys, V[] values, int[] scores, Alphabet alphabet) {
+		super(Arrays.asList(keys), Arrays.asList(values), scores, alphabet, TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet, 
+	 * with the nodes stored at 'storage'
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 * @param storage : TrieStorage.NODE_POOL for nodes in parallel primitive arrays, TrieStorage.OFF_HEAP for nodes in direct ByteBuffers, or TrieStorage.OBJECT_GRAPH for TrieNode objects
+	 */
+	public PrefixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, TrieStorage storage) {
+		super(keys, values, scores, alphabet, storage);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores in parallel; 
+	 * the sub-trees of the keys with different first chars are built in 'forkJoinPool', 
+	 * and the trie is identical to the one of the sequential constructors
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 * @param forkJoinPool : the pool for building sub-trees, like ForkJoinPool.commonPool()
+	 */
+	public PrefixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, ForkJoinPool forkJoinPool) {
+		super(keys, values, scores, alphabet, forkJoinPool);
+	}
+	
+	@Override
+	boolean isReversed() {
+		return false;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
-	protected boolean put(String key, V value, int score) {
+	public boolean put(String key, V value, int score) {
 		
 		TrieNode<V> node = root;
-		char[] chars = key.toCharArray();
-		int[] indices = lookupIndices(chars);
-		if (indices == null){
+		if (!isSupported(key)){
 			// not allowed to add this word if one of the chars is unsupported
 			return false;
 		}
+		modCount++;
+		int length = key.length();
+		
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = 0; i < length; i++) {
+				char c = key.charAt(i);
+				handle = pool.getOrAddChild(handle, c, charToIndex(c));
+			}
+			putPooled(handle, value, score);
+			return true;
+		}
 		
+		node.invalidateKeyValueNodes();
 		int level = 0;
-		for (int i = 0; i < chars.length; i++) {
+		for (int i = 0; i < length; i++) {
 			level++;
-			int index = indices[i];
-			if (node.children[index] == null) {
-				TrieNode<V> temp = new TrieNode<V>(chars[i], level);
-				node.addChildIndex(index);
-				node.children[index] = temp;
+			char c = key.charAt(i);
+			int index = charToIndex(c);
+			TrieNode<V> next = node.getChild(index);
+			if (next == null) {
+				TrieNode<V> temp = newNode(c, level);
+				node.addChild(index, temp, alphabet.size());
 				temp.parent = node;
 				if (node.level + 1 != temp.level) {
 					throw new RuntimeException("PrefixTrie: Bugs occurred: "
@@ -83,7 +176,8 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 				}
 				node = temp;
 			} else {
-				node = node.children[index];
+				node = next;
+				node.invalidateKeyValueNodes();
 			}
 			if (node.level < 0) {
 				throw new RuntimeException("PrefixTrie: Bugs occurred: "
@@ -97,10 +191,212 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 		node.isKeyValueNode = true;
 		node.value = value;
 		node.score = score;
+		updateIndexes(node);
 		return true;
 	}
 	
 	
+	/**
+	 * <pre>
+	 * the longest key which is a prefix of text[offset, text.length()), found in one walk down from the root 
+	 * which remembers the last key-value node on the path; 
+	 * unlike getNodeWithLongestCommonPart, the deepest node on the path need not be a key-value node.
+	 * For example, for keys "ab" and "abcd" and text "xabcx" with offset 1, the node of "ab" is returned.
+	 * 
+	 * Nothing is allocated for TrieStorage.OBJECT_GRAPH.
+	 * </pre>
+	 * @param text : a text
+	 * @param offset : the offset in 'text' where keys start
+	 * @return the key-value node of the longest key starting at 'offset', or null if there is no such key
+	 */
+	public TrieNode<V> longestKeyPrefixOf(CharSequence text, int offset) {
+		checkOffset(text, offset);
+		int length = text.length();
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			int longest = pool.isKeyValueNode(handle) ? handle : NodePool.NIL;
+			for (int i = offset; i < length; i++) {
+				int index = charToIndex(text.charAt(i));
+				handle = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+				if (handle == NodePool.NIL) {
+					break;
+				} else if (pool.isKeyValueNode(handle)) {
+					longest = handle;
+				}
+			}
+			return longest == NodePool.NIL ? null : pool.view(longest);
+		}
+		
+		TrieNode<V> node = root;
+		TrieNode<V> longest = root.isKeyValueNode ? root : null;
+		for (int i = offset; i < length; i++) {
+			int index = charToIndex(text.charAt(i));
+			node = index >= 0 ? node.getChild(index) : null;
+			if (node == null) {
+				break;
+			} else if (node.isKeyValueNode) {
+				longest = node;
+			}
+		}
+		return longest;
+	}
+	
+	/**
+	 * passes the key-value nodes of all keys which are prefixes of text[offset, text.length()) to 'consumer', 
+	 * in ascending order of their lengths, during one walk down from the root; 
+	 * the length of each key is the level of its node. Nothing is allocated for TrieStorage.OBJECT_GRAPH
+	 * @param text : a text
+	 * @param offset : the offset in 'text' where keys start
+	 * @param consumer : the consumer of the key-value nodes
+	 */
+	public void forEachKeyPrefixOf(CharSequence text, int offset, Consumer<TrieNode<V>> consumer) {
+		checkOffset(text, offset);
+		int length = text.length();
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = offset; handle != NodePool.NIL; i++) {
+				if (pool.isKeyValueNode(handle)) {
+					consumer.accept(pool.view(handle));
+				}
+				int index = i < length ? charToIndex(text.charAt(i)) : -1;
+				handle = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+			}
+			return;
+		}
+		
+		TrieNode<V> node = root;
+		for (int i = offset; node != null; i++) {
+			if (node.isKeyValueNode) {
+				consumer.accept(node);
+			}
+			int index = i < length ? charToIndex(text.charAt(i)) : -1;
+			node = index >= 0 ? node.getChild(index) : null;
+		}
+	}
+	
+	/**
+	 * @param text : a text
+	 * @param offset : an offset in 'text'
+	 */
+	static void checkOffset(CharSequence text, int offset) {
+		if (offset < 0 || offset > text.length()) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'offset' (" + offset 
+					+ ") should be within [0, text.length()] = [0, " + text.length() + "].");
+		}
+	}
+	
+	/**
+	 * compiles a snapshot of this trie into an Aho-Corasick automaton, 
+	 * which finds all occurrences of the keys in a text in one pass
+	 * @return an AhoCorasick automaton over freeze() of this trie, with the failure and output links of its states
+	 */
+	public AhoCorasick<V> compileAhoCorasick() {
+		return new AhoCorasick<V>(freeze());
+	}
+	
+	/**
+	 * @return a cursor at the root, which follows a prefix typed char by char
+	 */
+	public TrieCursor<V> newCursor() {
+		return new TrieCursor<V>(this);
+	}
+	
+	/**
+	 * <pre>
+	 * the key-value nodes whose whole keys match a regular expression, such as Pattern.compile("c[aeiou]t(s|ting)?").
+	 * 
+	 * A regular expression of the subset supported by RegexAutomaton, which covers chars, classes, groups, alternations and quantifiers, 
+	 * is compiled to an NFA, which is stepped by one char per level as the trie is walked, as match(String) does with a wildcard pattern; 
+	 * a branch is pruned as soon as no state is left, and where the only char the states can consume is a plain char, 
+	 * the walk descends to one child instead of trying all children.
+	 * 
+	 * Any other regular expression, such as one with anchors, backreferences or flags, is matched by a filtered scan, 
+	 * which matches the key of each node from its first char and prunes a branch only when the match fails 
+	 * without hitting the end of the key (Matcher.hitEnd); the cost per node of the scan grows with its level.
+	 * </pre>
+	 * @param pattern : a regular expression over whole keys
+	 * @return the key-value nodes whose keys match 'pattern', in the order of getKeyValueNodes("")
+	 */
+	public List<TrieNode<V>> match(Pattern pattern) {
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+		RegexAutomaton automaton = RegexAutomaton.compile(pattern);
+		if (automaton == null) {
+			collectRegexMatches(root, pattern.matcher(""), new StringBuilder(), result);
+			return result;
+		}
+		boolean[] states = new boolean[automaton.numStates()];
+		automaton.start(states);
+		ArrayList<boolean[]> rows = new ArrayList<boolean[]>();
+		rows.add(states);
+		collectAutomatonMatches(root, pattern, automaton, rows, result);
+		return result;
+	}
+	
+	/**
+	 * adds the key-value nodes matched by the automaton in the sub-tree of 'node' to 'result'
+	 * @param node : a node
+	 * @param pattern : the regular expression of the automaton
+	 * @param automaton : the automaton
+	 * @param rows : rows.get(level) are the states reached by the key of the node at 'level' on the current path
+	 * @param result : the list to add key-value nodes to
+	 */
+	private void collectAutomatonMatches(TrieNode<V> node, Pattern pattern, RegexAutomaton automaton, List<boolean[]> rows, List<TrieNode<V>> result) {
+		boolean[] states = rows.get(node.level);
+		if (node.isKeyValueNode() && automaton.isAccepting(states)) {
+			result.add(node);
+		}
+		if (rows.size() == node.level + 1) {
+			rows.add(new boolean[automaton.numStates()]);
+		}
+		boolean[] next = rows.get(node.level + 1);
+		
+		int c = automaton.singleChar(states);
+		if (c >= 0) {
+			int index = charToIndex((char) c);
+			TrieNode<V> child = index >= 0 ? node.getChild(index) : null;
+			if (child != null && automaton.step(states, child.c, next)) {
+				collectAutomatonMatches(child, pattern, automaton, rows, result);
+			}
+			return;
+		}
+		for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+			TrieNode<V> child = node.getChildAt(i);
+			if (Character.isSurrogate(child.c)) {
+				// a Pattern matches a supplementary character as one code point, not as two chars
+				collectRegexMatches(child, pattern.matcher(""), new StringBuilder(child.getKey()), result);
+			} else if (automaton.step(states, child.c, next)) {
+				collectAutomatonMatches(child, pattern, automaton, rows, result);
+			}
+		}
+	}
+	
+	/**
+	 * adds the key-value nodes matched by the regular expression in the sub-tree of 'node' to 'result', by a filtered scan
+	 * @param node : a node
+	 * @param matcher : a matcher of the regular expression, which is reset for each node
+	 * @param key : the key of 'node', which is restored on return
+	 * @param result : the list to add key-value nodes to
+	 */
+	private void collectRegexMatches(TrieNode<V> node, Matcher matcher, StringBuilder key, List<TrieNode<V>> result) {
+		matcher.reset(key);
+		if (matcher.matches()) {
+			if (node.isKeyValueNode()) {
+				result.add(node);
+			}
+		} else if (matcher.hitEnd() == false) {
+			// after a failed match, all alternatives are tried, so more chars would not make any of them match
+			return;
+		}
+		int length = key.length();
+		for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+			TrieNode<V> child = node.getChildAt(i);
+			key.append(child.c);
+			collectRegexMatches(child, matcher, key, result);
+			key.setLength(length);
+		}
+	}
+	
+	
 	/**
 	 * 1. For input word "abcde", 
 	 * if the node that has the longest common prefix with level &lt;= maxPrefixLength is "abc3", 
@@ -113,7 +409,7 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 	 * @return the node that has the longest common prefix with word
 	 */
 	@Override
-	protected TrieNode<V> getNodeWithLongestCommonPart(String word, int maxPrefixLength) {
+	protected TrieNode<V> getNodeWithLongestCommonPart(CharSequence word, int maxPrefixLength) {
 		if (maxPrefixLength < 0) {
 			throw new IllegalArgumentException(
 					"IllegalArgumentException: the argument 'maxPrefixLength' (" + maxPrefixLength + ") should be non-negative.");
@@ -122,11 +418,26 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 					"IllegalArgumentException: the argument 'maxPrefixLength' (" + maxPrefixLength + ") should not be larger than word.length().");
 		}
 		
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = 0; i < maxPrefixLength; i++) {
+				int index = charToIndex(word.charAt(i));
+				int next = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+				if (next != NodePool.NIL) {
+					handle = next;
+				} else {
+					break;
+				}
+			}
+			return pool.view(handle);
+		}
+		
 		TrieNode<V> node = root;
 		for (int i = 0; i < maxPrefixLength; i++) {
 			int index = charToIndex(word.charAt(i));
-			if (index >= 0 && node.children[index] != null) {
-				node = node.children[index];
+			TrieNode<V> next = index >= 0 ? node.getChild(index) : null;
+			if (next != null) {
+				node = next;
 			} else {
 				break;
 			}
@@ -137,4 +448,41 @@ public class PrefixTrie<V> extends AbstractTrie<V> {
 	
 	
 
+	
+	/**
+	 * equivalent to getNodeWithLongestCommonPart(new String(buf, off, len)) without allocating the String
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the word
+	 * @return the node that has the longest common prefix with the word
+	 */
+	@Override
+	public TrieNode<V> getNodeWithLongestCommonPart(char[] buf, int off, int len) {
+		checkRange(buf, off, len);
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = off; i < off + len; i++) {
+				int index = charToIndex(buf[i]);
+				int next = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+				if (next != NodePool.NIL) {
+					handle = next;
+				} else {
+					break;
+				}
+			}
+			return pool.view(handle);
+		}
+		
+		TrieNode<V> node = root;
+		for (int i = off; i < off + len; i++) {
+			int index = charToIndex(buf[i]);
+			TrieNode<V> next = index >= 0 ? node.getChild(index) : null;
+			if (next != null) {
+				node = next;
+			} else {
+				break;
+			}
+		}
+		return node;
+	}
 }
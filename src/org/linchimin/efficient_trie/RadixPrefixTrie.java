@@ -0,0 +1,554 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <pre>
+ * a path-compressed (radix) prefix trie: a chain of single-child non-key-value nodes is collapsed into one edge,
+ * whose label holds the chars of the chain, so long keys such as URLs or file paths take one object per branch
+ * instead of one TrieNode per char.
+ *
+ * Queries return TrieNode views of positions, which are either the end of an edge or a char in the middle of a label,
+ * so that getNode, getNodeWithLongestCommonPart, getKey, getLevel and getParent have the same semantics as for PrefixTrie;
+ * a position in the middle of a label is a non-key-value node with one child.
+ *
+ * For example:
+ * RadixPrefixTrie&lt;Integer&gt; trie = new RadixPrefixTrie&lt;Integer&gt;(keys, values, scores);
+ * TrieNode&lt;Integer&gt; node = trie.getNode("http://www.exa"); // node.getKey() is "http://www.exa"
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public class RadixPrefixTrie<V> {
+
+	private final Alphabet alphabet;
+
+	final Edge<V> root;
+
+	private int size;
+
+	private boolean isAllAdded = true;
+
+	/**
+	 * constructor for constructing a trie with the keys and values
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 */
+	public RadixPrefixTrie(List<String> keys, List<V> values) {
+		this(keys, values, AbstractTrie.ones(keys.size()), Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 */
+	public RadixPrefixTrie(List<String> keys, List<V> values, int[] scores) {
+		this(keys, values, scores, Alphabet.getDefault());
+	}
+
+	/**
+	 * constructor for constructing a trie with the keys and values and scores
+	 * @param keys : the keys for trie construction
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs
+	 * @param alphabet : the supported chars of this trie
+	 */
+	public RadixPrefixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet) {
+		if (alphabet == null) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'alphabet' should not be null.");
+		}
+		if (keys.size() != values.size() || keys.size() != scores.length){
+			throw new IllegalArgumentException("IllegalArgumentException: the sizes of 'elements', 'values' and 'scores' should agree; "
+					+ "elements.size() = " + keys.size() + ", values.size() = " + values.size() +  ", scores.length = " + scores.length);
+		}
+		this.alphabet = alphabet;
+		this.root = new Edge<V>(null, new char[0], 0);
+		for (int i = 0; i < keys.size(); i++) {
+			if (put(keys.get(i), values.get(i), scores[i]) == false) {
+				isAllAdded = false;
+			}
+		}
+	}
+
+	/**
+	 * @return true if all keys are added by the constructor, and false if one or more keys contain unsupported characters
+	 */
+	public boolean isAllAdded() {
+		return isAllAdded;
+	}
+
+	/**
+	 * @return number of key-value nodes of this trie
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the supported chars of this trie
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return the root
+	 */
+	public TrieNode<V> getRoot() {
+		return view(root, 0);
+	}
+
+	/**
+	 * @return the number of edges of this trie, excluding the root; the number of TrieNode objects of a PrefixTrie of the same keys is at least this
+	 */
+	public int getNumEdges() {
+		int count = 0;
+		ArrayList<Edge<V>> stack = new ArrayList<Edge<V>>();
+		stack.add(root);
+		while (stack.isEmpty() == false) {
+			Edge<V> edge = stack.remove(stack.size() - 1);
+			count += edge.numChildren;
+			for (int i = 0; i < edge.numChildren; i++) {
+				stack.add(edge.children[i]);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param edge : an edge
+	 * @param depth : the number of chars of the label of 'edge' at the position
+	 * @return a view of the position
+	 */
+	TrieNode<V> view(Edge<V> edge, int depth) {
+		return new RadixTrieNode<V>(this, edge, depth);
+	}
+
+	/**
+	 * inserts a key and its value, a key-value pair, with score 1 into this trie;
+	 * the value and score are replaced if the key exists
+	 * @param key : the key
+	 * @param value : the value
+	 * @return true if succesfully added, and false if the key contains unsupported characters
+	 */
+	public boolean put(String key, V value) {
+		return put(key, value, 1);
+	}
+
+	/**
+	 * inserts a key and its value, a key-value pair, with a score into this trie;
+	 * the value and score are replaced if the key exists
+	 * @param key : the key
+	 * @param value : the value
+	 * @param score : the score of the key value pair
+	 * @return true if succesfully added, and false if the key contains unsupported characters
+	 */
+	public boolean put(String key, V value, int score) {
+		int length = key.length();
+		for (int i = 0; i < length; i++) {
+			if (alphabet.indexOf(key.charAt(i)) == -1) {
+				// not allowed to add this word if one of the chars is unsupported
+				return false;
+			}
+		}
+		Edge<V> edge = root;
+		int i = 0;
+		while (i < length) {
+			int index = alphabet.indexOf(key.charAt(i));
+			Edge<V> child = edge.getChild(index);
+			if (child == null) {
+				Edge<V> leaf = new Edge<V>(edge, copyOfRange(key, i, length), length);
+				edge.addChild(index, leaf);
+				edge = leaf;
+				break;
+			}
+			char[] label = child.label;
+			int matched = 1;
+			while (matched < label.length && i + matched < length && label[matched] == key.charAt(i + matched)) {
+				matched++;
+			}
+			if (matched < label.length) {
+				split(child, matched, index);
+				child = child.parent;
+			}
+			edge = child;
+			i += matched;
+		}
+		if (edge.isKeyValueNode == false) {
+			edge.isKeyValueNode = true;
+			size++;
+		}
+		edge.value = value;
+		edge.score = score;
+		for (Edge<V> e = edge; e != null && e.updateMaxScore(); e = e.parent) {
+		}
+		return true;
+	}
+
+	/**
+	 * inserts a key-value pair only if the key does not exist
+	 * @param key : the key
+	 * @param value : the value
+	 * @param score : the score of the key value pair
+	 * @return true if added, and false if the key exists or contains unsupported characters
+	 */
+	public boolean putIfAbsent(String key, V value, int score) {
+		Edge<V> edge = getEdge(key);
+		if (edge != null && edge.isKeyValueNode) {
+			return false;
+		}
+		return put(key, value, score);
+	}
+
+	/**
+	 * removes a key and merges the edges which become single-child chains
+	 * @param key : the key
+	 * @return the value of the removed key, or null if the key does not exist
+	 */
+	public V remove(String key) {
+		Edge<V> edge = getEdge(key);
+		if (edge == null || edge.isKeyValueNode == false) {
+			return null;
+		}
+		V value = edge.value;
+		edge.isKeyValueNode = false;
+		edge.value = null;
+		edge.score = 0;
+		size--;
+		Edge<V> parent = edge.parent;
+		if (edge == root) {
+			root.updateMaxScore();
+		} else if (edge.numChildren == 0) {
+			parent.removeChild(alphabet.indexOf(edge.label[0]));
+			edge.parent = null;
+			if (parent != root && parent.isKeyValueNode == false && parent.numChildren == 1) {
+				Edge<V> only = parent.children[0];
+				merge(parent);
+				parent = only.parent;
+			}
+			for (Edge<V> e = parent; e != null && e.updateMaxScore(); e = e.parent) {
+			}
+		} else if (edge.numChildren == 1) {
+			Edge<V> only = edge.children[0];
+			merge(edge);
+			for (Edge<V> e = only.parent; e != null && e.updateMaxScore(); e = e.parent) {
+			}
+		} else {
+			for (Edge<V> e = edge; e != null && e.updateMaxScore(); e = e.parent) {
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * splits an edge into an upper edge of the first 'matched' chars and the edge of the remaining chars
+	 * @param edge : an edge with more than 'matched' chars
+	 * @param matched : the number of chars of the upper edge
+	 * @param index : the child index of 'edge' at its parent
+	 */
+	private void split(Edge<V> edge, int matched, int index) {
+		Edge<V> parent = edge.parent;
+		Edge<V> upper = new Edge<V>(parent, Arrays.copyOfRange(edge.label, 0, matched), parent.level + matched);
+		parent.replaceChild(index, upper);
+		edge.label = Arrays.copyOfRange(edge.label, matched, edge.label.length);
+		edge.parent = upper;
+		upper.addChild(alphabet.indexOf(edge.label[0]), edge);
+		upper.maxScore = edge.maxScore;
+	}
+
+	/**
+	 * merges a non-key-value edge with its only child, which takes the place of the edge
+	 * @param edge : a non-root, non-key-value edge with one child
+	 */
+	private void merge(Edge<V> edge) {
+		Edge<V> child = edge.children[0];
+		char[] label = Arrays.copyOf(edge.label, edge.label.length + child.label.length);
+		System.arraycopy(child.label, 0, label, edge.label.length, child.label.length);
+		child.label = label;
+		child.parent = edge.parent;
+		edge.parent.replaceChild(alphabet.indexOf(label[0]), child);
+		edge.parent = null;
+	}
+
+	private static char[] copyOfRange(CharSequence s, int from, int to) {
+		char[] chars = new char[to - from];
+		for (int i = from; i < to; i++) {
+			chars[i - from] = s.charAt(i);
+		}
+		return chars;
+	}
+
+	/**
+	 * @param word : a word
+	 * @return the edge ending exactly at 'word', or null if 'word' ends in the middle of a label or does not exist
+	 */
+	private Edge<V> getEdge(CharSequence word) {
+		Edge<V> edge = root;
+		int length = word.length();
+		int i = 0;
+		while (i < length) {
+			int index = alphabet.indexOf(word.charAt(i));
+			Edge<V> child = index >= 0 ? edge.getChild(index) : null;
+			if (child == null || i + child.label.length > length) {
+				return null;
+			}
+			char[] label = child.label;
+			for (int j = 1; j < label.length; j++) {
+				if (label[j] != word.charAt(i + j)) {
+					return null;
+				}
+			}
+			edge = child;
+			i += label.length;
+		}
+		return edge;
+	}
+
+	/**
+	 * @param word : a prefix
+	 * @param longest : true for the deepest position with a common part if 'word' does not exist
+	 * @return a view of the position of 'word', or of its longest common part if 'longest' is true, or null
+	 */
+	private TrieNode<V> getPosition(CharSequence word, boolean longest) {
+		Edge<V> edge = root;
+		int length = word.length();
+		int i = 0;
+		while (i < length) {
+			int index = alphabet.indexOf(word.charAt(i));
+			Edge<V> child = index >= 0 ? edge.getChild(index) : null;
+			if (child == null) {
+				return longest ? view(edge, edge.label.length) : null;
+			}
+			char[] label = child.label;
+			int j = 1;
+			while (j < label.length && i + j < length) {
+				if (label[j] != word.charAt(i + j)) {
+					return longest ? view(child, j) : null;
+				}
+				j++;
+			}
+			if (j < label.length) {
+				return view(child, j);
+			}
+			edge = child;
+			i += j;
+		}
+		return view(edge, edge.label.length);
+	}
+
+	/**
+	 * @param word : prefix
+	 * @return the node that is prefixed with word; it may be a non-key-value node or a leaf node
+	 */
+	public TrieNode<V> getNode(CharSequence word) {
+		return getPosition(word, false);
+	}
+
+	/**
+	 * @param word : prefix
+	 * @return either a key-value node or a non key-value node
+	 */
+	public TrieNode<V> getNodeWithLongestCommonPart(CharSequence word) {
+		return getPosition(word, true);
+	}
+
+	/**
+	 * @param word : a key
+	 * @return the key-value node for the exact word, or null if it does not exist
+	 */
+	public TrieNode<V> getkeyValueNode(CharSequence word) {
+		Edge<V> edge = getEdge(word);
+		return (edge != null && edge.isKeyValueNode) ? view(edge, edge.label.length) : null;
+	}
+
+	/**
+	 * @param word : prefix
+	 * @return all key-value nodes prefixed with this word, in depth-first order
+	 */
+	public List<TrieNode<V>> getKeyValueNodes(CharSequence word) {
+		TrieNode<V> node = getNode(word);
+		return node == null ? Collections.<TrieNode<V>>emptyList() : node.getKeyValueNodes();
+	}
+
+	/**
+	 * @param word : prefix
+	 * @return the highest scored key-value node prefixed with word, or null if there is no such node
+	 */
+	public TrieNode<V> getBestKeyValueNode(CharSequence word) {
+		TrieNode<V> node = getNode(word);
+		return node == null ? null : node.getBestKeyValueNode();
+	}
+
+	/**
+	 * @param word : prefix
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes prefixed with word, in descending order of scores
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(CharSequence word, int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive ");
+		}
+		TrieNode<V> node = getNode(word);
+		return node == null ? Collections.<TrieNode<V>>emptyList() : node.getBestKeyValueNodes(numTopKeyValueNodes);
+	}
+
+	/**
+	 * @param edge : the edge at which the search starts
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes of the sub-tree of 'edge', by a best-first search with the maximum scores of sub-trees as upper bounds
+	 */
+	List<TrieNode<V>> getBestKeyValueNodes(Edge<V> edge, int numTopKeyValueNodes) {
+		PriorityQueue<Candidate<V>> queue = new PriorityQueue<Candidate<V>>();
+		queue.add(new Candidate<V>(edge, edge.maxScore, false, null, 0));
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(Math.min(numTopKeyValueNodes, 16));
+		while (result.size() < numTopKeyValueNodes && queue.isEmpty() == false) {
+			Candidate<V> candidate = queue.poll();
+			Edge<V> e = candidate.edge;
+			if (candidate.isResult) {
+				result.add(view(e, e.label.length));
+				continue;
+			}
+			if (e.isKeyValueNode) {
+				queue.add(new Candidate<V>(e, e.score, true, candidate.parent, candidate.position));
+			}
+			for (int i = 0; i < e.numChildren; i++) {
+				queue.add(new Candidate<V>(e.children[i], e.children[i].maxScore, false, candidate, i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * an entry of a best-first search queue, as TrieNode.Candidate for edges, with ties in depth-first order
+	 */
+	private static final class Candidate<V> extends TrieNode.SearchPosition implements Comparable<Candidate<V>> {
+
+		final Edge<V> edge;
+		final int priority;
+
+		Candidate(Edge<V> edge, int priority, boolean isResult, TrieNode.SearchPosition parent, int position) {
+			super(parent, position, isResult);
+			this.edge = edge;
+			this.priority = priority;
+		}
+
+		@Override
+		public int compareTo(Candidate<V> o) {
+			if (priority != o.priority) {
+				return priority > o.priority ? -1 : 1;
+			}
+			return compareTies(o);
+		}
+	}
+
+	/**
+	 * an edge of a RadixPrefixTrie, and the node at its end;
+	 * the root is an edge with an empty label
+	 */
+	static final class Edge<V> {
+
+		Edge<V> parent;
+
+		/**
+		 * the chars of this edge; label[0] decides the position of this edge among the children of its parent
+		 */
+		char[] label;
+
+		/**
+		 * the level of the node at the end of this edge
+		 */
+		final int level;
+
+		boolean isKeyValueNode;
+
+		V value;
+
+		int score;
+
+		/**
+		 * the maximum score of the key-value nodes of the sub-tree, or Integer.MIN_VALUE if there are no such nodes
+		 */
+		int maxScore = Integer.MIN_VALUE;
+
+		/**
+		 * the child indices of the children in ascending order, according to the alphabet of the trie
+		 */
+		char[] childIndices;
+
+		Edge<V>[] children;
+
+		int numChildren;
+
+		Edge(Edge<V> parent, char[] label, int level) {
+			this.parent = parent;
+			this.label = label;
+			this.level = level;
+		}
+
+		/**
+		 * @param index : a child index
+		 * @return the position of 'index' at 'childIndices', or -(insertion point) - 1 if there is no such child
+		 */
+		private int search(int index) {
+			return numChildren == 0 ? -1 : Arrays.binarySearch(childIndices, 0, numChildren, (char) index);
+		}
+
+		Edge<V> getChild(int index) {
+			int position = search(index);
+			return position >= 0 ? children[position] : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		void addChild(int index, Edge<V> child) {
+			int position = -search(index) - 1;
+			if (childIndices == null) {
+				childIndices = new char[2];
+				children = (Edge<V>[]) new Edge<?>[2];
+			} else if (numChildren == children.length) {
+				childIndices = Arrays.copyOf(childIndices, numChildren * 2);
+				children = Arrays.copyOf(children, numChildren * 2);
+			}
+			System.arraycopy(childIndices, position, childIndices, position + 1, numChildren - position);
+			System.arraycopy(children, position, children, position + 1, numChildren - position);
+			childIndices[position] = (char) index;
+			children[position] = child;
+			numChildren++;
+		}
+
+		void replaceChild(int index, Edge<V> child) {
+			children[search(index)] = child;
+		}
+
+		void removeChild(int index) {
+			int position = search(index);
+			numChildren--;
+			System.arraycopy(childIndices, position + 1, childIndices, position, numChildren - position);
+			System.arraycopy(children, position + 1, children, position, numChildren - position);
+			children[numChildren] = null;
+			if (numChildren == 0) {
+				childIndices = null;
+				children = null;
+			}
+		}
+
+		/**
+		 * @return true if 'maxScore' is changed, in which case the maximum scores of the ancestors should be updated as well
+		 */
+		boolean updateMaxScore() {
+			int max = isKeyValueNode ? score : Integer.MIN_VALUE;
+			for (int i = 0; i < numChildren; i++) {
+				max = Math.max(max, children[i].maxScore);
+			}
+			boolean changed = max != maxScore;
+			maxScore = max;
+			return changed;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.linchimin.efficient_trie.RadixPrefixTrie.Edge;
+
+/**
+ *
+ * a lightweight TrieNode view of a position of a RadixPrefixTrie, which is the char at 'depth' of the label of an edge;
+ * a position before the end of a label is a non-key-value node with one child.
+ * Views are created on demand, and two views are equal if they refer to the same position;
+ * as edges are split and merged by RadixPrefixTrie.put and remove, views should be queried again after modifications
+ *
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+final class RadixTrieNode<V> extends TrieNode<V> {
+
+	final RadixPrefixTrie<V> trie;
+
+	final Edge<V> edge;
+
+	/**
+	 * the number of chars of the label of 'edge' up to this position, from 1 to label.length, or 0 for the root
+	 */
+	final int depth;
+
+	RadixTrieNode(RadixPrefixTrie<V> trie, Edge<V> edge, int depth) {
+		super(depth == 0 ? (char) 0 : edge.label[depth - 1], edge.level - edge.label.length + depth);
+		this.trie = trie;
+		this.edge = edge;
+		this.depth = depth;
+		this.maxScore = edge.maxScore;
+		if (isEdgeEnd()) {
+			this.isKeyValueNode = edge.isKeyValueNode;
+			this.score = edge.score;
+			this.value = edge.value;
+			this.numChildren = edge.numChildren;
+		} else {
+			this.numChildren = 1;
+		}
+	}
+
+	/**
+	 * @return whether this position is the end of 'edge'
+	 */
+	private boolean isEdgeEnd() {
+		return depth == edge.label.length;
+	}
+
+	@Override
+	public V getValue() {
+		return isEdgeEnd() ? edge.value : null;
+	}
+
+	@Override
+	public void setValue(V value) {
+		if (isKeyValueNode() == false) {
+			throw new UnsupportedOperationException("UnsupportedOperationException: values are set with RadixPrefixTrie.put for non-key-value nodes.");
+		}
+		this.value = value;
+		edge.value = value;
+	}
+
+	@Override
+	public int getScore() {
+		return isEdgeEnd() ? edge.score : 0;
+	}
+
+	@Override
+	public void setScore(int score) {
+		if (isKeyValueNode() == false) {
+			throw new UnsupportedOperationException("UnsupportedOperationException: scores are set with RadixPrefixTrie.put for non-key-value nodes.");
+		}
+		this.score = score;
+		edge.score = score;
+		for (Edge<V> e = edge; e != null && e.updateMaxScore(); e = e.parent) {
+		}
+	}
+
+	@Override
+	public int getMaxScore() {
+		return edge.maxScore;
+	}
+
+	@Override
+	public boolean isKeyValueNode() {
+		return isEdgeEnd() && edge.isKeyValueNode;
+	}
+
+	@Override
+	public TrieNode<V> getParent() {
+		if (depth == 0) {
+			return null;
+		}
+		return depth > 1 ? trie.view(edge, depth - 1) : trie.view(edge.parent, edge.parent.label.length);
+	}
+
+	@Override
+	public String getKey() {
+		char[] keyChars = new char[level];
+		int offset = level - depth;
+		System.arraycopy(edge.label, 0, keyChars, offset, depth);
+		for (Edge<V> e = edge.parent; e != null; e = e.parent) {
+			offset -= e.label.length;
+			System.arraycopy(e.label, 0, keyChars, offset, e.label.length);
+		}
+		return new String(keyChars);
+	}
+
+	@Override
+	public int getNumChildren() {
+		return isEdgeEnd() ? edge.numChildren : 1;
+	}
+
+	@Override
+	public List<TrieNode<V>> getNonNullChildren() {
+		int numChildren = getNumChildren();
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(numChildren);
+		for (int i = 0; i < numChildren; i++) {
+			result.add(getChildAt(i));
+		}
+		return result;
+	}
+
+	@Override
+	public TrieNode<V> getFirstChild() {
+		return getNumChildren() == 0 ? null : getChildAt(0);
+	}
+
+	@Override
+	TrieNode<V> getChild(int index) {
+		if (isEdgeEnd() == false) {
+			return trie.getAlphabet().indexOf(edge.label[depth]) == index ? trie.view(edge, depth + 1) : null;
+		}
+		Edge<V> child = edge.getChild(index);
+		return child == null ? null : trie.view(child, 1);
+	}
+
+	@Override
+	TrieNode<V> getChildAt(int i) {
+		return isEdgeEnd() ? trie.view(edge.children[i], 1) : trie.view(edge, depth + 1);
+	}
+
+	@Override
+	void addChild(int index, TrieNode<V> node, int alphabetSize) {
+		throw new UnsupportedOperationException("UnsupportedOperationException: children of a RadixPrefixTrie are added with RadixPrefixTrie.put.");
+	}
+
+	@Override
+	void removeChild(int index) {
+		throw new UnsupportedOperationException("UnsupportedOperationException: children of a RadixPrefixTrie are removed with RadixPrefixTrie.remove.");
+	}
+
+	/**
+	 * a position in the middle of a label has the key-value nodes of the sub-tree of its edge
+	 */
+	@Override
+	public List<TrieNode<V>> getKeyValueNodes() {
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>();
+		ArrayList<Edge<V>> stack = new ArrayList<Edge<V>>();
+		stack.add(edge);
+		while (stack.isEmpty() == false) {
+			Edge<V> e = stack.remove(stack.size() - 1);
+			if (e.isKeyValueNode) {
+				result.add(trie.view(e, e.label.length));
+			}
+			// push in reversed order so that children are popped in index order
+			for (int i = e.numChildren - 1; i >= 0; i--) {
+				stack.add(e.children[i]);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * found in O(level of the node) by descending along the maximum scores of the edges
+	 */
+	@Override
+	public TrieNode<V> getBestKeyValueNode() {
+		Edge<V> e = edge;
+		while (e.isKeyValueNode == false || e.score != e.maxScore) {
+			Edge<V> next = null;
+			for (int i = 0; i < e.numChildren; i++) {
+				if (e.children[i].maxScore == e.maxScore) {
+					next = e.children[i];
+					break;
+				}
+			}
+			if (next == null) {
+				return null;
+			}
+			e = next;
+		}
+		return trie.view(e, e.label.length);
+	}
+
+	@Override
+	public List<TrieNode<V>> getBestKeyValueNodes(int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive ");
+		}
+		return trie.getBestKeyValueNodes(edge, numTopKeyValueNodes);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof RadixTrieNode) {
+			RadixTrieNode<?> other = (RadixTrieNode<?>) obj;
+			return edge == other.edge && depth == other.depth;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(edge) * 31 + depth;
+	}
+}
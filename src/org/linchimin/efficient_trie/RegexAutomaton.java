@@ -0,0 +1,574 @@
+package org.linchimin.efficient_trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ * a Thompson NFA compiled from a regular expression, which PrefixTrie.match(Pattern) steps by one char per level of the trie,
+ * as match(String) does with the positions of a wildcard pattern.
+ *
+ * The supported subset of java.util.regex is literal and escaped chars such as \. and \t, '.', classes such as [a-z_] and [^aeiou],
+ * \d, \D, \w, \W, \s and \S, groups (...) and (?:...), alternations, and the quantifiers *, +, ?, {n}, {n,} and {n,m}, greedy or lazy.
+ * compile returns null for anything else, such as anchors, backreferences, lookarounds, nested classes, possessive quantifiers,
+ * surrogate chars and flags.
+ *
+ * Each state either consumes a char of some ranges and moves to outs[s],
+ * or consumes no char and moves to outs[s] and alternativeOuts[s], where -1 is none.
+ * A set of states is a boolean[] over the states, closed under the moves which consume no char.
+ * An automaton is not thread-safe, and is compiled for each query.
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ */
+final class RegexAutomaton {
+
+	/**
+	 * the maximum number of states, beyond which a regular expression of large counted repetitions is not compiled
+	 */
+	private static final int MAX_NUM_STATES = 1 << 16;
+
+	/**
+	 * the maximum count of a counted repetition
+	 */
+	private static final int MAX_COUNT = 1000;
+
+	private static final int[] DIGITS = {'0', '9'};
+	private static final int[] WORD_CHARS = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+	private static final int[] SPACES = {'\t', '\r', ' ', ' '};
+
+	/**
+	 * the chars matched by '.', which are all chars except line terminators
+	 */
+	private static final int[] ANY_CHAR = complement(normalize(Arrays.asList(
+			new int[] {'\n', '\n'}, new int[] {'\r', '\r'}, new int[] {'\u0085', '\u0085'}, new int[] {'\u2028', '\u2029'})));
+
+	/**
+	 * thrown by the parser for a regular expression out of the supported subset
+	 */
+	@SuppressWarnings("serial")
+	private static final class UnsupportedRegexException extends RuntimeException {
+
+		UnsupportedRegexException() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * the ranges of chars consumed by each state, as pairs of their first and last chars, sorted and disjoint;
+	 * null for a state which consumes no char
+	 */
+	private int[][] ranges = new int[16][];
+
+	private int[] outs = new int[16];
+
+	private int[] alternativeOuts = new int[16];
+
+	private int numStates;
+
+	private int startState;
+
+	private int acceptState;
+
+	/**
+	 * the states which consume chars
+	 */
+	private int[] consumers;
+
+	/**
+	 * the stack of the states to close over
+	 */
+	private int[] stack;
+
+	private final String regex;
+
+	/**
+	 * the position of the parser in 'regex'
+	 */
+	private int pos;
+
+	private RegexAutomaton(String regex) {
+		this.regex = regex;
+	}
+
+	/**
+	 * @param pattern : a regular expression
+	 * @return the automaton of 'pattern', or null if 'pattern' is out of the supported subset
+	 */
+	static RegexAutomaton compile(Pattern pattern) {
+		if (pattern.flags() != 0) {
+			return null;
+		}
+		RegexAutomaton automaton = new RegexAutomaton(pattern.pattern());
+		try {
+			int[] fragment = automaton.parseAlternation();
+			if (automaton.pos < automaton.regex.length()) {
+				return null;
+			}
+			automaton.startState = fragment[0];
+			automaton.acceptState = fragment[1];
+		} catch (UnsupportedRegexException e) {
+			return null;
+		}
+		automaton.finish();
+		return automaton;
+	}
+
+	/**
+	 * @return number of states, which is the length of a set of states
+	 */
+	int numStates() {
+		return numStates;
+	}
+
+	/**
+	 * @param states : set to the states before any char is consumed
+	 */
+	void start(boolean[] states) {
+		Arrays.fill(states, false);
+		addClosure(startState, states);
+	}
+
+	/**
+	 * @param states : a set of states
+	 * @param c : the next char
+	 * @param next : set to the states after 'c' is consumed from 'states'
+	 * @return false if 'next' is empty, in which case no more chars can match
+	 */
+	boolean step(boolean[] states, char c, boolean[] next) {
+		Arrays.fill(next, false);
+		boolean isAlive = false;
+		for (int s : consumers) {
+			if (states[s] && contains(ranges[s], c)) {
+				addClosure(outs[s], next);
+				isAlive = true;
+			}
+		}
+		return isAlive;
+	}
+
+	/**
+	 * @param states : a set of states
+	 * @return whether the chars consumed so far match the regular expression
+	 */
+	boolean isAccepting(boolean[] states) {
+		return states[acceptState];
+	}
+
+	/**
+	 * @param states : a set of states
+	 * @return the only char which 'states' can consume, or -1 if there is none or there are more
+	 */
+	int singleChar(boolean[] states) {
+		int c = -1;
+		for (int s : consumers) {
+			if (states[s]) {
+				int[] r = ranges[s];
+				if (r.length != 2 || r[0] != r[1] || (c >= 0 && c != r[0])) {
+					return -1;
+				}
+				c = r[0];
+			}
+		}
+		return c;
+	}
+
+	private void addClosure(int state, boolean[] states) {
+		if (states[state]) {
+			return;
+		}
+		states[state] = true;
+		int top = 0;
+		stack[top++] = state;
+		while (top > 0) {
+			int s = stack[--top];
+			if (ranges[s] == null) {
+				if (outs[s] >= 0 && states[outs[s]] == false) {
+					states[outs[s]] = true;
+					stack[top++] = outs[s];
+				}
+				if (alternativeOuts[s] >= 0 && states[alternativeOuts[s]] == false) {
+					states[alternativeOuts[s]] = true;
+					stack[top++] = alternativeOuts[s];
+				}
+			}
+		}
+	}
+
+	private void finish() {
+		int numConsumers = 0;
+		for (int s = 0; s < numStates; s++) {
+			if (ranges[s] != null) {
+				numConsumers++;
+			}
+		}
+		consumers = new int[numConsumers];
+		for (int s = 0, i = 0; s < numStates; s++) {
+			if (ranges[s] != null) {
+				consumers[i++] = s;
+			}
+		}
+		stack = new int[numStates];
+	}
+
+
+
+	//////////////////////////////////////////////////////////
+	// parsing, where a fragment is {start state, end state}, and the end state consumes no char and has no outs yet
+
+	private int newState(int[] stateRanges) {
+		if (numStates == MAX_NUM_STATES) {
+			throw new UnsupportedRegexException();
+		}
+		if (numStates == outs.length) {
+			int capacity = numStates * 2;
+			ranges = Arrays.copyOf(ranges, capacity);
+			outs = Arrays.copyOf(outs, capacity);
+			alternativeOuts = Arrays.copyOf(alternativeOuts, capacity);
+		}
+		ranges[numStates] = stateRanges;
+		outs[numStates] = -1;
+		alternativeOuts[numStates] = -1;
+		return numStates++;
+	}
+
+	private int[] parseAlternation() {
+		int[] fragment = parseConcatenation();
+		while (pos < regex.length() && regex.charAt(pos) == '|') {
+			pos++;
+			int[] other = parseConcatenation();
+			int start = newState(null), end = newState(null);
+			outs[start] = fragment[0];
+			alternativeOuts[start] = other[0];
+			outs[fragment[1]] = end;
+			outs[other[1]] = end;
+			fragment = new int[] {start, end};
+		}
+		return fragment;
+	}
+
+	private int[] parseConcatenation() {
+		int start = newState(null), end = start;
+		while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+			int[] fragment = parseRepetition();
+			outs[end] = fragment[0];
+			end = fragment[1];
+		}
+		return new int[] {start, end};
+	}
+
+	private int[] parseRepetition() {
+		int atomBegin = pos;
+		int[] atom = parseAtom();
+		int atomEnd = pos;
+		if (pos == regex.length()) {
+			return atom;
+		}
+		int min, max;
+		char c = regex.charAt(pos);
+		if (c == '*') {
+			min = 0;
+			max = -1;
+			pos++;
+		} else if (c == '+') {
+			min = 1;
+			max = -1;
+			pos++;
+		} else if (c == '?') {
+			min = 0;
+			max = 1;
+			pos++;
+		} else if (c == '{') {
+			pos++;
+			min = parseCount();
+			max = min;
+			if (pos < regex.length() && regex.charAt(pos) == ',') {
+				pos++;
+				max = pos < regex.length() && regex.charAt(pos) == '}' ? -1 : parseCount();
+			}
+			if (pos == regex.length() || regex.charAt(pos) != '}' || (max >= 0 && max < min)) {
+				throw new UnsupportedRegexException();
+			}
+			pos++;
+		} else {
+			return atom;
+		}
+		if (pos < regex.length() && regex.charAt(pos) == '?') {
+			// a lazy quantifier matches the same whole keys as a greedy one
+			pos++;
+		}
+		if (pos < regex.length() && "*+?{".indexOf(regex.charAt(pos)) >= 0) {
+			// possessive and stacked quantifiers
+			throw new UnsupportedRegexException();
+		}
+		int quantifierEnd = pos;
+		int[] fragment = repeat(atom, atomBegin, atomEnd, min, max);
+		pos = quantifierEnd;
+		return fragment;
+	}
+
+	private int parseCount() {
+		int begin = pos;
+		while (pos < regex.length() && pos - begin < 4 && Character.isDigit(regex.charAt(pos))) {
+			pos++;
+		}
+		if (pos == begin) {
+			throw new UnsupportedRegexException();
+		}
+		int count = Integer.parseInt(regex.substring(begin, pos));
+		if (count > MAX_COUNT) {
+			throw new UnsupportedRegexException();
+		}
+		return count;
+	}
+
+	/**
+	 * @param atom : the fragment of the atom
+	 * @param atomBegin : the position of the atom in 'regex', where copies of the atom are parsed again
+	 * @param atomEnd : the position after the atom
+	 * @param min : the minimum count
+	 * @param max : the maximum count, or -1 if unbounded
+	 * @return the fragment of the repetition
+	 */
+	private int[] repeat(int[] atom, int atomBegin, int atomEnd, int min, int max) {
+		int numCopies = max < 0 ? Math.max(min, 1) : max;
+		int start = newState(null), end = start;
+		for (int i = 0; i < numCopies; i++) {
+			int[] copy = atom;
+			if (i > 0) {
+				pos = atomBegin;
+				copy = parseAtom();
+			}
+			if (max < 0 && i == numCopies - 1) {
+				// the last copy loops
+				int loop = newState(null);
+				alternativeOuts[loop] = copy[0];
+				outs[copy[1]] = loop;
+				outs[end] = min == 0 ? loop : copy[0];
+				end = loop;
+			} else if (i < min) {
+				outs[end] = copy[0];
+				end = copy[1];
+			} else {
+				int split = newState(null), join = newState(null);
+				outs[split] = join;
+				alternativeOuts[split] = copy[0];
+				outs[copy[1]] = join;
+				outs[end] = split;
+				end = join;
+			}
+		}
+		pos = atomEnd;
+		return new int[] {start, end};
+	}
+
+	private int[] parseAtom() {
+		if (pos == regex.length()) {
+			throw new UnsupportedRegexException();
+		}
+		char c = regex.charAt(pos++);
+		switch (c) {
+		case '(':
+			if (regex.startsWith("?:", pos)) {
+				pos += 2;
+			} else if (pos < regex.length() && regex.charAt(pos) == '?') {
+				// lookarounds, named groups and inline flags
+				throw new UnsupportedRegexException();
+			}
+			int[] fragment = parseAlternation();
+			if (pos == regex.length() || regex.charAt(pos) != ')') {
+				throw new UnsupportedRegexException();
+			}
+			pos++;
+			return fragment;
+		case '[':
+			return consumer(parseClass());
+		case '.':
+			return consumer(ANY_CHAR);
+		case '\\':
+			return consumer(parseEscape());
+		case '^': case '$': case ')': case '|': case '*': case '+': case '?': case '{': case '}': case ']':
+			throw new UnsupportedRegexException();
+		default:
+			return consumer(single(c));
+		}
+	}
+
+	private int[] consumer(int[] stateRanges) {
+		int start = newState(stateRanges), end = newState(null);
+		outs[start] = end;
+		return new int[] {start, end};
+	}
+
+	/**
+	 * @return the ranges of an escape after its '\'
+	 */
+	private int[] parseEscape() {
+		if (pos == regex.length()) {
+			throw new UnsupportedRegexException();
+		}
+		char c = regex.charAt(pos++);
+		switch (c) {
+		case 'd':
+			return DIGITS;
+		case 'D':
+			return complement(DIGITS);
+		case 'w':
+			return WORD_CHARS;
+		case 'W':
+			return complement(WORD_CHARS);
+		case 's':
+			return SPACES;
+		case 'S':
+			return complement(SPACES);
+		case 't':
+			return single('\t');
+		case 'n':
+			return single('\n');
+		case 'r':
+			return single('\r');
+		case 'f':
+			return single('\f');
+		case 'a':
+			return single('\u0007');
+		case 'e':
+			return single('\u001B');
+		case 'x':
+			return single(parseHex(2));
+		case 'u':
+			return single(parseHex(4));
+		default:
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+				// boundaries, properties, quotations, octal escapes and backreferences
+				throw new UnsupportedRegexException();
+			}
+			// an escaped symbol matches itself
+			return single(c);
+		}
+	}
+
+	private char parseHex(int numDigits) {
+		if (pos + numDigits > regex.length()) {
+			throw new UnsupportedRegexException();
+		}
+		int value = 0;
+		for (int i = 0; i < numDigits; i++) {
+			int digit = Character.digit(regex.charAt(pos++), 16);
+			if (digit < 0) {
+				throw new UnsupportedRegexException();
+			}
+			value = value * 16 + digit;
+		}
+		return (char) value;
+	}
+
+	/**
+	 * @return the ranges of a class after its '['
+	 */
+	private int[] parseClass() {
+		boolean isNegated = false;
+		if (pos < regex.length() && regex.charAt(pos) == '^') {
+			isNegated = true;
+			pos++;
+		}
+		List<int[]> parts = new ArrayList<int[]>();
+		while (true) {
+			if (pos == regex.length()) {
+				throw new UnsupportedRegexException();
+			}
+			char c = regex.charAt(pos);
+			if (c == ']' && parts.isEmpty() == false) {
+				pos++;
+				break;
+			} else if (c == ']' || c == '[' || regex.startsWith("&&", pos)) {
+				// empty, nested and intersected classes
+				throw new UnsupportedRegexException();
+			}
+			pos++;
+			int[] part = c == '\\' ? parseEscape() : single(c);
+			if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+				pos++;
+				char d = regex.charAt(pos++);
+				if (d == '[') {
+					throw new UnsupportedRegexException();
+				}
+				int[] last = d == '\\' ? parseEscape() : single(d);
+				if (isSingle(part) == false || isSingle(last) == false || last[0] < part[0]) {
+					throw new UnsupportedRegexException();
+				}
+				part = new int[] {part[0], last[0]};
+			}
+			parts.add(part);
+		}
+		int[] result = normalize(parts);
+		return isNegated ? complement(result) : result;
+	}
+
+	private static int[] single(char c) {
+		if (Character.isSurrogate(c)) {
+			// a Pattern matches a supplementary character as one code point
+			throw new UnsupportedRegexException();
+		}
+		return new int[] {c, c};
+	}
+
+	private static boolean isSingle(int[] r) {
+		return r.length == 2 && r[0] == r[1];
+	}
+
+	private static boolean contains(int[] r, char c) {
+		for (int i = 0; i < r.length && r[i] <= c; i += 2) {
+			if (c <= r[i + 1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param parts : lists of ranges
+	 * @return the sorted and disjoint ranges of the union of 'parts'
+	 */
+	private static int[] normalize(List<int[]> parts) {
+		List<int[]> pairs = new ArrayList<int[]>();
+		for (int[] part : parts) {
+			for (int i = 0; i < part.length; i += 2) {
+				pairs.add(new int[] {part[i], part[i + 1]});
+			}
+		}
+		pairs.sort((a, b) -> Integer.compare(a[0], b[0]));
+		int[] result = new int[pairs.size() * 2];
+		int length = 0;
+		for (int[] pair : pairs) {
+			if (length > 0 && pair[0] <= result[length - 1] + 1) {
+				result[length - 1] = Math.max(result[length - 1], pair[1]);
+			} else {
+				result[length++] = pair[0];
+				result[length++] = pair[1];
+			}
+		}
+		return Arrays.copyOf(result, length);
+	}
+
+	/**
+	 * @param r : sorted and disjoint ranges
+	 * @return the sorted and disjoint ranges of the chars not in 'r'
+	 */
+	private static int[] complement(int[] r) {
+		int[] result = new int[r.length + 2];
+		int length = 0, next = Character.MIN_VALUE;
+		for (int i = 0; i < r.length; i += 2) {
+			if (r[i] > next) {
+				result[length++] = next;
+				result[length++] = r[i] - 1;
+			}
+			next = r[i + 1] + 1;
+		}
+		if (next <= Character.MAX_VALUE) {
+			result[length++] = next;
+			result[length++] = Character.MAX_VALUE;
+		}
+		return Arrays.copyOf(result, length);
+	}
+}
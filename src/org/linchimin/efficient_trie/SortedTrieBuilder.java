@@ -0,0 +1,154 @@
+package org.linchimin.efficient_trie;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * <pre>
+ * a bulk loader of a PrefixTrie from keys in lexicographic order, such as sorted dumps:
+ * the nodes of the last added key are kept as a stack,
+ * so each key only walks the part after the common prefix with the previous key,
+ * and nothing is allocated per key besides the new nodes.
+ * The maximum scores of the nodes are computed when they are popped from the stack.
+ *
+ * For example:
+ * SortedTrieBuilder&lt;Integer&gt; builder = new SortedTrieBuilder&lt;Integer&gt;(alphabet);
+ * builder.add("ab", 1, 10);
+ * builder.add("abc", 2, 20);
+ * builder.add("b", 3, 30);
+ * PrefixTrie&lt;Integer&gt; trie = builder.build();
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public final class SortedTrieBuilder<V> {
+
+	/**
+	 * the trie being built
+	 */
+	private final PrefixTrie<V> trie;
+
+	/**
+	 * path[i] is the node at level i on the path of 'previous'
+	 */
+	private TrieNode<V>[] path;
+
+	/**
+	 * the last added key, or null if no key is added yet
+	 */
+	private String previous;
+
+	private boolean isBuilt;
+
+	/**
+	 * a builder with the default alphabet
+	 */
+	public SortedTrieBuilder() {
+		this(Alphabet.getDefault());
+	}
+
+	/**
+	 * @param alphabet : the supported chars of the trie
+	 */
+	public SortedTrieBuilder(Alphabet alphabet) {
+		trie = new PrefixTrie<V>(Collections.<String>emptyList(), Collections.<V>emptyList(), new int[0], alphabet);
+		path = TrieNode.newNodeArray(16);
+		path[0] = trie.root;
+	}
+
+	/**
+	 * adds a key-value pair with score 1
+	 * @param key : the key, which should not be smaller than the previous key by String.compareTo
+	 * @param value : the value
+	 * @return true if succesfully added, and false if the key contains unsupported characters
+	 */
+	public boolean add(String key, V value) {
+		return add(key, value, 1);
+	}
+
+	/**
+	 * adds a key-value pair; for a key equal to the previous key, its value and score are replaced
+	 * @param key : the key, which should not be smaller than the previous key by String.compareTo
+	 * @param value : the value
+	 * @param score : the score of the key value pair
+	 * @return true if succesfully added, and false if the key contains unsupported characters
+	 */
+	public boolean add(String key, V value, int score) {
+		if (isBuilt) {
+			throw new IllegalStateException("IllegalStateException: the trie is already built.");
+		}
+		int length = key.length();
+		int common = 0;
+		if (previous != null) {
+			int minLength = Math.min(length, previous.length());
+			while (common < minLength && key.charAt(common) == previous.charAt(common)) {
+				common++;
+			}
+			if (common < minLength ? key.charAt(common) < previous.charAt(common) : length < previous.length()) {
+				throw new IllegalArgumentException("IllegalArgumentException: the keys should be added in lexicographic order, "
+						+ "while '" + key + "' is added after '" + previous + "'.");
+			}
+		}
+		for (int i = common; i < length; i++) {
+			if (trie.charToIndex(key.charAt(i)) == -1) {
+				// not allowed to add this word if one of the chars is unsupported
+				trie.isAllAdded = false;
+				return false;
+			}
+		}
+
+		if (previous != null) {
+			popTo(common);
+		}
+		if (length >= path.length) {
+			path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+		}
+		// the nodes after the common prefix are new, as the keys are sorted
+		int alphabetSize = trie.alphabet.size();
+		TrieNode<V> node = path[common];
+		for (int i = common; i < length; i++) {
+			char c = key.charAt(i);
+			TrieNode<V> child = trie.newNode(c, i + 1);
+			child.parent = node;
+			node.addChild(trie.charToIndex(c), child, alphabetSize);
+			node = child;
+			path[i + 1] = node;
+		}
+		if (!node.isKeyValueNode) {
+			node.isKeyValueNode = true;
+			trie.size++;
+		}
+		node.value = value;
+		node.score = score;
+		previous = key;
+		return true;
+	}
+
+	/**
+	 * pops the nodes of the previous key deeper than 'level', which have no more descendants to add
+	 * @param level : the level of the deepest node to keep
+	 */
+	private void popTo(int level) {
+		for (int i = previous.length(); i > level; i--) {
+			path[i].updateMaxScore();
+			path[i] = null;
+		}
+	}
+
+	/**
+	 * @return the trie with the added key-value pairs; no key can be added afterwards
+	 */
+	public PrefixTrie<V> build() {
+		if (isBuilt) {
+			throw new IllegalStateException("IllegalStateException: the trie is already built.");
+		}
+		isBuilt = true;
+		if (previous != null) {
+			popTo(0);
+		}
+		trie.root.updateMaxScore();
+		path = null;
+		return trie;
+	}
+}
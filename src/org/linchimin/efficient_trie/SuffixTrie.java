@@ -2,6 +2,7 @@ package org.linchimin.efficient_trie;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -55,29 +56,116 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 	public SuffixTrie(String[] keys, V[] values, int[] scores) {
 		super(Arrays.asList(keys), Arrays.asList(values), scores);
 	}
-
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, 
+	 * with the nodes stored at 'storage'
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param storage : TrieStorage.NODE_POOL for nodes in parallel primitive arrays, TrieStorage.OFF_HEAP for nodes in direct ByteBuffers, or TrieStorage.OBJECT_GRAPH for TrieNode objects
+	 */
+	public SuffixTrie(List<String> keys, List<V> values, int[] scores, TrieStorage storage) {
+		super(keys, values, scores, Alphabet.getDefault(), storage);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 */
+	public SuffixTrie(List<String> keys, List<V> values, Alphabet alphabet) {
+		super(keys, values, alphabet);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 */
+	public SuffixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet) {
+		super(keys, values, scores, alphabet, TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(Arrays.asList(keys))
+	 */
+	public SuffixTrie(String[] keys, V[] values, int[] scores, Alphabet alphabet) {
+		super(Arrays.asList(keys), Arrays.asList(values), scores, alphabet, TrieStorage.OBJECT_GRAPH);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores, and its own alphabet, 
+	 * with the nodes stored at 'storage'
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 * @param storage : TrieStorage.NODE_POOL for nodes in parallel primitive arrays, TrieStorage.OFF_HEAP for nodes in direct ByteBuffers, or TrieStorage.OBJECT_GRAPH for TrieNode objects
+	 */
+	public SuffixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, TrieStorage storage) {
+		super(keys, values, scores, alphabet, storage);
+	}
+	
+	/**
+	 * constructor for constructing a trie with the keys and values and scores in parallel; 
+	 * the sub-trees of the keys with different last chars are built in 'forkJoinPool', 
+	 * and the trie is identical to the one of the sequential constructors
+	 * @param keys : the keys for trie construction 
+	 * @param values : the corresponding values of the keys
+	 * @param scores: the scores of each of the key-value pairs 
+	 * @param alphabet : the supported chars of this trie, like Alphabet.of(keys)
+	 * @param forkJoinPool : the pool for building sub-trees, like ForkJoinPool.commonPool()
+	 */
+	public SuffixTrie(List<String> keys, List<V> values, int[] scores, Alphabet alphabet, ForkJoinPool forkJoinPool) {
+		super(keys, values, scores, alphabet, forkJoinPool);
+	}
+	
+	@Override
+	boolean isReversed() {
+		return true;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
-	protected boolean put(String word, V value, int score) {
+	public boolean put(String word, V value, int score) {
 		
 		TrieNode<V> node = root;
 		
-		char[] chars = word.toCharArray();
-		int[] indices = lookupIndices(chars);
-		if (indices == null){
+		if (!isSupported(word)){
 			// not allowed to add this word if one of the chars is unsupported
 			return false;
 		}
+		modCount++;
+		
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = word.length() - 1; i >= 0; i--) {
+				char c = word.charAt(i);
+				handle = pool.getOrAddChild(handle, c, charToIndex(c));
+			}
+			putPooled(handle, value, score);
+			return true;
+		}
 		
+		node.invalidateKeyValueNodes();
 		int level = 0;
-		for (int i = chars.length - 1; i >= 0; i--) {
+		for (int i = word.length() - 1; i >= 0; i--) {
 			level++;
-			int index = indices[i];
-			if (node.children[index] == null) {
-				TrieNode<V> temp = new TrieNode<V>(chars[i], level);
-				node.addChildIndex(index);
-				node.children[index] = temp;
+			char c = word.charAt(i);
+			int index = charToIndex(c);
+			TrieNode<V> next = node.getChild(index);
+			if (next == null) {
+				TrieNode<V> temp = newNode(c, level);
+				node.addChild(index, temp, alphabet.size());
 				temp.parent = node;
 				if (node.level + 1 != temp.level) {
 					throw new RuntimeException("SuffixTrie: Bugs occurred: "
@@ -86,7 +174,8 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 				}
 				node = temp;
 			} else {
-				node = node.children[index];
+				node = next;
+				node.invalidateKeyValueNodes();
 			}
 			if (node.level < 0) {
 				throw new RuntimeException("SuffixTrie: Bugs occurred: "
@@ -100,6 +189,7 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 		node.isKeyValueNode = true;
 		node.value = value;
 		node.score = score;
+		updateIndexes(node);
 		return true;
 	}
 	
@@ -119,7 +209,7 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 	 * @return the node that has the longest common prefix with word
 	 */
 	@Override
-	protected TrieNode<V> getNodeWithLongestCommonPart(String word, int maxSuffixLength) {
+	protected TrieNode<V> getNodeWithLongestCommonPart(CharSequence word, int maxSuffixLength) {
 		
 		if (maxSuffixLength < 0) {
 			throw new IllegalArgumentException(
@@ -129,12 +219,27 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 					"IllegalArgumentException: the argument 'maxSuffixLength' (" + maxSuffixLength + ") should not be larger than word.length().");
 		}
 		
-		TrieNode<V> node = root;
 		int start = word.length() - 1, end = word.length() - maxSuffixLength;
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = start; i >= end; i--) {
+				int index = charToIndex(word.charAt(i));
+				int next = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+				if (next != NodePool.NIL) {
+					handle = next;
+				} else {
+					break;
+				}
+			}
+			return pool.view(handle);
+		}
+		
+		TrieNode<V> node = root;
 		for (int i = start; i >= end; i--) {
 			int index = charToIndex(word.charAt(i));
-			if (index >= 0 && node.children[index] != null) {
-				node = node.children[index];
+			TrieNode<V> next = index >= 0 ? node.getChild(index) : null;
+			if (next != null) {
+				node = next;
 			} else {
 				break;
 			}
@@ -147,4 +252,41 @@ public class SuffixTrie<V> extends AbstractTrie<V> {
 	
 
 	
+	
+	/**
+	 * equivalent to getNodeWithLongestCommonPart(new String(buf, off, len)) without allocating the String
+	 * @param buf : a char array
+	 * @param off : the offset of a word at 'buf'
+	 * @param len : the length of the word
+	 * @return the node that has the longest common suffix with the word
+	 */
+	@Override
+	public TrieNode<V> getNodeWithLongestCommonPart(char[] buf, int off, int len) {
+		checkRange(buf, off, len);
+		if (pool != null) {
+			int handle = NodePool.ROOT;
+			for (int i = off + len - 1; i >= off; i--) {
+				int index = charToIndex(buf[i]);
+				int next = index >= 0 ? pool.getChild(handle, index) : NodePool.NIL;
+				if (next != NodePool.NIL) {
+					handle = next;
+				} else {
+					break;
+				}
+			}
+			return pool.view(handle);
+		}
+		
+		TrieNode<V> node = root;
+		for (int i = off + len - 1; i >= off; i--) {
+			int index = charToIndex(buf[i]);
+			TrieNode<V> next = index >= 0 ? node.getChild(index) : null;
+			if (next != null) {
+				node = next;
+			} else {
+				break;
+			}
+		}
+		return node;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+package org.linchimin.efficient_trie;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * a cursor for autocompletion, created by PrefixTrie.newCursor(), which keeps the node of the prefix typed so far,
+ * so that each keystroke moves one level down with advance(c) or up with backspace() instead of walking from the root again.
+ * The typed chars are kept as well, so that the cursor walks them again from the root, only if keys were put or removed since its last call, 
+ * as a removal may prune the node of the cursor and a put may extend the typed prefix in the trie.
+ *
+ * A cursor holds a node and the typed chars, and is cheap enough to keep one per session; it is not thread-safe.
+ * The cursor of a ConcurrentPrefixTrie validates its node with the optimistic read stamp of the stripe of the typed chars instead, 
+ * and walks them again under the read stamps of the trie only if a writer took the lock of that stripe.
+ *
+ * For example:
+ * TrieCursor&lt;Integer&gt; cursor = prefixTrie.newCursor();
+ * cursor.advance('a');
+ * cursor.advance('b');
+ * List&lt;TrieNode&lt;Integer&gt;&gt; nodes = cursor.getBestKeyValueNodes(3); // as prefixTrie.getBestKeyValueNodes("ab", 3)
+ * cursor.backspace(); // back to "a"
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public class TrieCursor<V> {
+
+	private final PrefixTrie<V> trie;
+
+	/**
+	 * the typed chars
+	 */
+	private final StringBuilder typed = new StringBuilder();
+
+	/**
+	 * the node of the longest prefix of the typed chars in the trie
+	 */
+	private TrieNode<V> node;
+
+	/**
+	 * the modCount of the trie when 'node' was found
+	 */
+	private int expectedModCount;
+
+	/**
+	 * @param trie : the trie
+	 */
+	TrieCursor(PrefixTrie<V> trie) {
+		this.trie = trie;
+		this.node = trie.getRoot();
+		this.expectedModCount = trie.modCount;
+	}
+
+	/**
+	 * @return the node of the longest prefix of the typed chars in the trie, 
+	 * which is walked again from the root if keys were put or removed since it was found
+	 */
+	private TrieNode<V> node() {
+		if (expectedModCount != trie.modCount) {
+			node = trie.getNodeWithLongestCommonPart(typed);
+			expectedModCount = trie.modCount;
+		}
+		return node;
+	}
+
+	/**
+	 * appends a char to the typed prefix in O(1) navigation
+	 * @param c : the typed char
+	 * @return whether the typed prefix is a node of the trie
+	 */
+	public boolean advance(char c) {
+		TrieNode<V> theNode = node();
+		boolean isMatched = theNode.getLevel() == typed.length();
+		typed.append(c);
+		if (isMatched) {
+			int index = trie.charToIndex(c);
+			TrieNode<V> child = index >= 0 ? theNode.getChild(index) : null;
+			if (child != null) {
+				node = child;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * removes the last char of the typed prefix, moving to the parent node if the char is in the trie
+	 * @return false if the typed prefix is already empty
+	 */
+	public boolean backspace() {
+		if (typed.length() == 0) {
+			return false;
+		}
+		TrieNode<V> theNode = node();
+		if (theNode.getLevel() == typed.length()) {
+			node = theNode.getParent();
+		}
+		typed.setLength(typed.length() - 1);
+		return true;
+	}
+
+	/**
+	 * clears the typed prefix
+	 */
+	public void reset() {
+		typed.setLength(0);
+		node = trie.getRoot();
+		expectedModCount = trie.modCount;
+	}
+
+	/**
+	 * @return the number of typed chars
+	 */
+	public int length() {
+		return typed.length();
+	}
+
+	/**
+	 * @return the node of the typed prefix, or null if the typed prefix is not in the trie
+	 */
+	public TrieNode<V> getNode() {
+		TrieNode<V> theNode = node();
+		return theNode.getLevel() == typed.length() ? theNode : null;
+	}
+
+	/**
+	 * @return the top scored key-value node prefixed with the typed prefix, or null if there is none
+	 */
+	public TrieNode<V> getBestKeyValueNode() {
+		return trie.bestKeyValueNodeOf(node(), typed.length());
+	}
+
+	/**
+	 * equivalent to getBestKeyValueNodes(typed prefix, numTopKeyValueNodes) of the trie, without walking the prefix
+	 * @param numTopKeyValueNodes : number of top key-value nodes
+	 * @return the best key-value nodes prefixed with the typed prefix
+	 */
+	public List<TrieNode<V>> getBestKeyValueNodes(int numTopKeyValueNodes) {
+		checkNumTopKeyValueNodes(numTopKeyValueNodes);
+		return trie.bestKeyValueNodesOf(node(), typed.length(), numTopKeyValueNodes);
+	}
+
+	/**
+	 * @param numTopKeyValueNodes : number of top key-value nodes, which is validated even if the typed prefix is not in the trie
+	 */
+	static void checkNumTopKeyValueNodes(int numTopKeyValueNodes) {
+		if (numTopKeyValueNodes <= 0) {
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive ");
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package org.linchimin.efficient_trie;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * holds the current version of a trie which is replaced as a whole, such as a dictionary reloaded hourly,
+ * in a read-copy-update way:
+ *
+ * 1. a new version is built, for example in the background by reload(builder),
+ * and warmed up before it is published, so readers never see a half-warmed trie;
+ * 2. the new version is published by an atomic reference swap;
+ * 3. readers acquire a Lease of the current version, and queries in flight keep finishing on the version they acquired;
+ * 4. an old version is released, and passed to 'onRelease', once it is replaced and no lease of it is open.
+ *
+ * For example:
+ * TrieHolder&lt;PrefixTrie&lt;Integer&gt;&gt; holder = new TrieHolder&lt;&gt;(trie, PrefixTrie::warmUp, null);
+ * try (TrieHolder.Lease&lt;PrefixTrie&lt;Integer&gt;&gt; lease = holder.acquire()) {
+ *     List&lt;TrieNode&lt;Integer&gt;&gt; nodes = lease.get().getKeyValueNodes("ab");
+ * }
+ * holder.reload(() -&gt; new PrefixTrie&lt;Integer&gt;(newKeys, newValues));
+ * </pre>
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <T> the type of the trie, like PrefixTrie&lt;V&gt;, SuffixTrie&lt;V&gt; or DoubleArrayTrie&lt;V&gt;
+ */
+public final class TrieHolder<T> implements AutoCloseable {
+
+	/**
+	 * the current version, or null if this holder is closed
+	 */
+	private final AtomicReference<Version<T>> current;
+
+	/**
+	 * called on a new version before it is published, or null
+	 */
+	private final Consumer<? super T> warmUp;
+
+	/**
+	 * called on an old version once it is replaced and no lease of it is open, or null
+	 */
+	private final Consumer<? super T> onRelease;
+
+	/**
+	 * @param initial : the initial version of the trie
+	 */
+	public TrieHolder(T initial) {
+		this(initial, null, null);
+	}
+
+	/**
+	 * @param initial : the initial version of the trie, which is warmed up as well
+	 * @param warmUp : called on each version before it is published, like PrefixTrie::warmUp; or null
+	 * @param onRelease : called on each old version once it is replaced and no lease of it is open; or null
+	 */
+	public TrieHolder(T initial, Consumer<? super T> warmUp, Consumer<? super T> onRelease) {
+		if (initial == null) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'initial' should not be null.");
+		}
+		this.warmUp = warmUp;
+		this.onRelease = onRelease;
+		if (warmUp != null) {
+			warmUp.accept(initial);
+		}
+		this.current = new AtomicReference<Version<T>>(new Version<T>(initial));
+	}
+
+	/**
+	 * a version of the trie with a reference count:
+	 * one reference for being the current version, plus one for each open lease
+	 */
+	private static final class Version<T> {
+
+		private final T trie;
+
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		Version(T trie) {
+			this.trie = trie;
+		}
+
+		/**
+		 * @return false if this version is already released
+		 */
+		boolean retain() {
+			for (;;) {
+				int count = refCount.get();
+				if (count == 0) {
+					return false;
+				} else if (refCount.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the last reference is released
+		 */
+		boolean release() {
+			return refCount.decrementAndGet() == 0;
+		}
+	}
+
+	/**
+	 * a reader's reference to a version of the trie, which stays valid until it is closed
+	 * @param <T> the type of the trie
+	 */
+	public static final class Lease<T> implements AutoCloseable {
+
+		private final TrieHolder<T> holder;
+
+		private final Version<T> version;
+
+		private boolean isClosed;
+
+		private Lease(TrieHolder<T> holder, Version<T> version) {
+			this.holder = holder;
+			this.version = version;
+		}
+
+		/**
+		 * @return the version of the trie held by this lease
+		 */
+		public T get() {
+			if (isClosed) {
+				throw new IllegalStateException("IllegalStateException: the lease is closed.");
+			}
+			return version.trie;
+		}
+
+		/**
+		 * closes this lease; closing it again does nothing
+		 */
+		@Override
+		public void close() {
+			if (!isClosed) {
+				isClosed = true;
+				holder.release(version);
+			}
+		}
+	}
+
+	/**
+	 * @return a lease of the current version, which should be closed after the queries, as by try-with-resources
+	 */
+	public Lease<T> acquire() {
+		for (;;) {
+			Version<T> version = current.get();
+			if (version == null) {
+				throw new IllegalStateException("IllegalStateException: the holder is closed.");
+			}
+			if (version.retain()) {
+				return new Lease<T>(this, version);
+			}
+			// the version was replaced and released after it was read; read the new one
+		}
+	}
+
+	/**
+	 * runs a query on the current version with a lease
+	 * @param query : a query, which should not keep references to the trie after it returns
+	 * @return the result of the query
+	 */
+	public <R> R query(Function<? super T, R> query) {
+		try (Lease<T> lease = acquire()) {
+			return query.apply(lease.get());
+		}
+	}
+
+	/**
+	 * warms up and publishes a new version;
+	 * the old version is released once no lease of it is open
+	 * @param trie : the new version of the trie
+	 */
+	public void publish(T trie) {
+		if (trie == null) {
+			throw new IllegalArgumentException("IllegalArgumentException: the argument 'trie' should not be null.");
+		}
+		if (warmUp != null) {
+			warmUp.accept(trie);
+		}
+		Version<T> version = new Version<T>(trie);
+		Version<T> old;
+		do {
+			old = current.get();
+			if (old == null) {
+				throw new IllegalStateException("IllegalStateException: the holder is closed.");
+			}
+		} while (!current.compareAndSet(old, version));
+		release(old);
+	}
+
+	/**
+	 * builds, warms up and publishes a new version in the common ForkJoinPool
+	 * @param builder : builds the new version of the trie
+	 * @return a future of the new version, completed after it is published
+	 */
+	public CompletableFuture<T> reload(Supplier<? extends T> builder) {
+		return reload(builder, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * builds, warms up and publishes a new version with 'executor'
+	 * @param builder : builds the new version of the trie
+	 * @param executor : the executor for building the new version
+	 * @return a future of the new version, completed after it is published;
+	 * if the builder throws, the current version is kept and the future completes exceptionally
+	 */
+	public CompletableFuture<T> reload(Supplier<? extends T> builder, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			T trie = builder.get();
+			publish(trie);
+			return trie;
+		}, executor);
+	}
+
+	/**
+	 * releases the current version once no lease of it is open; later acquire() and publish() throw IllegalStateException
+	 */
+	@Override
+	public void close() {
+		Version<T> version = current.getAndSet(null);
+		if (version != null) {
+			release(version);
+		}
+	}
+
+	/**
+	 * @param version : a version whose reference is dropped
+	 */
+	private void release(Version<T> version) {
+		if (version.release() && onRelease != null) {
+			onRelease.accept(version.trie);
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package org.linchimin.efficient_trie;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.function.Function;
 
 /**
@@ -15,26 +19,45 @@ import java.util.function.Function;
  */
 public class TrieNode<V> implements Comparable<TrieNode<V>>{
 
+	@SuppressWarnings("rawtypes")
+	private static final TrieNode[] NO_NODES = new TrieNode[0];
+	
 	/**
-	 * the default characters; 
+	 * @param length : the length of the array
+	 * @return a new array of nodes, as generic arrays cannot be created directly
 	 */
-	private static final String DEFAULT_CHARS_STRING = "abcdefghijklmnopqrstuvwxyz0123456789";
-	
-	static {
-		/** 
-		 * 1. The default supported chars are "abcdefghijklmnopqrstuvwxyz0123456789";
-		 * 2. warning: words that contain one or more unsupported chars are automatically not added to a trie
-		 * to check if all words are added, check trie.isAllAdded() to see if all characters are added; 
-		 * 3. Minimize the number of supported chars for speed optimization; 
-		 */
-		setSupportedChars(DEFAULT_CHARS_STRING);
+	@SuppressWarnings("unchecked")
+	static <V> TrieNode<V>[] newNodeArray(int length) {
+		return (TrieNode<V>[]) new TrieNode<?>[length];
 	}
 	
-	private static char[] chars;
-	protected static int[] CHAR_TO_INDEX_MAP;
+	static final byte NODE_TINY = 0;
+	static final byte NODE_SMALL = 1;
+	static final byte NODE_INDEXED = 2;
+	static final byte NODE_FULL = 3;
+	
+	/**
+	 * the maximum number of children of a NODE_SMALL node
+	 */
+	static final int SMALL_NODE_CAPACITY = 8;
+	
+	/**
+	 * the maximum number of children of a NODE_INDEXED node
+	 */
+	static final int INDEXED_NODE_CAPACITY = 48;
+	
+	/**
+	 * the maximum alphabet size for NODE_INDEXED and NODE_FULL nodes, whose sizes depend on the alphabet size;
+	 * with larger alphabets, such as Alphabet.unicode(), NODE_SMALL nodes grow without a limit instead 
+	 */
+	static final int MAX_DIRECT_ALPHABET_SIZE = 256;
 	
 	
 	/**
+	 * Sets the default alphabet, which is used by tries constructed without an Alphabet afterwards;
+	 * prefer passing an Alphabet to the constructors of PrefixTrie and SuffixTrie, 
+	 * so that each trie has the smallest possible alphabet for its own keys.
+	 * 
 	 * 1. The default supported chars are "abcdefghijklmnopqrstuvwxyz0123456789";
 	 * 2. warning: words that contain one or more unsupported chars are automatically not added to a trie
 	 * to check if all words are added, check trie.isAllAdded() to see if all characters are added; 
@@ -42,29 +65,10 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	 * @param charsString : like "abcdefghijklmnopqrstuvwxyz0123456789,.-_:'"
 	 */
 	public static void setSupportedChars(String charsString){
-		chars = charsString.toCharArray();
-		int maxChar = -1;
-		for (char c : chars) {
-			if (c > maxChar){
-				maxChar = c;
-			}
-		}
-		int[] ciMap = new int[maxChar + 1];
-		Arrays.fill(ciMap, -1);
-		for (int i = 0; i < chars.length; i++) {
-			ciMap[chars[i]] = i;
-		}
-		CHAR_TO_INDEX_MAP = ciMap;
-		AbstractTrie.CHAR_TO_INDEX_MAP = ciMap;
-		
+		Alphabet.setDefault(Alphabet.of(charsString));
 	}
 
 	
-	/**
-	 * the children nodes of this node
-	 */
-	TrieNode<V>[] children;
-	
 	/**
 	 * the parent node of this node
 	 */
@@ -100,32 +104,81 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	
 
 	/**
-	 * current number of children;
-	 * the current offset at 'childrenIndices'
+	 * current number of children
 	 */
 	int numChildren;
 	
-	/**the children indices;
-	 * children[childrenIndices[i]] where 0 &lt;= i &lt; numChildren is the ith children. 
+	/**
+	 * <pre>
+	 * how the children of this node are stored; it grows with the fan-out of this node:
+	 * NODE_TINY : at most one child, kept inline in 'child' with its index in 'childKey'
+	 * NODE_SMALL : up to SMALL_NODE_CAPACITY children, sorted by index in 'childKeys' and 'children';
+	 * without a limit for alphabets larger than MAX_DIRECT_ALPHABET_SIZE
+	 * NODE_INDEXED : up to INDEXED_NODE_CAPACITY children, sorted as NODE_SMALL, plus 'childSlots' mapping an index to its position
+	 * NODE_FULL : 'children' is direct-mapped by index, and 'childKeys' keeps the sorted indices for iteration
+	 * </pre>
 	 */
-	transient int[] childrenIndices;
+	byte kind;
 	
-	List<TrieNode<V>> KeyValueNodes;
+	/**
+	 * the index of 'child' for NODE_TINY nodes
+	 */
+	char childKey;
+	
+	/**
+	 * the only child of NODE_TINY nodes
+	 */
+	TrieNode<V> child;
+	
+	/**
+	 * the sorted indices of the children for nodes other than NODE_TINY nodes
+	 */
+	char[] childKeys;
+	
+	/**
+	 * the children nodes of this node for nodes other than NODE_TINY nodes
+	 */
+	TrieNode<V>[] children;
+	
+	/**
+	 * for NODE_INDEXED nodes, childSlots[index] - 1 is the position of the child at 'children', or -1 if there is no such child
+	 */
+	byte[] childSlots;
+	
+	/**
+	 * the shared depth-first array of key-value nodes which 'kvBegin' and 'kvEnd' refer to, 
+	 * or null if the range of this node is not indexed yet or is invalidated by an insertion
+	 */
+	KeyValueIndex<V> kvIndex;
+	
+	/**
+	 * the key-value nodes among the sub-tree nodes of this node are kvIndex.nodes[kvBegin], ..., kvIndex.nodes[kvEnd - 1]
+	 */
+	int kvBegin, kvEnd;
+	
+	/**
+	 * the top key-value nodes of the sub-tree of this node in descending order of scores, 
+	 * indexed by AbstractTrie.indexBestKeyValueNodes; null if not indexed
+	 */
+	TrieNode<V>[] bestKeyValueNodes;
+	
+	/**
+	 * the maximum score of the key-value nodes of the sub-tree of this node, 
+	 * or Integer.MIN_VALUE if there are no such nodes; an upper bound for best-first searches
+	 */
+	int maxScore;
 	
 	/**
 	 * @param c : char c field of this node  
 	 * @param level : the level of this node in the trie
 	 */
-	@SuppressWarnings("unchecked")
 	protected TrieNode(char c, int level) {
-		// english characters, and -'._
-		this.children = new TrieNode[chars.length];
 		this.value = null;
 		this.level = level;
 		this.score = 0;
 		this.c = c;
-		this.childrenIndices = new int[chars.length];
-		Arrays.fill(childrenIndices, -1);
+		this.kind = NODE_TINY;
+		this.maxScore = Integer.MIN_VALUE;
 	}
 	
 	/**
@@ -150,10 +203,37 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	}
 	
 	/**
+	 * sets the score, and updates the maximum scores of the ancestors; 
+	 * an index built by AbstractTrie.indexBestKeyValueNodes is not updated, 
+	 * for which the score should be updated with the put method of the trie instead
 	 * @param score : the score to set
 	 */
 	public void setScore(int score) {
 		this.score = score;
+		for (TrieNode<V> node = this; node != null && node.updateMaxScore(); node = node.parent) {
+		}
+	}
+	
+	/**
+	 * @return the maximum score of the key-value nodes of the sub-tree of this node, 
+	 * or Integer.MIN_VALUE if there are no such nodes
+	 */
+	public int getMaxScore() {
+		return maxScore;
+	}
+	
+	/**
+	 * recomputes 'maxScore' from the score of this node and the maximum scores of its children
+	 * @return true if 'maxScore' is changed, in which case the maximum scores of the ancestors should be updated as well
+	 */
+	boolean updateMaxScore() {
+		int max = isKeyValueNode ? score : Integer.MIN_VALUE;
+		for (int i = 0; i < numChildren; i++) {
+			max = Math.max(max, getChildAt(i).maxScore);
+		}
+		boolean changed = max != maxScore;
+		maxScore = max;
+		return changed;
 	}
 	
 	/**
@@ -185,11 +265,11 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	 * For example, if the level of this is 5, the returned list is of size 5 
 	 */
 	public ArrayList<TrieNode<V>> getAncestors() {
-		TrieNode<V> node = parent;
+		TrieNode<V> node = getParent();
 		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(level);
 		while (node != null) { 
 			result.add(node);
-			node = node.parent;
+			node = node.getParent();
 		}
 		return result;
 	}
@@ -216,13 +296,14 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	}
 	
 	/**
-	 * @return non-null elements of 'children'	
+	 * @return non-null elements of 'children', in ascending order of the alphabet indices of their chars 
+	 * (not in the order in which they were inserted)
 	 */
 	public List<TrieNode<V>> getNonNullChildren(){
+		int numChildren = getNumChildren();
 		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(numChildren);
 		for (int i = 0; i < numChildren; i++) {
-			TrieNode<V> child = children[childrenIndices[i]];
-			result.add(child);
+			result.add(getChildAt(i));
 		}
 		return result;
 	}
@@ -230,23 +311,196 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	
 	@Override
 	public String toString() {
-		return "SuffixTrieNode [isKeyValueNode=" + isKeyValueNode + ", score=" + score
-				+ ", value=" + String.valueOf(value) + ", level=" + level + ", key=" + getKey() + ", char=" + c +"]";
+		return "SuffixTrieNode [isKeyValueNode=" + isKeyValueNode() + ", score=" + getScore()
+				+ ", value=" + String.valueOf(getValue()) + ", level=" + level + ", key=" + getKey() + ", char=" + c +"]";
 	}
 	
 	@Override
 	public int compareTo(TrieNode<V> o) {
-		return score - o.score;
+		return Integer.compare(getScore(), o.getScore());
+	}
+	
+	
+	/**
+	 * @param index : a child index according to the alphabet of the trie
+	 * @return the child at 'index', or null if there is no such child
+	 */
+	TrieNode<V> getChild(int index) {
+		switch (kind) {
+		case NODE_TINY:
+			return (numChildren != 0 && childKey == index) ? child : null;
+		case NODE_SMALL:
+			if (numChildren > SMALL_NODE_CAPACITY) {
+				int position = Arrays.binarySearch(childKeys, 0, numChildren, (char) index);
+				return position >= 0 ? children[position] : null;
+			}
+			for (int i = 0; i < numChildren; i++) {
+				int key = childKeys[i];
+				if (key >= index) {
+					return key == index ? children[i] : null;
+				}
+			}
+			return null;
+		case NODE_INDEXED:
+			int slot = childSlots[index];
+			return slot == 0 ? null : children[slot - 1];
+		default:
+			return children[index];
+		}
 	}
 	
+	/**
+	 * @param i : 0 &lt;= i &lt; numChildren
+	 * @return the ith child, with children ordered by their indices 
+	 */
+	TrieNode<V> getChildAt(int i) {
+		switch (kind) {
+		case NODE_TINY:
+			return child;
+		case NODE_FULL:
+			return children[childKeys[i]];
+		default:
+			return children[i];
+		}
+	}
 	
 	/**
+	 * adds a child that does not exist yet, and grows the node kind if necessary
 	 * @param index : the child index to add; 
-	 * the index is according CHAR_TO_INDEX_MAP
-	 */
-	public void addChildIndex(int index) {
+	 * the index is according to the alphabet of the trie
+	 * @param node : the child node
+	 * @param alphabetSize : the size of the alphabet of the trie
+	 */
+	void addChild(int index, TrieNode<V> node, int alphabetSize) {
+		if (kind == NODE_TINY) {
+			if (numChildren == 0) {
+				childKey = (char) index;
+				child = node;
+				numChildren = 1;
+				return;
+			}
+			childKeys = new char[4];
+			children = newNodeArray(4);
+			childKeys[0] = childKey;
+			children[0] = child;
+			child = null;
+			kind = NODE_SMALL;
+		}
+		if (kind == NODE_FULL) {
+			children[index] = node;
+			insertChildKey(insertionPoint(index), index);
+			numChildren++;
+			return;
+		}
+		if (kind == NODE_SMALL && numChildren == SMALL_NODE_CAPACITY && alphabetSize <= MAX_DIRECT_ALPHABET_SIZE) {
+			if (alphabetSize > INDEXED_NODE_CAPACITY) {
+				kind = NODE_INDEXED;
+				childSlots = new byte[alphabetSize];
+				for (int i = 0; i < numChildren; i++) {
+					childSlots[childKeys[i]] = (byte) (i + 1);
+				}
+			} else {
+				growToFull(alphabetSize);
+				addChild(index, node, alphabetSize);
+				return;
+			}
+		} else if (kind == NODE_INDEXED && numChildren == INDEXED_NODE_CAPACITY) {
+			childSlots = null;
+			growToFull(alphabetSize);
+			addChild(index, node, alphabetSize);
+			return;
+		}
 		
-		childrenIndices[numChildren++] = index;
+		int position = insertionPoint(index);
+		if (numChildren == children.length) {
+			int maxCapacity = kind == NODE_INDEXED ? INDEXED_NODE_CAPACITY : 
+				(alphabetSize <= MAX_DIRECT_ALPHABET_SIZE ? SMALL_NODE_CAPACITY : alphabetSize);
+			int capacity = Math.min(children.length * 2, maxCapacity);
+			children = Arrays.copyOf(children, capacity);
+			childKeys = Arrays.copyOf(childKeys, capacity);
+		}
+		System.arraycopy(children, position, children, position + 1, numChildren - position);
+		children[position] = node;
+		insertChildKey(position, index);
+		numChildren++;
+		if (kind == NODE_INDEXED) {
+			for (int i = position; i < numChildren; i++) {
+				childSlots[childKeys[i]] = (byte) (i + 1);
+			}
+		}
+	}
+	
+	/**
+	 * @param index : a child index which does not exist at 'childKeys'
+	 * @return the position at which 'index' should be inserted into the sorted 'childKeys'
+	 */
+	private int insertionPoint(int index) {
+		if (numChildren > SMALL_NODE_CAPACITY) {
+			return -Arrays.binarySearch(childKeys, 0, numChildren, (char) index) - 1;
+		}
+		int position = numChildren;
+		while (position > 0 && childKeys[position - 1] > index) {
+			position--;
+		}
+		return position;
+	}
+	
+	/**
+	 * @param position : the position at 'childKeys'
+	 * @param index : the index to insert at 'position'
+	 */
+	private void insertChildKey(int position, int index) {
+		System.arraycopy(childKeys, position, childKeys, position + 1, numChildren - position);
+		childKeys[position] = (char) index;
+	}
+	
+	/**
+	 * converts this node to a NODE_FULL node 
+	 * @param alphabetSize : the size of the alphabet of the trie
+	 */
+	private void growToFull(int alphabetSize) {
+		TrieNode<V>[] direct = newNodeArray(alphabetSize);
+		for (int i = 0; i < numChildren; i++) {
+			direct[childKeys[i]] = children[i];
+		}
+		children = direct;
+		childKeys = Arrays.copyOf(childKeys, alphabetSize);
+		kind = NODE_FULL;
+	}
+	
+	/**
+	 * removes an existing child; a node whose last child is removed goes back to NODE_TINY
+	 * @param index : the child index to remove; 
+	 * the index is according to the alphabet of the trie
+	 */
+	void removeChild(int index) {
+		if (kind == NODE_TINY) {
+			child = null;
+			numChildren = 0;
+			return;
+		}
+		int position = Arrays.binarySearch(childKeys, 0, numChildren, (char) index);
+		numChildren--;
+		if (numChildren == 0) {
+			childKeys = null;
+			children = null;
+			childSlots = null;
+			kind = NODE_TINY;
+			return;
+		}
+		System.arraycopy(childKeys, position + 1, childKeys, position, numChildren - position);
+		if (kind == NODE_FULL) {
+			children[index] = null;
+			return;
+		}
+		System.arraycopy(children, position + 1, children, position, numChildren - position);
+		children[numChildren] = null;
+		if (kind == NODE_INDEXED) {
+			childSlots[index] = 0;
+			for (int i = position; i < numChildren; i++) {
+				childSlots[childKeys[i]] = (byte) (i + 1);
+			}
+		}
 	}
 
 
@@ -254,7 +508,7 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	 * @return the first non-null child, or null if it has no children
 	 */
 	public TrieNode<V> getFirstChild(){
-		return numChildren == 0 ? null : children[childrenIndices[0]];
+		return getNumChildren() == 0 ? null : getChildAt(0);
 	}
 	
 	/**
@@ -266,21 +520,80 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 
 	
 	/**
-	 * @return a list, which contains all key-value nodes among sub-tree nodes
+	 * @return a list, which contains all key-value nodes among sub-tree nodes, in depth-first order, 
+	 * with the children of each node visited in ascending order of the alphabet indices of their chars;
+	 * the list is a slice of an array shared by the sub-tree, which is indexed on the first call
 	 */
 	public List<TrieNode<V>> getKeyValueNodes() {
-		if (KeyValueNodes == null){
-			ArrayList<TrieNode<V>> lns = new ArrayList<TrieNode<V>>();
-			if (isKeyValueNode) {
-				lns.add(this);
-			}
-			for (int i = 0; i < numChildren; i++) {
-				TrieNode<V> child = children[childrenIndices[i]];
-				lns.addAll(child.getKeyValueNodes());
+		KeyValueIndex<V> index = kvIndex;
+		if (index == null){
+			index = new KeyValueIndex<V>();
+			ArrayList<TrieNode<V>> nodes = new ArrayList<TrieNode<V>>();
+			indexKeyValueNodes(index, nodes);
+			index.nodes = nodes.toArray(index.nodes);
+		}
+		return new KeyValueNodesSlice<V>(index.nodes, kvBegin, kvEnd);
+	}
+	
+	/**
+	 * numbers the key-value nodes of the sub-tree of this node in depth-first order
+	 * @param index : the index shared by the sub-tree
+	 * @param nodes : the key-value nodes numbered so far
+	 */
+	private void indexKeyValueNodes(KeyValueIndex<V> index, ArrayList<TrieNode<V>> nodes) {
+		kvBegin = nodes.size();
+		if (isKeyValueNode) {
+			nodes.add(this);
+		}
+		for (int i = 0; i < numChildren; i++) {
+			getChildAt(i).indexKeyValueNodes(index, nodes);
+		}
+		kvEnd = nodes.size();
+		kvIndex = index;
+	}
+	
+	/**
+	 * invalidates the key-value range of this node; 
+	 * called for every node on the path of an inserted key
+	 */
+	void invalidateKeyValueNodes() {
+		kvIndex = null;
+	}
+	
+	/**
+	 * the depth-first array of key-value nodes shared by the nodes of an indexed sub-tree
+	 */
+	static final class KeyValueIndex<V> {
+		
+		TrieNode<V>[] nodes = newNodeArray(0);
+	}
+	
+	/**
+	 * an unmodifiable list view of a range of a KeyValueIndex
+	 */
+	private static final class KeyValueNodesSlice<V> extends AbstractList<TrieNode<V>> implements RandomAccess {
+		
+		private final TrieNode<V>[] nodes;
+		private final int begin, end;
+		
+		KeyValueNodesSlice(TrieNode<V>[] nodes, int begin, int end) {
+			this.nodes = nodes;
+			this.begin = begin;
+			this.end = end;
+		}
+		
+		@Override
+		public TrieNode<V> get(int i) {
+			if (i < 0 || i >= end - begin) {
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + (end - begin));
 			}
-			KeyValueNodes = Collections.unmodifiableList(lns);
+			return nodes[begin + i];
+		}
+		
+		@Override
+		public int size() {
+			return end - begin;
 		}
-		return KeyValueNodes;
 	}
 	
 	/**
@@ -300,10 +613,29 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	
 	
 	/**
-	 * @return the key-value node with the highest score at the sub tree succeeding 'this'
+	 * @return the key-value node with the highest score at the sub tree succeeding 'this', 
+	 * found in O(level of the node) by descending along the maximum scores of the sub-trees; 
+	 * null if there are no key-value nodes
 	 */
 	public TrieNode<V> getBestKeyValueNode() {
-		return getBestKeyValueNode((a, b) -> (a.score - b.score));
+		// descend along the maximum scores; every leaf is a key-value node, so the walk ends at a key-value node
+		TrieNode<V> node = this;
+		int maxScore = getMaxScore();
+		while (node.isKeyValueNode() == false || node.getScore() != maxScore) {
+			TrieNode<V> next = null;
+			for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+				TrieNode<V> child = node.getChildAt(i);
+				if (child.getMaxScore() == maxScore) {
+					next = child;
+					break;
+				}
+			}
+			if (next == null) {
+				return null;
+			}
+			node = next;
+		}
+		return node;
 	}
 	
 	/**
@@ -316,11 +648,194 @@ public class TrieNode<V> implements Comparable<TrieNode<V>>{
 	}
 	
 	/**
+	 * indexes the top key-value nodes of every node of the sub-tree of this node, in post-order
+	 * @param maxNumTopKeyValueNodes : the maximum number of top key-value nodes to index at each node
+	 */
+	void indexBestKeyValueNodes(int maxNumTopKeyValueNodes) {
+		for (int i = 0; i < numChildren; i++) {
+			getChildAt(i).indexBestKeyValueNodes(maxNumTopKeyValueNodes);
+		}
+		updateBestKeyValueNodes(maxNumTopKeyValueNodes);
+	}
+	
+	/**
+	 * recomputes 'bestKeyValueNodes' of this node from those of its children
+	 * @param maxNumTopKeyValueNodes : the maximum number of top key-value nodes to index
+	 */
+	@SuppressWarnings("unchecked")
+	void updateBestKeyValueNodes(int maxNumTopKeyValueNodes) {
+		if (isKeyValueNode == false && numChildren == 1) {
+			// a chain node shares the list of its only child 
+			bestKeyValueNodes = getChildAt(0).bestKeyValueNodes;
+			return;
+		}
+		int numCandidates = isKeyValueNode ? 1 : 0;
+		for (int i = 0; i < numChildren; i++) {
+			numCandidates += getChildAt(i).bestKeyValueNodes.length;
+		}
+		if (numCandidates == 0) {
+			bestKeyValueNodes = NO_NODES;
+			return;
+		}
+		TrieNode<V>[] candidates = newNodeArray(numCandidates);
+		int offset = 0;
+		if (isKeyValueNode) {
+			candidates[offset++] = this;
+		}
+		for (int i = 0; i < numChildren; i++) {
+			TrieNode<V>[] childBest = getChildAt(i).bestKeyValueNodes;
+			System.arraycopy(childBest, 0, candidates, offset, childBest.length);
+			offset += childBest.length;
+		}
+		// a stable sort, so that ties are kept in depth-first order 
+		Arrays.sort(candidates, (a, b) -> Integer.compare(b.score, a.score));
+		bestKeyValueNodes = numCandidates <= maxNumTopKeyValueNodes ? candidates : Arrays.copyOf(candidates, maxNumTopKeyValueNodes);
+	}
+	
+	/**
+	 * @param numTopKeyValueNodes : number of top key-value nodes, 
+	 * which should not exceed the number indexed by AbstractTrie.indexBestKeyValueNodes 
+	 * @return a copy of the indexed top key-value nodes
+	 */
+	List<TrieNode<V>> copyBestKeyValueNodes(int numTopKeyValueNodes) {
+		return Arrays.asList(Arrays.copyOf(bestKeyValueNodes, Math.min(numTopKeyValueNodes, bestKeyValueNodes.length)));
+	}
+	
+	/**
+	 * A best-first search with the maximum scores of sub-trees as upper bounds; 
+	 * only the branches that can still beat the current 'numTopKeyValueNodes'-th result are expanded
 	 * @param numTopKeyValueNodes : number of top key-value nodes to select
-	 * @return the top key-value nodes according to scores
+	 * @return the top key-value nodes according to scores, in descending order of scores
 	 */
 	public List<TrieNode<V>> getBestKeyValueNodes(int numTopKeyValueNodes){
-		return getBestKeyValueNodes(numTopKeyValueNodes, (a, b) -> (a.score - b.score));
+		if (numTopKeyValueNodes <= 0){
+			throw new IllegalArgumentException("IllegalArgumentException: numTopKeyValueNodes (" + numTopKeyValueNodes + ") should be positive "); 
+		} 
+		PriorityQueue<Candidate<V>> queue = new PriorityQueue<Candidate<V>>();
+		queue.add(new Candidate<V>(this, getMaxScore(), false));
+		ArrayList<TrieNode<V>> result = new ArrayList<TrieNode<V>>(Math.min(numTopKeyValueNodes, 16));
+		addBestKeyValueNodes(queue, numTopKeyValueNodes, result, null);
+		return result;
+	}
+	
+	/**
+	 * polls the best key-value nodes from a best-first search queue, where ties are polled in depth-first order
+	 * @param queue : the queue, seeded with the sub-tree roots to search in depth-first order of their positions
+	 * @param numTopKeyValueNodes : the maximum size of 'result'
+	 * @param result : the list to add key-value nodes to, in descending order of scores
+	 * @param excluded : key-value nodes not to add, or null
+	 */
+	static <V> void addBestKeyValueNodes(PriorityQueue<Candidate<V>> queue, int numTopKeyValueNodes, 
+			List<TrieNode<V>> result, Set<TrieNode<V>> excluded) {
+		while (result.size() < numTopKeyValueNodes && queue.isEmpty() == false) {
+			Candidate<V> candidate = queue.poll();
+			TrieNode<V> node = candidate.node;
+			if (candidate.isResult) {
+				if (excluded == null || excluded.contains(node) == false) {
+					result.add(node);
+				}
+				continue;
+			}
+			if (node.isKeyValueNode()) {
+				queue.add(new Candidate<V>(node, node.getScore(), true, candidate.parent, candidate.position));
+			}
+			for (int i = 0, numChildren = node.getNumChildren(); i < numChildren; i++) {
+				TrieNode<V> child = node.getChildAt(i);
+				queue.add(new Candidate<V>(child, child.getMaxScore(), false, candidate, i));
+			}
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * the depth-first position of an entry of a best-first search queue, which breaks ties of priorities, 
+	 * so that tied key-value nodes come out in the order of getKeyValueNodes() as with a stable sort.
+	 * An entry links to the entry whose expansion added it, with its position among the added children, 
+	 * so that an expansion allocates no paths, and two positions are compared along the links in O(depth).
+	 * </pre>
+	 */
+	static class SearchPosition {
+		
+		/**
+		 * the entry whose expansion added this entry, or null for an entry seeding the search
+		 */
+		final SearchPosition parent;
+		
+		/**
+		 * the position among the children of the node of 'parent', or among the seeds
+		 */
+		final int position;
+		
+		final int depth;
+		
+		/**
+		 * whether the entry is a key-value node as a result, which precedes the sub-tree of the same node
+		 */
+		final boolean isResult;
+		
+		SearchPosition(SearchPosition parent, int position, boolean isResult) {
+			this.parent = parent;
+			this.position = position;
+			this.depth = parent == null ? 0 : parent.depth + 1;
+			this.isResult = isResult;
+		}
+		
+		/**
+		 * @param o : another position
+		 * @return the depth-first order of this position and 'o', where a node precedes its descendants
+		 */
+		final int compareTies(SearchPosition o) {
+			SearchPosition a = this, b = o;
+			while (a.depth > b.depth) {
+				a = a.parent;
+			}
+			while (b.depth > a.depth) {
+				b = b.parent;
+			}
+			while (a.parent != b.parent) {
+				a = a.parent;
+				b = b.parent;
+			}
+			if (a.position != b.position) {
+				return a.position < b.position ? -1 : 1;
+			}
+			if (depth != o.depth) {
+				return depth < o.depth ? -1 : 1;
+			}
+			// results first, so that ties end the search early 
+			return isResult == o.isResult ? 0 : (isResult ? -1 : 1);
+		}
+	}
+	
+	/**
+	 * an entry of a best-first search queue; 
+	 * either a key-value node as a result, or a sub-tree to expand with its maximum score as the priority 
+	 */
+	static final class Candidate<V> extends SearchPosition implements Comparable<Candidate<V>> {
+		
+		final TrieNode<V> node;
+		final int priority;
+		
+		/**
+		 * a candidate seeding a search of one sub-tree
+		 */
+		Candidate(TrieNode<V> node, int priority, boolean isResult) {
+			this(node, priority, isResult, null, 0);
+		}
+		
+		Candidate(TrieNode<V> node, int priority, boolean isResult, SearchPosition parent, int position) {
+			super(parent, position, isResult);
+			this.node = node;
+			this.priority = priority;
+		}
+		
+		@Override
+		public int compareTo(Candidate<V> o) {
+			if (priority != o.priority) {
+				return priority > o.priority ? -1 : 1;
+			}
+			return compareTies(o);
+		}
 	}
 	
 	/**@param numTopKeyValueNodes : number of top key-value nodes to select
@@ -0,0 +1,30 @@
+package org.linchimin.efficient_trie;
+
+/**
+ * the storage backends of the nodes of a PrefixTrie or SuffixTrie
+ * 
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ */
+public enum TrieStorage {
+	
+	/**
+	 * every node is a TrieNode object; the default storage
+	 */
+	OBJECT_GRAPH,
+	
+	/**
+	 * nodes are int handles into the parallel primitive arrays of a NodePool, 
+	 * and TrieNode objects are only created as views of the queried nodes;
+	 * it keeps the number of objects on the heap close to the number of values, for faster full GCs of large tries
+	 */
+	NODE_POOL,
+	
+	/**
+	 * nodes are int handles into fixed-size records in direct ByteBuffers, as for NODE_POOL, 
+	 * and only the values of key-value nodes stay on the heap;
+	 * for tries of hundreds of millions of nodes, whose marking and remembered sets would dominate GC work. 
+	 * The memory is released by close()
+	 */
+	OFF_HEAP
+}
@@ -0,0 +1,66 @@
+package org.linchimin.efficient_trie;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * encodes values into bytes for MappedTrie files, and decodes them from the mapped buffer on demand
+ *
+ * @author Lin Chi-Min (v381654729@gmail.com)
+ *
+ * @param <V> a generic type
+ */
+public interface ValueCodec<V> {
+
+	/**
+	 * @param value : a value of a key-value node, which may be null
+	 * @return the bytes of 'value'
+	 */
+	byte[] encode(V value);
+
+	/**
+	 * @param buffer : the little-endian buffer of a MappedTrie, which should only be read with absolute gets, as it is shared by threads
+	 * @param offset : the offset of the bytes of a value at 'buffer'
+	 * @param length : the number of bytes of the value
+	 * @return the decoded value
+	 */
+	V decode(ByteBuffer buffer, int offset, int length);
+
+	/**
+	 * a codec of String values in UTF-8, where null is encoded as no bytes and decoded as ""
+	 */
+	ValueCodec<String> UTF8_STRING = new ValueCodec<String>() {
+
+		@Override
+		public byte[] encode(String value) {
+			return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(ByteBuffer buffer, int offset, int length) {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = buffer.get(offset + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * a codec of Integer values in 4 little-endian bytes, where null is encoded as no bytes and decoded as null
+	 */
+	ValueCodec<Integer> INTEGER = new ValueCodec<Integer>() {
+
+		@Override
+		public byte[] encode(Integer value) {
+			return value == null ? new byte[0] : ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+		}
+
+		@Override
+		public Integer decode(ByteBuffer buffer, int offset, int length) {
+			return length == 0 ? null : buffer.getInt(offset);
+		}
+	};
+}